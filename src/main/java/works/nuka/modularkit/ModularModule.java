@@ -1,10 +1,14 @@
 package works.nuka.modularkit;
 
+import works.nuka.modularkit.events.ModuleHealth;
 import works.nuka.modularkit.events.ModuleStatus;
 import works.nuka.modularkit.ex.ModRunEx;
 import works.nuka.modularkit.ex.ModSourceEx;
 import works.nuka.modularkit.ex.ModUuidEx;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
 @SuppressWarnings("unused")
 
 public abstract class ModularModule {
@@ -14,7 +18,9 @@ public abstract class ModularModule {
     private final String author; // module author name.
     private final String version; // module version number.
 
-    private ModuleStatus modStatus = ModuleStatus.STOPPED; // Default module execution status.
+    private final ModuleLifecycle lifecycle = new ModuleLifecycle(ModuleStatus.STOPPED); // Default status.
+    private final AtomicReference<ModuleHealth> health = new AtomicReference<>(ModuleHealth.UNKNOWN);
+    private final Object healthLock = new Object();
     private ModularSource modSource;
     private final ModularModule[] moduleDependencies;
 
@@ -73,12 +79,35 @@ public abstract class ModularModule {
             getModSource().getModuleManager().setDepends(this, this.moduleDependencies);
     }
 
+    /**
+     * (Internal API) - Bind a module validated by a batch registration : no lookup, the dependencies are set.
+     */
+    void bindSource(ModularSource source) {
+        modSource = source;
+        if (moduleDependencies != null && moduleDependencies.length > 0)
+            source.getModuleManager().replaceDepends(this, moduleDependencies);
+    }
+
+    /**
+     * (Internal API) - Attach a new version of an already registered module, the uuid check is skipped.
+     */
+    void attachSource(ModularSource source) throws ModSourceEx {
+        if (source == null)
+            throw new ModSourceEx("ModSource cannot be null !");
+
+        modSource = source;
+        source.getModuleManager().replaceDepends(this, moduleDependencies);
+    }
+
     protected void exec() {
-        modStatus = ModuleStatus.RUNNING;
+        if (lifecycle.get() != ModuleStatus.RUNNING)
+            return; // Stopped before its thread could start it.
+
         modThread = Thread.currentThread();
         threadName = modThread.getName();
 
         start();
+        probeHealth(); // STARTING until start() returns, or until the first scheduled probe if it never returns.
     }
 
     /**
@@ -92,11 +121,100 @@ public abstract class ModularModule {
 
     protected abstract void unload();
 
+    /**
+     * The health / readiness probe of the module, called periodically by the framework (not by the
+     * load balancers) : the result is cached and read with getHealth().
+     * Override it to delay the readiness until the module is really able to work, it must stay cheap.
+     *
+     * @return - Returns the current health of the module, READY by default.
+     * @since 1.8
+     */
+    protected ModuleHealth checkHealth() {
+        return ModuleHealth.READY;
+    }
+
+    /**
+     * Push a new health state right now, without waiting for the next checkHealth() probe.
+     *
+     * @param newHealth - The new health of the module.
+     * @since 1.8
+     */
+    protected final void reportHealth(ModuleHealth newHealth) {
+        publishHealth(newHealth != null ? newHealth : ModuleHealth.DOWN);
+    }
+
+    /**
+     * Wait until the module reaches the given health.
+     *
+     * @param expected - The expected health.
+     * @param timeout  - Max time to wait.
+     * @param unit     - TimeUnit of the timeout.
+     * @return - Returns true if the module reached the expected health, false on timeout.
+     * @throws InterruptedException - If the current thread is interrupted.
+     * @since 1.8
+     */
+    public boolean awaitHealth(ModuleHealth expected, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        synchronized (healthLock) {
+            while (health.get() != expected) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    return false;
+                TimeUnit.NANOSECONDS.timedWait(healthLock, remaining);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * (Internal API) - Run the checkHealth() probe and cache its result.
+     */
+    void probeHealth() {
+        ModuleHealth probed;
+        try {
+            probed = checkHealth();
+        } catch (Throwable t) {
+            probed = ModuleHealth.DOWN;
+        }
+
+        publishHealth(probed != null ? probed : ModuleHealth.DOWN);
+    }
+
+    // Only a running module publishes its own health : a probe or a task finishing after the stop keeps UNKNOWN.
+    private void publishHealth(ModuleHealth newHealth) {
+        synchronized (healthLock) {
+            if (lifecycle.get() == ModuleStatus.RUNNING)
+                setHealth(newHealth);
+        }
+    }
+
+    void setHealth(ModuleHealth newHealth) {
+        synchronized (healthLock) {
+            ModularSource source = modSource;
+            ModuleHealth old;
+            if (source != null) {
+                // The health counts of the source change with the module map, under the same lock.
+                synchronized (source) {
+                    old = health.getAndSet(newHealth);
+                    if (old != newHealth)
+                        source.onHealthChanged(this, old, newHealth);
+                }
+            } else
+                old = health.getAndSet(newHealth);
+
+            if (old != newHealth)
+                healthLock.notifyAll();
+        }
+    }
+
     @SuppressWarnings("deprecation") // Because modThread.stop() is deprecated.
     protected void kill() throws ModRunEx {
-        if (modStatus != ModuleStatus.STOPPING)
+        if (lifecycle.get() != ModuleStatus.STOPPING)
             throw new ModRunEx("Please try with stop() before call kill() !");
-        modThread.stop();
+        if (modThread != null)
+            modThread.stop();
     }
 
     public String getUuid() {
@@ -119,12 +237,92 @@ public abstract class ModularModule {
         return threadName;
     }
 
+    /**
+     * Get the cached health of the module, O(1) and never calls into the module.
+     *
+     * @return - Returns the last known ModuleHealth.
+     * @since 1.8
+     */
+    public ModuleHealth getHealth() {
+        return health.get();
+    }
+
     public ModuleStatus getModuleStatus() {
-        return modStatus;
+        return lifecycle.get();
     }
 
+    /**
+     * Move the module to a new status, along the legal transitions of ModuleStatus.
+     *
+     * @param modStatus - The new status.
+     * @throws IllegalStateException - If the module cannot go from its current status to the new one.
+     */
     protected void setModuleStatus(ModuleStatus modStatus) {
-        this.modStatus = modStatus;
+        lifecycle.moveTo(modStatus);
+    }
+
+    /**
+     * Wait until the module reaches the given status, without polling.
+     *
+     * @param expected - The expected status.
+     * @param timeout  - Max time to wait.
+     * @param unit     - TimeUnit of the timeout.
+     * @return - Returns true if the module reached the expected status, false on timeout.
+     * @throws InterruptedException - If the current thread is interrupted.
+     * @since 1.8
+     */
+    public boolean awaitStatus(ModuleStatus expected, long timeout, TimeUnit unit) throws InterruptedException {
+        return lifecycle.await(expected, timeout, unit);
+    }
+
+    /**
+     * (Internal API) - Atomically move the module from a status to another one.
+     *
+     * @return - Returns false if the module was not in the "from" status.
+     * @throws IllegalStateException - If the transition is not legal.
+     */
+    boolean transitionStatus(ModuleStatus from, ModuleStatus to) {
+        return lifecycle.transition(from, to);
+    }
+
+    /**
+     * Get the module-scoped executor, tasks submitted here are accounted to this module
+     * and cancelled when the module stops.
+     *
+     * @return - Returns the ModuleExecutor of this module.
+     * @throws ModSourceEx - If the module is not registered in a ModularSource.
+     * @since 1.8
+     */
+    protected ModuleExecutor getExecutor() throws ModSourceEx {
+        if (modSource == null)
+            throw new ModSourceEx("The module is not registered in a ModularSource !");
+        return modSource.getModuleManager().getResourceGovernor().getExecutor(this);
+    }
+
+    /**
+     * Get the framework-owned scheduler of this module, use it instead of custom threads or timers.
+     * Every task is cancelled when the module stops.
+     *
+     * @return - Returns the ModuleScheduler of this module.
+     * @throws ModSourceEx - If the module is not registered in a ModularSource.
+     * @since 1.8
+     */
+    protected ModuleScheduler getScheduler() throws ModSourceEx {
+        if (modSource == null)
+            throw new ModSourceEx("The module is not registered in a ModularSource !");
+        return modSource.getModuleManager().getScheduler(this);
+    }
+
+    ModularModule[] getModuleDependencies() {
+        return moduleDependencies;
+    }
+
+    boolean isRegistered() {
+        return modSource != null && modSource.getModuleMap().get(uuid) == this;
+    }
+
+    Thread getModThread() {
+        return modThread;
     }
 
     private ModularSource getModSource() {
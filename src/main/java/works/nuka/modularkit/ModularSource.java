@@ -1,9 +1,22 @@
 package works.nuka.modularkit;
 
+import works.nuka.modularkit.config.ConfigParser;
+import works.nuka.modularkit.config.ModuleManifest;
+import works.nuka.modularkit.config.SourceConfig;
+import works.nuka.modularkit.diagnostics.DiagnosticPhase;
+import works.nuka.modularkit.diagnostics.DiagnosticRecord;
+import works.nuka.modularkit.diagnostics.Diagnostics;
+import works.nuka.modularkit.events.ModuleHealth;
 import works.nuka.modularkit.events.ModuleStatus;
+import works.nuka.modularkit.ex.ModEx;
 import works.nuka.modularkit.ex.ModRegisterEx;
+import works.nuka.modularkit.ex.ModRunEx;
 import works.nuka.modularkit.ex.ModSourceEx;
 import works.nuka.modularkit.ex.ModUuidEx;
+import works.nuka.modularkit.ex.ModVerifyEx;
+import works.nuka.modularkit.leaks.LeakTracker;
+import works.nuka.modularkit.security.JarVerifier;
+import works.nuka.modularkit.security.VerificationResult;
 
 import java.io.File;
 import java.io.IOException;
@@ -11,19 +24,44 @@ import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLClassLoader;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Properties;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Stream;
 
 @SuppressWarnings("unused")
 public class ModularSource {
 
     private static final HashMap<String, ModularSource> sourceMap = new HashMap<>();
-    private final HashMap<String, ModularModule> moduleMap = new HashMap<>();
+    // The readers never lock. The single registrations update the map in place, the batches publish a new map
+    // at once (copy-on-write) so the readers see either none or all of their modules.
+    private volatile Map<String, ModularModule> moduleMap = new ConcurrentHashMap<>();
+    private final Map<String, ModuleHandle> handles = new ConcurrentHashMap<>();
+    private final Map<String, ModularModule> upgrades = new ConcurrentHashMap<>(); // uuid -> staged version
+    private final Map<String, ModuleManifest> manifests = new ConcurrentHashMap<>(); // uuid -> declared metadata
+    private final Map<String, LazyModule> lazyModules = new ConcurrentHashMap<>(); // uuid -> not instantiated yet
+    private final List<Runnable> destroyHooks = new CopyOnWriteArrayList<>();
+    private final AtomicIntegerArray healthCounts = new AtomicIntegerArray(ModuleHealth.values().length);
     private final String uuid;
+    private final Diagnostics diagnostics;
+    private final List<DiagnosticRecord> loadErrors = new ArrayList<>();
     private ModuleManager moduleManager;
 
     /**
@@ -34,10 +72,11 @@ public class ModularSource {
      */
 
     public ModularSource(String _uuid) throws ModUuidEx {
+        diagnostics = new Diagnostics(_uuid);
         try {
             this.moduleManager = new ModuleManager(this);
         } catch (ModSourceEx modSourceEx) {
-            modSourceEx.printStackTrace();
+            diagnostics.report(DiagnosticPhase.LOAD, null, modSourceEx);
         }
 
         if (_uuid == null)
@@ -59,96 +98,439 @@ public class ModularSource {
      * @throws ModUuidEx - Can return a ModUuidEx if UuID is incorrect or null.
      */
     public ModularSource(String _uuid, File path, String fileExtension) throws ModUuidEx, ModSourceEx {
+        this(_uuid, path, fileExtension, null);
+    }
+
+    /**
+     * ModularSource - Create a collections of Modules with External ModularModule
+     * Repository, only the module files trusted by the JarVerifier are instantiated.
+     *
+     * @param _uuid    - UuID of the ModularSource.
+     * @param path     - File Path of the Modules Repository.
+     * @param verifier - (Optional) The JarVerifier of the module files, null to trust every file.
+     * @throws ModUuidEx - Can return a ModUuidEx if UuID is incorrect or null.
+     * @since 1.8
+     */
+    public ModularSource(String _uuid, File path, String fileExtension, JarVerifier verifier)
+            throws ModUuidEx, ModSourceEx {
+        this(_uuid, listModuleFiles(path, fileExtension), verifier);
+    }
+
+    /**
+     * ModularSource - Create a collections of Modules from a list of module files (eg : the files
+     * pulled by a ModuleRepository), only the module files trusted by the JarVerifier are instantiated.
+     *
+     * @param _uuid       - UuID of the ModularSource.
+     * @param moduleFiles - The module files, loaded in this order.
+     * @param verifier    - (Optional) The JarVerifier of the module files, null to trust every file.
+     * @throws ModUuidEx - Can return a ModUuidEx if UuID is incorrect or null.
+     * @since 1.8
+     */
+    public ModularSource(String _uuid, List<File> moduleFiles, JarVerifier verifier) throws ModUuidEx {
         if (_uuid == null)
             throw new ModUuidEx("uuid cannot be null.");
 
-        if (_uuid.length() != 8)
-            try {
-                throw new ModUuidEx("uuid is incorrect !"); // Grab only the group 1 of the uuid eg :
-                // "**f3eafee8**-2419-4a58-b8fe-fe72d6f4019b"
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        diagnostics = new Diagnostics(_uuid);
 
-        if (fileExtension.isEmpty())
-            throw new ModSourceEx("You need to set a custom file extension !");
+        if (_uuid.length() != 8) // Grab only the group 1 of the uuid eg : "**f3eafee8**-2419-4a58-b8fe-fe72d6f4019b"
+            loadError(DiagnosticPhase.LOAD, null, new ModUuidEx("uuid is incorrect !"));
 
         try {
             this.moduleManager = new ModuleManager(this);
         } catch (ModSourceEx modSourceEx) {
-            modSourceEx.printStackTrace();
+            loadError(DiagnosticPhase.LOAD, null, modSourceEx);
         }
 
         uuid = _uuid;
 
-        if (path.exists() && path.canRead()) {
+        List<ModularModule> modules = new ArrayList<>();
+        Map<ModularModule, ModuleManifest> scanned = new IdentityHashMap<>();
+        for (File file : moduleFiles)
+            modules.addAll(scanModuleFile(file, verifier, loadErrors, scanned, true));
+        if (verifier != null)
+            verifier.flush();
+        publishModules(modules);
+
+        for (ModularModule module : modules)
+            if (moduleMap.get(module.getUuid()) == module && scanned.containsKey(module))
+                applyManifest(module, scanned.get(module), loadErrors);
+
+        // Finally, register the source !
+        registerSource();
+    }
+
+    /**
+     * ModularSource - Create a source from a configuration file, see ConfigParser.parseSourceConfig().
+     *
+     * @param configFile - The source configuration file.
+     * @param verifier   - (Optional) The JarVerifier of the module files, null to trust every file.
+     * @return - Returns the ModularSource, its modules are started if the configuration says autostart.
+     * @throws ModUuidEx   - If the uuid of the configuration is already used.
+     * @throws ModSourceEx - If the configuration is invalid (a ModConfigEx, with the error location).
+     * @since 1.8
+     */
+    public static ModularSource fromConfig(File configFile, JarVerifier verifier) throws ModUuidEx, ModSourceEx {
+        SourceConfig config = ConfigParser.parseSourceConfig(configFile);
+        ModularSource source = config.getModuleDirectory() != null
+                ? new ModularSource(config.getUuid(), config.getModuleDirectory(), config.getFileExtension(), verifier)
+                : new ModularSource(config.getUuid());
+
+        if (config.getHealthCheckInterval() != null)
+            source.moduleManager.setHealthCheckInterval(config.getHealthCheckInterval());
+        if (config.getReadinessTimeout() != null)
+            source.moduleManager.setReadinessTimeout(config.getReadinessTimeout());
+        if (config.isAutoStart())
+            source.startModules();
+        return source;
+    }
+
+    private static List<File> listModuleFiles(File path, String fileExtension) throws ModSourceEx {
+        if (fileExtension.isEmpty())
+            throw new ModSourceEx("You need to set a custom file extension !");
+
+        String extension = fileExtension.startsWith(".") ? fileExtension : "." + fileExtension;
+        if (!path.exists() || !path.canRead())
+            return List.of();
+
+        try (Stream<Path> files = Files.walk(path.toPath())) {
+            return files.filter(Files::isRegularFile)
+                    .filter(e -> e.getFileName().toString().endsWith(extension))
+                    .sorted()
+                    .map(Path::toFile)
+                    .toList();
+        } catch (IOException e) {
+            throw new ModSourceEx("Cannot list the module files of " + path + " !", e);
+        }
+    }
+
+    private void loadError(DiagnosticPhase phase, String moduleUuid, Throwable error) {
+        loadErrors.add(diagnostics.report(phase, moduleUuid, error));
+    }
+
+    /**
+     * Load a module file in its own ModuleClassLoader and instantiate its modules, without registering them.
+     * The manifest of each module is added to the scanned map, the lazy modules are only declared.
+     * The failures are reported and added to the errors list.
+     */
+    private List<ModularModule> scanModuleFile(File file, JarVerifier verifier, List<DiagnosticRecord> errors,
+                                               Map<ModularModule, ModuleManifest> scanned, boolean allowLazy) {
+        // A verified file is verified and loaded from the same private snapshot.
+        File loadedFile = file;
+        if (verifier != null) {
             try {
-                Files.walk(path.toPath()).forEach(e -> {
-                    if (e.toFile().isFile()) {
-                        URLClassLoader classLoader = null;
-
-                        try {
-                            classLoader = new URLClassLoader(
-                                    new URL[]{new URL("file", null, e.toFile().getAbsolutePath())});
-                        } catch (MalformedURLException malformedURLException) {
-                            malformedURLException.printStackTrace();
-                        }
-
-                        Properties extModRegistrationFile = new Properties();
-
-                        try {
-                            assert classLoader != null; // Safe check if classLoader is null.
-                            InputStream inModlr = classLoader.getResourceAsStream(".modlr");
-                            if (inModlr != null) {
-                                extModRegistrationFile.load(inModlr);
-                            } else
-                                throw new IOException("File .modlr not found !");
-                        } catch (IOException ioException) {
-                            ioException.printStackTrace();
-                        }
-
-                        for (Map.Entry<Object, Object> entry : extModRegistrationFile.entrySet()) {
-                            Class<?> modClass = null;
-
-                            try {
-                                modClass = Class.forName(entry.getValue().toString(), false, classLoader);
-
-                            } catch (Exception classNotFoundException) {
-                                classNotFoundException.printStackTrace();
-                            }
-
-                            assert modClass != null;
-
-                            if (modClass.getSuperclass().getName().equals(ModularModule.class.getName())) {
-                                ModularModule newModule = null;
-                                try {
-                                    newModule = (ModularModule) modClass.getDeclaredConstructor().newInstance();
-                                } catch (InstantiationException | IllegalAccessException | InvocationTargetException
-                                         | NoSuchMethodException ex) {
-                                    ex.printStackTrace();
-                                }
-                                try {
-                                    assert newModule != null;
-                                    registerModule(newModule);
-                                } catch (ModRegisterEx | ModUuidEx | ModSourceEx ex) {
-                                    ex.printStackTrace();
-                                }
-                            } else
-                                try {
-                                    throw new ModSourceEx("The module doesn't extends to ModularModule.");
-                                } catch (ModSourceEx ex) {
-                                    ex.printStackTrace();
-                                }
-                        }
-                    }
-                });
-            } catch (IOException e) {
-                e.printStackTrace();
+                loadedFile = verifier.snapshot(file);
+            } catch (ModVerifyEx e) {
+                errors.add(diagnostics.report(DiagnosticPhase.VERIFY, null, e));
+                return List.of();
             }
         }
 
-        // Finally, register the source !
-        registerSource();
+        // The verification runs in parallel with the class scanning, no module code runs before its end.
+        CompletableFuture<VerificationResult> verification = verifier != null ? verifier.verifyAsync(loadedFile)
+                : null;
+        ModuleClassLoader classLoader;
+
+        try {
+            classLoader = new ModuleClassLoader(file, loadedFile, ModularSource.class.getClassLoader());
+        } catch (MalformedURLException malformedURLException) {
+            errors.add(diagnostics.report(DiagnosticPhase.LOAD, null, malformedURLException));
+            if (loadedFile != file)
+                loadedFile.delete();
+            return List.of();
+        }
+
+        List<ServiceLoader.Provider<ModuleFactory>> factoryProviders = findFactories(classLoader, errors);
+        List<ModuleManifest> fileManifests = new ArrayList<>();
+
+        // findResource() only looks into the module file, not into the parent class loaders.
+        URL modlrUrl = classLoader.findResource(ConfigParser.MANIFEST_NAME);
+        try {
+            if (modlrUrl != null) {
+                try (InputStream inModlr = modlrUrl.openStream()) {
+                    fileManifests.addAll(ConfigParser.parseManifest(inModlr,
+                            file.getName() + "!/" + ConfigParser.MANIFEST_NAME));
+                }
+            } else if (factoryProviders.isEmpty())
+                throw new IOException("File .modlr not found in " + file + " !");
+        } catch (IOException | ModSourceEx exception) {
+            errors.add(diagnostics.report(DiagnosticPhase.LOAD, null, exception));
+        }
+
+        // Pre-load the classes instantiated by reflection, the modules with a factory skip the lookup.
+        Set<String> factoryTypes = new HashSet<>();
+        for (ServiceLoader.Provider<ModuleFactory> provider : factoryProviders)
+            factoryTypes.add(provider.type().getName());
+
+        for (ModuleManifest manifest : fileManifests) {
+            if ((allowLazy && manifest.isLazy()) || factoryTypes.contains(factoryNameOf(manifest.getClassName())))
+                continue;
+            try {
+                Class.forName(manifest.getClassName(), false, classLoader); // Load without initializing.
+            } catch (ClassNotFoundException | LinkageError ignored) {
+                // Reported by instantiateModule().
+            }
+        }
+
+        if (verification != null) {
+            VerificationResult result = verification.join();
+            if (!result.isTrusted()) {
+                errors.add(diagnostics.report(DiagnosticPhase.VERIFY, null,
+                        new ModVerifyEx("Untrusted module file " + file + " : " + result.getReason())));
+                try {
+                    classLoader.close();
+                } catch (IOException e) {
+                    errors.add(diagnostics.report(DiagnosticPhase.VERIFY, null, e));
+                }
+                LeakTracker.global().watchClassLoader(classLoader, uuid);
+                return List.of();
+            }
+        }
+
+        Map<String, ModuleFactory> factories = new HashMap<>();
+        try {
+            for (ServiceLoader.Provider<ModuleFactory> provider : factoryProviders) {
+                ModuleFactory factory = provider.get();
+                factories.put(factory.getModuleClassName(), factory);
+            }
+        } catch (ServiceConfigurationError error) {
+            errors.add(diagnostics.report(DiagnosticPhase.INSTANTIATE, null, error));
+        }
+
+        if (modlrUrl == null)
+            for (ModuleFactory factory : factories.values())
+                fileManifests.add(factoryManifest(factory, file.getName()));
+
+        List<ModularModule> modules = new ArrayList<>();
+        boolean lazy = false;
+        for (ModuleManifest manifest : fileManifests) {
+            if (allowLazy && manifest.isLazy()) {
+                if (moduleMap.containsKey(manifest.getUuid()) || isScanned(scanned, manifest.getUuid()))
+                    errors.add(diagnostics.report(DiagnosticPhase.REGISTER, manifest.getUuid(),
+                            new ModRegisterEx("Module already instantiated, cannot declare it lazy ("
+                                    + manifest.getOrigin() + ") !")));
+                else if (lazyModules.putIfAbsent(manifest.getUuid(), new LazyModule(manifest, classLoader, factories)) != null)
+                    errors.add(diagnostics.report(DiagnosticPhase.REGISTER, manifest.getUuid(),
+                            new ModRegisterEx("Lazy module already declared (" + manifest.getOrigin() + ") !")));
+                else {
+                    manifests.put(manifest.getUuid(), manifest);
+                    lazy = true;
+                }
+                continue;
+            }
+
+            try {
+                ModularModule module = instantiateModule(manifest.getClassName(), classLoader, factories);
+                checkManifest(module, manifest);
+                modules.add(module);
+                scanned.put(module, manifest);
+            } catch (ModSourceEx ex) {
+                errors.add(diagnostics.report(DiagnosticPhase.INSTANTIATE, manifest.getUuid(), ex));
+            }
+        }
+
+        if (modules.isEmpty() && !lazy)
+            closeLoader(classLoader, DiagnosticPhase.LOAD, null); // Nothing would ever close it.
+        return modules;
+    }
+
+    /**
+     * @return - Returns the name of the factory generated by the ModuleDescriptorProcessor for a module class.
+     */
+    private static String factoryNameOf(String className) {
+        int dot = className.lastIndexOf('.');
+        return className.substring(0, dot + 1) + className.substring(dot + 1).replace('$', '_') + "_ModularFactory";
+    }
+
+    private static boolean isScanned(Map<ModularModule, ModuleManifest> scanned, String moduleUuid) {
+        for (ModularModule module : scanned.keySet())
+            if (module.getUuid().equals(moduleUuid))
+                return true;
+        return false;
+    }
+
+    /**
+     * Find the build-time generated ModuleFactory services declared by the module file itself.
+     * The factory classes are loaded but not initialized.
+     * <p>
+     * The ServiceLoader still loads each factory class by name, and its Provider.get() calls the public no-arg
+     * constructor of the factory reflectively : one reflective call per factory, the module classes themselves
+     * are neither looked up nor instantiated by reflection.
+     */
+    private List<ServiceLoader.Provider<ModuleFactory>> findFactories(ModuleClassLoader classLoader,
+                                                                      List<DiagnosticRecord> errors) {
+        try {
+            return ServiceLoader.load(ModuleFactory.class, classLoader).stream()
+                    .filter(provider -> provider.type().getClassLoader() == classLoader)
+                    .toList();
+        } catch (ServiceConfigurationError error) {
+            errors.add(diagnostics.report(DiagnosticPhase.LOAD, null, error));
+            return List.of();
+        }
+    }
+
+    /**
+     * Instantiate a module with its generated factory, or with reflection if the module has no factory.
+     */
+    private static ModularModule instantiateModule(String className, ClassLoader classLoader,
+                                                   Map<String, ModuleFactory> factories) throws ModSourceEx {
+        try {
+            ModuleFactory factory = factories.get(className);
+            if (factory != null)
+                return factory.newInstance();
+
+            Class<?> modClass = Class.forName(className, false, classLoader);
+            if (!ModularModule.class.isAssignableFrom(modClass))
+                throw new ModSourceEx("The module doesn't extends to ModularModule.");
+
+            return (ModularModule) modClass.getDeclaredConstructor().newInstance();
+        } catch (ModSourceEx e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ModSourceEx("Cannot instantiate the module " + className + " !", e);
+        }
+    }
+
+    /**
+     * Build the manifest of a module file without .modlr file from the @ModuleDescriptor of its factory,
+     * so the module is checked against the declared uuid and version.
+     */
+    private static ModuleManifest factoryManifest(ModuleFactory factory, String origin) {
+        return new ModuleManifest(factory.getModuleClassName(), emptyToNull(factory.getUuid()),
+                emptyToNull(factory.getModuleName()), emptyToNull(factory.getVersion()),
+                emptyToNull(factory.getAuthor()), List.of(), 0, false, null, null,
+                origin + "!/@ModuleDescriptor(" + factory.getModuleClassName() + ")");
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Check that the module matches the uuid and the version declared by its manifest.
+     */
+    private static void checkManifest(ModularModule module, ModuleManifest manifest) throws ModSourceEx {
+        if (manifest.getUuid() != null && !manifest.getUuid().equals(module.getUuid()))
+            throw new ModSourceEx(manifest.getOrigin() + " declares the uuid " + manifest.getUuid()
+                    + " but " + manifest.getClassName() + " has the uuid " + module.getUuid() + " !");
+
+        if (manifest.getVersion() != null && !manifest.getVersion().equals(module.getVersion()))
+            throw new ModSourceEx(manifest.getOrigin() + " declares the version " + manifest.getVersion()
+                    + " but " + manifest.getClassName() + " has the version " + module.getVersion() + " !");
+    }
+
+    /**
+     * Apply the quota, the execution group and the dependencies declared by the manifest of a registered module. A dependency
+     * on a lazy module instantiates it.
+     */
+    private void applyManifest(ModularModule module, ModuleManifest manifest, List<DiagnosticRecord> errors) {
+        manifests.put(module.getUuid(), manifest);
+        if (manifest.getQuota() != null)
+            moduleManager.setQuota(module, manifest.getQuota());
+        if (manifest.getGroup() != null)
+            moduleManager.setExecutionGroup(module, manifest.getGroup());
+        if (manifest.getDepends().isEmpty())
+            return;
+
+        List<ModularModule> dependencies = new ArrayList<>();
+        try {
+            if (moduleManager.hasDepends(module))
+                dependencies.addAll(moduleManager.getDepends(module));
+        } catch (ModSourceEx ignored) {
+            // No dependency yet.
+        }
+
+        for (String dependencyUuid : manifest.getDepends()) {
+            ModularModule dependency = moduleMap.get(dependencyUuid);
+            if (dependency == null)
+                dependency = activateLazyModule(dependencyUuid);
+
+            if (dependency == null) {
+                ModRegisterEx error = new ModRegisterEx("Missing dependency " + dependencyUuid + " of "
+                        + module.getUuid() + " (" + manifest.getOrigin() + ") !");
+                DiagnosticRecord record = diagnostics.report(DiagnosticPhase.REGISTER, module.getUuid(), error);
+                if (errors != null)
+                    errors.add(record);
+            } else if (!dependencies.contains(dependency))
+                dependencies.add(dependency);
+        }
+
+        moduleManager.replaceDepends(module, dependencies.toArray(new ModularModule[0]));
+    }
+
+    /**
+     * (Protected, Internal API) - Instantiate and register a lazy module, on its first use.
+     *
+     * @return - Returns the module, null if the uuid is not a lazy module or if its instantiation failed.
+     */
+    protected ModularModule activateLazyModule(String moduleUuid) {
+        if (lazyModules.isEmpty())
+            return null;
+
+        synchronized (this) {
+            LazyModule lazy = lazyModules.remove(moduleUuid);
+            if (lazy == null)
+                return moduleMap.get(moduleUuid);
+
+            try {
+                ModularModule module = instantiateModule(lazy.manifest.getClassName(), lazy.classLoader,
+                        lazy.factories);
+                checkManifest(module, lazy.manifest);
+                registerModule(module);
+                applyManifest(module, lazy.manifest, null);
+                return module;
+            } catch (ModEx | ModRegisterEx e) {
+                diagnostics.report(DiagnosticPhase.INSTANTIATE, moduleUuid, e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Start every registered module, by decreasing manifest priority (0 without manifest). The lazy modules
+     * are started by their first runModule(uuid).
+     *
+     * @return - Returns the number of started modules.
+     * @since 1.8
+     */
+    public int startModules() {
+        List<ModularModule> modules = new ArrayList<>(moduleMap.values());
+        modules.sort(Comparator.comparingInt(this::getPriority).reversed().thenComparing(ModularModule::getUuid));
+
+        int started = 0;
+        for (ModularModule module : modules) {
+            try {
+                if (moduleManager.runModule(module, null))
+                    started++;
+            } catch (ModRegisterEx e) {
+                diagnostics.report(DiagnosticPhase.START, module.getUuid(), e);
+            }
+        }
+        return started;
+    }
+
+    private int getPriority(ModularModule module) {
+        ModuleManifest manifest = manifests.get(module.getUuid());
+        return manifest != null ? manifest.getPriority() : 0;
+    }
+
+    /**
+     * @param moduleUuid - The module uuid.
+     * @return - Returns the manifest of a registered or lazy module, null if the module has no manifest.
+     * @since 1.8
+     */
+    public ModuleManifest getManifest(String moduleUuid) {
+        return manifests.get(moduleUuid);
+    }
+
+    /**
+     * @return - Returns the manifests of the lazy modules not instantiated yet, keyed by uuid.
+     * @since 1.8
+     */
+    public Map<String, ModuleManifest> getLazyModules() {
+        Map<String, ModuleManifest> lazy = new HashMap<>();
+        for (Map.Entry<String, LazyModule> entry : lazyModules.entrySet())
+            lazy.put(entry.getKey(), entry.getValue().manifest);
+        return Collections.unmodifiableMap(lazy);
     }
 
     /**
@@ -210,21 +592,49 @@ public class ModularSource {
      */
     public boolean destroy(@Deprecated boolean forceDestroy) {
         for (Map.Entry<String, ModularModule> moduleEntry : moduleMap.entrySet()) {
-            moduleEntry.getValue().setModuleStatus(ModuleStatus.STOPPING);
-            moduleEntry.getValue().stop();
-
-            if (forceDestroy) {
-                try {
-                    moduleEntry.getValue().kill(); // Force stop the module
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+            try {
+                moduleManager.stopModule(moduleEntry.getValue(), forceDestroy, null); // Force stop the module
+            } catch (ModRunEx e) {
+                diagnostics.report(DiagnosticPhase.STOP, moduleEntry.getKey(), e);
             }
         }
 
+        moduleManager.shutdown();
+
+        // The modules stay in the module map : they are collected with the source.
+        Set<ModuleClassLoader> loaders = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ModularModule module : moduleMap.values()) {
+            LeakTracker.global().watchModule(module, uuid);
+            if (module.getClass().getClassLoader() instanceof ModuleClassLoader loader)
+                loaders.add(loader);
+        }
+        for (LazyModule lazy : lazyModules.values())
+            loaders.add(lazy.classLoader);
+        lazyModules.clear();
+        for (ModuleClassLoader loader : loaders)
+            closeLoader(loader, DiagnosticPhase.STOP, null);
+
+        for (Runnable hook : destroyHooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                diagnostics.report(DiagnosticPhase.STOP, null, e);
+            }
+        }
+        destroyHooks.clear();
         return unregisterSource();
     }
 
+    /**
+     * Run a task once the source is destroyed, after its class loaders are closed.
+     *
+     * @param hook - The task, eg : release the module files of the source.
+     * @since 1.8
+     */
+    public void addDestroyHook(Runnable hook) {
+        destroyHooks.add(hook);
+    }
+
     /**
      * Registering a module with the ModularModule Object.
      *
@@ -236,10 +646,14 @@ public class ModularSource {
      * @throws ModSourceEx   - Can fail if the ModSource is null.
      * @since 1.0
      */
-    public boolean registerModule(ModularModule module) throws ModRegisterEx, ModUuidEx, ModSourceEx {
+    public synchronized boolean registerModule(ModularModule module) throws ModRegisterEx, ModUuidEx, ModSourceEx {
+        if (lazyModules.containsKey(module.getUuid()))
+            throw new ModRegisterEx("Module already declared as lazy !");
+
         if (!moduleMap.containsKey(module.getUuid())) {
             module.setModuleSource(this);
             moduleMap.put(module.getUuid(), module);
+            publish(null, List.of(module));
 
         } else
             throw new ModRegisterEx("Module already instantiated !");
@@ -247,6 +661,102 @@ public class ModularSource {
         return true;
     }
 
+    /**
+     * Register a batch of modules, all or nothing.
+     * <p>
+     * The whole batch is validated in one pass before any change : the uuids must be unique (in the batch
+     * and in the source, lazy modules included) and every dependency must be part of the batch or already registered. The modules
+     * are then published at once, the readers see either none or all of them.
+     *
+     * @param modules - The modules to register.
+     * @return - Returns the number of registered modules.
+     * @throws ModRegisterEx - If the batch is invalid, nothing is registered then.
+     * @since 1.8
+     */
+    public synchronized int registerModules(Collection<? extends ModularModule> modules) throws ModRegisterEx {
+        Map<String, ModularModule> newMap = new ConcurrentHashMap<>(moduleMap.size() + modules.size());
+        newMap.putAll(moduleMap);
+        List<String> errors = new ArrayList<>();
+
+        for (ModularModule module : modules) {
+            if (module == null) {
+                errors.add("null module");
+                continue;
+            }
+
+            if (lazyModules.containsKey(module.getUuid()))
+                errors.add(module.getUuid() + " : Module already declared as lazy !");
+            else if (newMap.putIfAbsent(module.getUuid(), module) != null)
+                errors.add(module.getUuid() + " : Module already instantiated !");
+            else if (moduleManager.hasDepends(module))
+                errors.add(module.getUuid() + " : dependencies already set.");
+        }
+
+        for (ModularModule module : modules) {
+            if (module == null || module.getModuleDependencies() == null)
+                continue;
+
+            for (ModularModule dependency : module.getModuleDependencies())
+                if (dependency == null || newMap.get(dependency.getUuid()) != dependency)
+                    errors.add(module.getUuid() + " : missing dependency "
+                            + (dependency != null ? dependency.getUuid() : "null"));
+        }
+
+        if (!errors.isEmpty())
+            throw new ModRegisterEx("Batch registration failed : " + String.join(", ", errors));
+
+        for (ModularModule module : modules)
+            module.bindSource(this);
+
+        publish(newMap, modules);
+        return modules.size();
+    }
+
+    /**
+     * Register the modules found by the directory loader : the invalid modules are reported (see getLoadErrors())
+     * and skipped, the others are published at once.
+     */
+    private synchronized void publishModules(List<ModularModule> modules) {
+        Map<String, ModularModule> newMap = new ConcurrentHashMap<>(moduleMap.size() + modules.size());
+        newMap.putAll(moduleMap);
+        List<ModularModule> accepted = new ArrayList<>(modules.size());
+
+        for (ModularModule module : modules) {
+            try {
+                if (lazyModules.containsKey(module.getUuid()))
+                    throw new ModRegisterEx("Module already declared as lazy !");
+                if (newMap.containsKey(module.getUuid()))
+                    throw new ModRegisterEx("Module already instantiated !");
+                if (moduleManager.hasDepends(module))
+                    throw new ModRegisterEx("The dependencies of " + module.getUuid() + " are already set !");
+
+                newMap.put(module.getUuid(), module);
+                accepted.add(module);
+            } catch (ModRegisterEx ex) {
+                loadError(DiagnosticPhase.REGISTER, module.getUuid(), ex);
+            }
+        }
+
+        for (ModularModule module : accepted)
+            module.bindSource(this);
+
+        publish(newMap, accepted);
+    }
+
+    // Must be called while holding the source lock, newMap is null if the modules are already in the module map.
+    private void publish(Map<String, ModularModule> newMap, Collection<? extends ModularModule> added) {
+        if (newMap != null)
+            moduleMap = newMap;
+
+        for (ModularModule module : added) {
+            healthCounts.incrementAndGet(module.getHealth().ordinal());
+
+            ModuleHandle handle = handles.get(module.getUuid());
+            if (handle != null)
+                handle.swap(module);
+        }
+    }
+
     /**
      * Registering a module with the ModuleClass.
      *
@@ -275,13 +785,22 @@ public class ModularSource {
      * @return Returns true if the operation success.
      * @throws ModRegisterEx - Can fail if the module is null.
      */
-    public boolean unregisterModule(ModularModule module) throws ModRegisterEx {
-        System.out.println(module.getModuleStatus());
-        if (moduleMap.containsKey(module.getUuid())) {
+    public synchronized boolean unregisterModule(ModularModule module) throws ModRegisterEx {
+        if (moduleMap.get(module.getUuid()) == module) {
             if (module.getModuleStatus() == ModuleStatus.RUNNING)
                 throw new ModRegisterEx("Failed to unregister the module : the module is running.");
             else {
                 moduleMap.remove(module.getUuid(), module);
+                healthCounts.decrementAndGet(module.getHealth().ordinal());
+                moduleManager.release(module);
+                moduleManager.replaceDepends(module); // The dependency list would retain the other modules.
+
+                ModuleHandle handle = handles.get(module.getUuid());
+                if (handle != null)
+                    handle.swap(null);
+
+                closeClassLoader(module, DiagnosticPhase.REGISTER);
+                LeakTracker.global().watchModule(module, uuid);
                 return true;
             }
         }
@@ -289,12 +808,266 @@ public class ModularSource {
         return false;
     }
 
+    /**
+     * Get a stable handle on a module : it always points to the current version of the module.
+     *
+     * @param uuid - The module uuid.
+     * @return - Returns the ModuleHandle of the module.
+     * @throws ModRegisterEx - If the module is not registered.
+     * @since 1.8
+     */
+    public synchronized ModuleHandle getHandle(String uuid) throws ModRegisterEx {
+        ModularModule module = moduleMap.get(uuid);
+        if (module == null)
+            throw new ModRegisterEx("the module is not registered !");
+
+        return handles.computeIfAbsent(uuid, k -> new ModuleHandle(uuid, module));
+    }
+
+    /**
+     * Upgrade in place the modules of a module file, see upgradeModule(ModularModule, Duration).
+     *
+     * @param moduleFile   - The module file of the new version, loaded side by side in its own class loader.
+     * @param verifier     - (Optional) The JarVerifier of the module file.
+     * @param readyTimeout - How long the new versions can take to become READY.
+     * @return - Returns the number of upgraded modules.
+     * @throws ModRegisterEx - If a module of the file is not registered yet, or if the file has no valid module
+     *                       (the cause is then the first load error).
+     * @throws ModRunEx      - If a new version does not become READY, the old version keeps running.
+     * @since 1.8
+     */
+    public int upgradeModules(File moduleFile, JarVerifier verifier, Duration readyTimeout)
+            throws ModRegisterEx, ModRunEx {
+        List<DiagnosticRecord> errors = new ArrayList<>();
+        Map<ModularModule, ModuleManifest> scanned = new IdentityHashMap<>();
+        List<ModularModule> modules = scanModuleFile(moduleFile, verifier, errors, scanned, false);
+        if (verifier != null)
+            verifier.flush();
+        if (modules.isEmpty())
+            throw new ModRegisterEx("No module found in " + moduleFile + " !",
+                    errors.isEmpty() ? null : errors.get(0).getError());
+
+        int upgraded = 0;
+        for (ModularModule module : modules) {
+            upgradeModule(module, scanned.get(module), readyTimeout);
+            upgraded++;
+        }
+        return upgraded;
+    }
+
+    /**
+     * Upgrade a running module without unavailability window :
+     * <ol>
+     *     <li>the new version is started side by side and awaited until READY,</li>
+     *     <li>the module map and the ModuleHandles switch atomically to the new version,</li>
+     *     <li>the old version is stopped, released and its class loader closed.</li>
+     * </ol>
+     * Only one upgrade per module runs at a time, so at most two versions of a module are alive.
+     * A stopped module is simply replaced, the new version is not started.
+     *
+     * @param newModule    - The new version, with the same uuid as the registered module.
+     * @param readyTimeout - How long the new version can take to become READY.
+     * @throws ModRegisterEx - If the module is not registered or already upgrading.
+     * @throws ModRunEx      - If the new version does not become READY, the old version keeps running.
+     * @since 1.8
+     */
+    public void upgradeModule(ModularModule newModule, Duration readyTimeout) throws ModRegisterEx, ModRunEx {
+        upgradeModule(newModule, null, readyTimeout);
+    }
+
+    /**
+     * Upgrade a running module, the manifest of the new version (if any) is applied before it starts.
+     */
+    private void upgradeModule(ModularModule newModule, ModuleManifest manifest, Duration readyTimeout)
+            throws ModRegisterEx, ModRunEx {
+        String moduleUuid = newModule.getUuid();
+        ModularModule oldModule;
+
+        synchronized (this) {
+            oldModule = moduleMap.get(moduleUuid);
+            if (oldModule == null)
+                throw new ModRegisterEx("the module is not registered !");
+            if (oldModule == newModule)
+                throw new ModRegisterEx("Module already instantiated !");
+            if (upgrades.putIfAbsent(moduleUuid, newModule) != null)
+                throw new ModRegisterEx("The module " + moduleUuid + " is already upgrading !");
+        }
+
+        try {
+            boolean wasRunning = oldModule.getModuleStatus() == ModuleStatus.RUNNING;
+            List<ModularModule> oldDepends = moduleManager.snapshotDepends(oldModule); // With the manifest ones.
+            ModuleManifest oldManifest = manifests.get(moduleUuid);
+
+            try {
+                newModule.attachSource(this);
+            } catch (ModSourceEx e) {
+                throw new ModRegisterEx(e.getMessage(), e);
+            }
+            moduleManager.setQuota(newModule, moduleManager.getResourceGovernor().getQuota(oldModule));
+            moduleManager.setExecutionGroup(newModule, moduleManager.getExecutionGroup(oldModule));
+            moduleManager.setIsolation(newModule, moduleManager.getIsolation(oldModule)); // Still out of the host.
+            if (manifest != null)
+                applyManifest(newModule, manifest, null); // Its dependencies are awaited by the start.
+
+            if (wasRunning) {
+                moduleManager.startModule(newModule);
+                boolean ready;
+                try {
+                    ready = newModule.awaitHealth(ModuleHealth.READY, readyTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    ready = false;
+                }
+
+                if (!ready) {
+                    if (manifest != null) {
+                        if (oldManifest != null)
+                            manifests.put(moduleUuid, oldManifest);
+                        else
+                            manifests.remove(moduleUuid);
+                    }
+                    rollbackUpgrade(oldModule, newModule, oldDepends);
+                    throw new ModRunEx("The new version of " + moduleUuid + " is not ready, upgrade cancelled.");
+                }
+            }
+
+            swapModule(oldModule, newModule);
+
+            if (wasRunning)
+                moduleManager.stopModule(oldModule, false, null);
+            moduleManager.release(oldModule);
+            closeClassLoader(oldModule, DiagnosticPhase.UPGRADE);
+            LeakTracker.global().watchModule(oldModule, uuid);
+        } finally {
+            upgrades.remove(moduleUuid, newModule);
+        }
+    }
+
+    private synchronized void swapModule(ModularModule oldModule, ModularModule newModule) {
+        moduleMap.put(newModule.getUuid(), newModule);
+        healthCounts.decrementAndGet(oldModule.getHealth().ordinal());
+        healthCounts.incrementAndGet(newModule.getHealth().ordinal());
+        moduleManager.replaceDependency(oldModule, newModule);
+
+        ModuleHandle handle = handles.get(newModule.getUuid());
+        if (handle != null)
+            handle.swap(newModule);
+    }
+
+    private void rollbackUpgrade(ModularModule oldModule, ModularModule newModule, List<ModularModule> oldDepends) {
+        try {
+            moduleManager.stopModule(newModule, false, null);
+        } catch (ModRunEx e) {
+            diagnostics.report(DiagnosticPhase.UPGRADE, newModule.getUuid(), e);
+        }
+
+        moduleManager.setIsolation(newModule, null);
+        moduleManager.release(newModule);
+        moduleManager.replaceDepends(oldModule,
+                oldDepends != null ? oldDepends.toArray(new ModularModule[0]) : new ModularModule[0]);
+        closeClassLoader(newModule, DiagnosticPhase.UPGRADE);
+        LeakTracker.global().watchModule(newModule, uuid);
+    }
+
+    /**
+     * Close the ModuleClassLoader of a module once no registered module uses it anymore, and no lazy module
+     * still needs it to be instantiated.
+     */
+    private synchronized void closeClassLoader(ModularModule module, DiagnosticPhase phase) {
+        if (!(module.getClass().getClassLoader() instanceof ModuleClassLoader loader))
+            return;
+
+        for (ModularModule registered : moduleMap.values())
+            if (registered.getClass().getClassLoader() == loader)
+                return;
+        for (LazyModule lazy : lazyModules.values())
+            if (lazy.classLoader == loader)
+                return;
+
+        closeLoader(loader, phase, module.getUuid());
+    }
+
+    /**
+     * Close a ModuleClassLoader and watch it : it should be collected with its classes (see LeakTracker).
+     */
+    private void closeLoader(ModuleClassLoader loader, DiagnosticPhase phase, String moduleUuid) {
+        try {
+            loader.close();
+        } catch (IOException e) {
+            diagnostics.report(phase, moduleUuid, e);
+        }
+        LeakTracker.global().watchClassLoader(loader, uuid);
+    }
+
+    /**
+     * Get the aggregated health of the source, computed in O(1) from the cached module healths.
+     * <ul>
+     *     <li>UNKNOWN : no module is started.</li>
+     *     <li>STARTING : at least one module is not ready yet.</li>
+     *     <li>DEGRADED : at least one started module is DEGRADED or DOWN.</li>
+     *     <li>READY : every started module is ready.</li>
+     * </ul>
+     *
+     * @return - Returns the aggregated ModuleHealth.
+     * @since 1.8
+     */
+    public ModuleHealth getHealth() {
+        if (healthCounts.get(ModuleHealth.STARTING.ordinal()) > 0)
+            return ModuleHealth.STARTING;
+
+        if (healthCounts.get(ModuleHealth.DEGRADED.ordinal()) > 0 || healthCounts.get(ModuleHealth.DOWN.ordinal()) > 0)
+            return ModuleHealth.DEGRADED;
+
+        if (healthCounts.get(ModuleHealth.READY.ordinal()) > 0)
+            return ModuleHealth.READY;
+
+        return ModuleHealth.UNKNOWN;
+    }
+
+    /**
+     * @param health - A ModuleHealth.
+     * @return - Returns how many modules of this source currently have this health.
+     */
+    public int getHealthCount(ModuleHealth health) {
+        return healthCounts.get(health.ordinal());
+    }
+
+    /**
+     * (Protected, Internal API) - Keep the aggregated health up to date, called while holding the source lock.
+     */
+    protected synchronized void onHealthChanged(ModularModule module, ModuleHealth oldHealth, ModuleHealth newHealth) {
+        if (moduleMap.get(module.getUuid()) != module)
+            return;
+
+        healthCounts.decrementAndGet(oldHealth.ordinal());
+        healthCounts.incrementAndGet(newHealth.ordinal());
+    }
+
+    /**
+     * Get the errors of the module files loading : unreadable or untrusted files, missing classes,
+     * rejected registrations...
+     *
+     * @return - Returns the load errors, in the loading order.
+     * @since 1.8
+     */
+    public List<DiagnosticRecord> getLoadErrors() {
+        return Collections.unmodifiableList(loadErrors);
+    }
+
+    /**
+     * @return - Returns the Diagnostics collecting every error of this source.
+     * @since 1.8
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
     public Map<String, ModularModule> getUnmodifiableModuleMap() {
         return Collections.unmodifiableMap(moduleMap);
     }
 
     protected Map<String, ModularModule> getModuleMap() {
-        return moduleMap;
+        return Collections.unmodifiableMap(moduleMap);
     }
 
     public ModuleManager getModuleManager() {
@@ -304,4 +1077,8 @@ public class ModularSource {
     public String getUuid() {
         return uuid;
     }
+
+    private record LazyModule(ModuleManifest manifest, ModuleClassLoader classLoader,
+                              Map<String, ModuleFactory> factories) {
+    }
 }
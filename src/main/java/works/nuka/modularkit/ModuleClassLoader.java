@@ -0,0 +1,99 @@
+package works.nuka.modularkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ModuleClassLoader - The class loader of one module file.
+ * <p>
+ * While the recording is enabled (CDS training), every class defined by a ModuleClassLoader is kept
+ * in a global list, in loading order. The list pins the class loaders, clear it after the recording.
+ * <p>
+ * A verified module file is loaded from its private snapshot (see JarVerifier.snapshot()), deleted on close.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public class ModuleClassLoader extends URLClassLoader {
+
+    private static final List<Class<?>> recordedClasses = Collections.synchronizedList(new ArrayList<>());
+    private static volatile boolean recording;
+
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    private final File moduleFile;
+    private final File loadedFile;
+
+    public ModuleClassLoader(File moduleFile, ClassLoader parent) throws MalformedURLException {
+        this(moduleFile, moduleFile, parent);
+    }
+
+    /**
+     * @param moduleFile - The module file.
+     * @param loadedFile - The file really loaded : the module file, or its verified snapshot.
+     * @param parent     - The parent class loader.
+     */
+    public ModuleClassLoader(File moduleFile, File loadedFile, ClassLoader parent) throws MalformedURLException {
+        super("Mod_" + moduleFile.getName(), new URL[]{loadedFile.toURI().toURL()}, parent);
+        this.moduleFile = moduleFile;
+        this.loadedFile = loadedFile;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        Class<?> c = super.findClass(name);
+        if (recording)
+            recordedClasses.add(c);
+        return c;
+    }
+
+    public File getModuleFile() {
+        return moduleFile;
+    }
+
+    public File getLoadedFile() {
+        return loadedFile;
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (!loadedFile.equals(moduleFile))
+            Files.deleteIfExists(loadedFile.toPath()); // The snapshot is only read by this loader.
+    }
+
+    /**
+     * Enable or disable the recording of the loaded classes.
+     *
+     * @param enabled - true to record the classes defined by every ModuleClassLoader.
+     */
+    public static void setRecording(boolean enabled) {
+        recording = enabled;
+    }
+
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * @return - Returns a copy of the recorded classes, in loading order.
+     */
+    public static List<Class<?>> getRecordedClasses() {
+        synchronized (recordedClasses) {
+            return new ArrayList<>(recordedClasses);
+        }
+    }
+
+    public static void clearRecordedClasses() {
+        recordedClasses.clear();
+    }
+}
@@ -0,0 +1,134 @@
+package works.nuka.modularkit;
+
+import works.nuka.modularkit.resources.ExecutionGroup;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ModuleExecutor - The module-scoped executor, every task submitted here is accounted to the module.
+ * <p>
+ * The number of worker threads is bounded by the ResourceQuota of the module, extra tasks are queued.
+ * The executor can be paused by the ResourceGovernor when the module exceeds its quota. The workers are
+ * created by the ExecutionGroup of the module, and wait for the concurrency of the group before each task.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class ModuleExecutor extends ThreadPoolExecutor {
+
+    private final ReentrantLock pauseLock = new ReentrantLock();
+    private final Condition unpaused = pauseLock.newCondition();
+    private final ThreadLocal<Long> taskStart = new ThreadLocal<>();
+    private final ResourceGovernor governor;
+    private final ExecutionGroup group;
+    private volatile boolean paused;
+
+    protected ModuleExecutor(ModularModule module, ResourceGovernor governor, int maxConcurrentTasks,
+                             ExecutionGroup group) {
+        super(maxConcurrentTasks, maxConcurrentTasks, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new WorkerFactory(module, governor, group));
+        this.governor = governor;
+        this.group = group;
+        // The latency critical workers stay alive while the module runs.
+        allowCoreThreadTimeOut(group != ExecutionGroup.LATENCY_CRITICAL);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        pauseLock.lock();
+        try {
+            while (paused)
+                unpaused.await();
+        } catch (InterruptedException ie) {
+            t.interrupt();
+        } finally {
+            pauseLock.unlock();
+        }
+
+        taskStart.set(governor.beforeTask(group));
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        governor.afterTask(group, taskStart.get());
+    }
+
+    /**
+     * (Protected, Internal API) - Hold every new task until resume() is called.
+     */
+    protected void pause() {
+        pauseLock.lock();
+        try {
+            paused = true;
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    /**
+     * (Protected, Internal API) - Release the tasks held by pause().
+     */
+    protected void resume() {
+        pauseLock.lock();
+        try {
+            paused = false;
+            unpaused.signalAll();
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public ExecutionGroup getExecutionGroup() {
+        return group;
+    }
+
+    protected void setMaxConcurrentTasks(int maxConcurrentTasks) {
+        if (maxConcurrentTasks > getMaximumPoolSize()) {
+            setMaximumPoolSize(maxConcurrentTasks);
+            setCorePoolSize(maxConcurrentTasks);
+        } else {
+            setCorePoolSize(maxConcurrentTasks);
+            setMaximumPoolSize(maxConcurrentTasks);
+        }
+    }
+
+    // Thread naming conventions : Mod_$name_$uuid-task-$n
+    private static class WorkerFactory implements ThreadFactory {
+        private final ModularModule module;
+        private final ResourceGovernor governor;
+        private final ExecutionGroup group;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private WorkerFactory(ModularModule module, ResourceGovernor governor, ExecutionGroup group) {
+            this.module = module;
+            this.governor = governor;
+            this.group = group;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread worker = group.newThread(() -> {
+                try {
+                    r.run();
+                } finally {
+                    governor.retireThread(module, Thread.currentThread());
+                }
+            }, "Mod_" + module.getModuleName() + "_" + module.getUuid() + "-task-" + counter.incrementAndGet());
+            worker.setDaemon(true);
+            governor.registerThread(module, worker);
+            return worker;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package works.nuka.modularkit;
+
+/**
+ * ModuleFactory - A reflection-free factory and descriptor of a module.
+ * <p>
+ * Implementations are generated at build time by the ModuleDescriptorProcessor for every class
+ * annotated with {@link works.nuka.modularkit.processor.ModuleDescriptor}, and registered in
+ * META-INF/services. The ModularSource directory loader uses them instead of reflection when present : the
+ * module class is neither looked up by name nor constructed reflectively. Only the factory itself is created
+ * by the ServiceLoader, through its public no-arg constructor.
+ *
+ * @since 1.8
+ */
+public interface ModuleFactory {
+
+    /**
+     * Create a new instance of the module.
+     *
+     * @return - Returns the new module.
+     * @throws Exception - Anything thrown by the module constructor.
+     */
+    ModularModule newInstance() throws Exception;
+
+    /**
+     * @return - Returns the binary name of the module class.
+     */
+    String getModuleClassName();
+
+    /**
+     * @return - Returns the declared uuid, or an empty string if not declared.
+     */
+    String getUuid();
+
+    /**
+     * @return - Returns the declared module name, or an empty string if not declared.
+     */
+    String getModuleName();
+
+    /**
+     * @return - Returns the declared author, or an empty string if not declared.
+     */
+    String getAuthor();
+
+    /**
+     * @return - Returns the declared version, or an empty string if not declared.
+     */
+    String getVersion();
+}
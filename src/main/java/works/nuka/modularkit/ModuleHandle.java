@@ -0,0 +1,47 @@
+package works.nuka.modularkit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ModuleHandle - A stable reference on the current instance of a module uuid.
+ * <p>
+ * Keep a handle instead of the module itself : when the module is upgraded, the handle switches
+ * atomically to the new version and the old instance can be garbage collected with its class loader.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class ModuleHandle {
+
+    private final String uuid;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile ModularModule module;
+
+    ModuleHandle(String uuid, ModularModule module) {
+        this.uuid = uuid;
+        this.module = module;
+    }
+
+    /**
+     * @return - Returns the current instance of the module, or null if the module was unregistered.
+     */
+    public ModularModule get() {
+        return module;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    /**
+     * @return - Returns how many times the module instance was switched.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    void swap(ModularModule newModule) {
+        module = newModule;
+        generation.incrementAndGet();
+    }
+}
@@ -0,0 +1,105 @@
+package works.nuka.modularkit;
+
+import works.nuka.modularkit.events.ModuleStatus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ModuleLifecycle - The status state machine of a module.
+ * <p>
+ * The status only changes by compare-and-set along the legal transitions of ModuleStatus, so two threads
+ * can never both stop (or start) the same module. The waiters wait on a Condition : a transition signals all of
+ * them and each one checks the status again. Without waiter, a transition takes no lock.
+ */
+final class ModuleLifecycle {
+
+    private final AtomicReference<ModuleStatus> status;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    ModuleLifecycle(ModuleStatus initial) {
+        status = new AtomicReference<>(initial);
+    }
+
+    ModuleStatus get() {
+        return status.get();
+    }
+
+    /**
+     * @return - Returns true if the status was "from" and is now "to".
+     * @throws IllegalStateException - If the transition is not legal.
+     */
+    boolean transition(ModuleStatus from, ModuleStatus to) {
+        if (!from.canTransitionTo(to))
+            throw new IllegalStateException("Illegal module status transition : " + from + " -> " + to);
+
+        if (!status.compareAndSet(from, to))
+            return false;
+
+        signalAll();
+        return true;
+    }
+
+    /**
+     * Move to a status from the current one, whatever it is.
+     *
+     * @throws IllegalStateException - If the transition from the current status is not legal.
+     */
+    void moveTo(ModuleStatus to) {
+        while (true) {
+            ModuleStatus current = status.get();
+            if (current == to)
+                return;
+            if (transition(current, to))
+                return;
+        }
+    }
+
+    boolean await(ModuleStatus expected, long timeout, TimeUnit unit) throws InterruptedException {
+        if (status.get() == expected)
+            return true;
+
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            // Counted before the status is checked again : a transition made after it sees the waiter.
+            waiters.incrementAndGet();
+            try {
+                while (status.get() != expected) {
+                    if (remaining <= 0)
+                        return false;
+                    remaining = changed.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return - Returns the number of threads waiting for a status.
+     */
+    int getWaiterCount() {
+        return waiters.get();
+    }
+
+    private void signalAll() {
+        if (waiters.get() == 0)
+            return;
+
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,15 +1,52 @@
 package works.nuka.modularkit;
 
+import works.nuka.modularkit.diagnostics.DiagnosticPhase;
+import works.nuka.modularkit.diagnostics.Diagnostics;
+import works.nuka.modularkit.events.ModuleHealth;
 import works.nuka.modularkit.events.ModuleStatus;
 import works.nuka.modularkit.ex.*;
+import works.nuka.modularkit.isolation.ChildJvm;
+import works.nuka.modularkit.isolation.ChildJvmPool;
+import works.nuka.modularkit.resources.ExecutionGroup;
+import works.nuka.modularkit.resources.ExecutionGroupState;
+import works.nuka.modularkit.resources.QuotaState;
+import works.nuka.modularkit.resources.ResourceQuota;
 
 import java.util.*;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings({"UnusedReturnValue", "unused"})
 
 public class ModuleManager {
+    // The health probes run on a framework thread : no task quota, no wait behind the execution group limits.
+    private static final ScheduledThreadPoolExecutor HEALTH_PROBER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread prober = new Thread(r, "ModularKit-Health");
+        prober.setDaemon(true);
+        return prober;
+    });
+
+    static {
+        HEALTH_PROBER.setRemoveOnCancelPolicy(true); // A cancelled probe must not retain its module.
+    }
+
     private final ModularSource modSource;
-    private final Map<String, ArrayList<ModularModule>> modulesDependencies = new HashMap<>();
+    // Read by the run threads while the sources register and upgrade modules : copy-on-write lists.
+    private final ConcurrentMap<String, List<ModularModule>> modulesDependencies = new ConcurrentHashMap<>();
+    private final Object governorLock = new Object();
+    private volatile ResourceGovernor resourceGovernor; // Created on first use : "this" cannot escape the constructor.
+    private final Map<ModularModule, ModuleScheduler> schedulers = new ConcurrentHashMap<>(); // Keyed by instance.
+    private final Map<ModularModule, ScheduledFuture<?>> healthProbes = new ConcurrentHashMap<>();
+    private volatile Duration healthCheckInterval = Duration.ofSeconds(1);
+    private volatile Duration readinessTimeout = Duration.ofSeconds(30);
+    private final Map<ModularModule, ChildJvmPool> isolation = new ConcurrentHashMap<>();
+    private final Set<ModularModule> isolatedRuns = ConcurrentHashMap.newKeySet(); // Started in a child JVM.
+    private final ConcurrentMap<ModularModule, ChildJvm> children = new ConcurrentHashMap<>();
 
     /**
      * The ModuleManager - Manage your Modules !
@@ -30,19 +67,17 @@ public class ModuleManager {
      * Run the Module
      *
      * @param module - Give the Module needed to run.
-     * @return Return true if the runModule operation is successful.
+     * @return Return true if the runModule operation is successful, false if the module is already running.
      * @throws ModRegisterEx - Return a ModRegisterEx if Module Registration fails.
      * @since 1.0
      */
 
     public synchronized boolean runModule(ModularModule module, Runnable onComplete) throws ModRegisterEx {
-        HashMap<String, ModularModule> runMap = (HashMap<String, ModularModule>) modSource.getModuleMap();
+        Map<String, ModularModule> runMap = modSource.getModuleMap();
         if (!runMap.isEmpty()) {
             if (runMap.containsKey(module.getUuid())) {
-                Thread runThread = getRunThread(module);
-                // Starting the module...
-                module.setModuleStatus(ModuleStatus.RUNNING); // Force RUNNING status
-                runThread.start();
+                if (!startModule(module))
+                    return false;
                 if (onComplete != null) {
                     onComplete.run();
                 }
@@ -53,22 +88,157 @@ public class ModuleManager {
             throw new ModRegisterEx("Module not found :/");
     }
 
+    /**
+     * (Protected, Internal API) - Start a module thread, without the registration checks (used by the upgrades).
+     *
+     * @return - Returns false if the module is already running or stopping.
+     */
+    protected boolean startModule(ModularModule module) {
+        if (!module.transitionStatus(ModuleStatus.STOPPED, ModuleStatus.RUNNING)
+                && !module.transitionStatus(ModuleStatus.LOADED, ModuleStatus.RUNNING))
+            return false;
+
+        // Starting the module...
+        module.setHealth(ModuleHealth.STARTING);
+        ChildJvmPool pool = isolation.get(module);
+        if (pool != null) {
+            isolatedRuns.add(module);
+            getIsolatedRunThread(module, pool).start();
+        } else
+            getRunThread(module).start();
+        return true;
+    }
+
     private Thread getRunThread(ModularModule module) {
-        Thread runThread = new Thread(module::exec);
-        runThread.setName("Mod_" + module.getModuleName() + "_" + module.getUuid());
-        return runThread;
+        return getResourceGovernor().getExecutionGroup(module).newThread(() -> {
+            if (!awaitDependencies(module))
+                return;
+
+            // The probes only start with the module, not while it waits for its dependencies.
+            scheduleHealthProbes(module);
+            module.exec();
+        }, "Mod_" + module.getModuleName() + "_" + module.getUuid());
     }
 
+    private void scheduleHealthProbes(ModularModule module) {
+        long interval = healthCheckInterval.toMillis();
+        ScheduledFuture<?> previous = healthProbes.put(module, HEALTH_PROBER.scheduleAtFixedRate(module::probeHealth,
+                interval, interval, TimeUnit.MILLISECONDS));
+        if (previous != null)
+            previous.cancel(false);
+        if (module.getModuleStatus() != ModuleStatus.RUNNING)
+            cancelHealthProbes(module); // Stopped while scheduling.
+    }
+
+    private void cancelHealthProbes(ModularModule module) {
+        ScheduledFuture<?> probes = healthProbes.remove(module);
+        if (probes != null)
+            probes.cancel(false);
+    }
+
+    /**
+     * The run thread of an isolated module : the module runs in a child JVM, the host instance is never started.
+     * The child probes the health of its module and forwards the changes.
+     */
+    private Thread getIsolatedRunThread(ModularModule module, ChildJvmPool pool) {
+        return getResourceGovernor().getExecutionGroup(module).newThread(() -> {
+            if (!awaitDependencies(module))
+                return;
+
+            ChildJvm child = null;
+            try {
+                child = pool.acquire();
+                children.put(module, child);
+                if (!isolatedRuns.contains(module)) {
+                    // Stopped while acquiring the child.
+                    if (children.remove(module, child))
+                        child.shutdown();
+                    return;
+                }
+
+                child.load(module, modSource.getUuid(), healthCheckInterval, new ChildListener(module, child));
+                child.start();
+            } catch (ModRunEx e) {
+                if (isolatedRuns.contains(module))
+                    abortIsolated(module, child, DiagnosticPhase.START, e);
+            }
+        }, "Mod_" + module.getModuleName() + "_" + module.getUuid());
+    }
+
+    /**
+     * The child JVM of an isolated module failed or crashed : the host is untouched, the module is marked DOWN
+     * and STOPPED so it can be started again.
+     */
+    private void abortIsolated(ModularModule module, ChildJvm child, DiagnosticPhase phase, ModRunEx error) {
+        if (child != null && !children.remove(module, child))
+            return; // Already stopped.
+
+        isolatedRuns.remove(module);
+        if (child != null)
+            child.shutdown();
+
+        getDiagnostics().report(phase, module.getUuid(), error);
+        module.setHealth(ModuleHealth.DOWN);
+        if (module.transitionStatus(ModuleStatus.RUNNING, ModuleStatus.STOPPING))
+            module.transitionStatus(ModuleStatus.STOPPING, ModuleStatus.STOPPED);
+    }
+
+    /**
+     * Gate the start of a module on the readiness of its dependencies. Only the dependencies registered
+     * in a ModularSource are awaited, the others are never started by the framework.
+     *
+     * @return - Returns true if the module can start.
+     */
+    private boolean awaitDependencies(ModularModule module) {
+        List<ModularModule> dependencies = modulesDependencies.get(module.getUuid());
+        if (dependencies == null)
+            return true;
+
+        try {
+            for (ModularModule dependency : dependencies) {
+                if (!dependency.isRegistered())
+                    continue;
+
+                if (!dependency.awaitHealth(ModuleHealth.READY, readinessTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                    throw new ModRunEx("Dependency " + dependency.getUuid() + " of " + module.getUuid()
+                            + " is not ready !");
+
+                if (module.getModuleStatus() != ModuleStatus.RUNNING)
+                    return false; // Stopped while waiting.
+            }
+        } catch (ModRunEx e) {
+            getDiagnostics().report(DiagnosticPhase.START, module.getUuid(), e);
+            module.setHealth(ModuleHealth.DOWN);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Run the Module
+     *
+     * @param uuid - Give the Module-UuID needed to run.
+     * @throws ModRunEx - Return a ModRunEx if the module is not found, the cause is the uuid or registration error.
+     * @since 1.0
+     */
+
     public void runModule(String uuid, Runnable onComplete) throws ModRunEx {
         try {
             ModularModule mod = findModuleByUuiD(uuid);
+            if (mod == null)
+                mod = modSource.activateLazyModule(uuid); // A lazy module is instantiated by its first run.
             if (mod == null)
                 throw new ModRunEx("Module not found !");
 
             runModule(mod, onComplete);
 
         } catch (ModUuidEx | ModRegisterEx e) {
-            e.printStackTrace();
+            getDiagnostics().report(DiagnosticPhase.START, uuid, e);
+            throw new ModRunEx("Cannot run the module " + uuid + " : " + e.getMessage(), e);
         }
     }
 
@@ -82,13 +252,32 @@ public class ModuleManager {
      */
 
     public void stopModule(ModularModule module, @Deprecated boolean forceStop, Runnable onComplete) throws ModRunEx {
-        if (module.getModuleStatus() == ModuleStatus.RUNNING) {
-            module.setModuleStatus(ModuleStatus.STOPPING);
-            module.stop();
-            if (forceStop)
-                module.kill();
+        // Only one caller wins the RUNNING -> STOPPING transition, the module is stopped once.
+        boolean stopping = module.transitionStatus(ModuleStatus.RUNNING, ModuleStatus.STOPPING);
+        cancelHealthProbes(module);
 
-            module.setModuleStatus(ModuleStatus.STOPPED);
+        try {
+            if (stopping) {
+                if (isolatedRuns.remove(module))
+                    stopIsolated(module, forceStop);
+                else {
+                    module.stop();
+                    if (forceStop)
+                        module.kill();
+                }
+            }
+        } finally {
+            ModuleScheduler scheduler = schedulers.get(module);
+            if (scheduler != null)
+                scheduler.cancelAll();
+            getResourceGovernor().onStop(module);
+
+            // Published while still STOPPING : nothing of the module can change its health anymore, and a
+            // concurrent runModule() can only publish STARTING after the STOPPED transition.
+            if (stopping) {
+                module.setHealth(ModuleHealth.UNKNOWN);
+                module.transitionStatus(ModuleStatus.STOPPING, ModuleStatus.STOPPED);
+            }
         }
 
         if (onComplete != null) {
@@ -96,6 +285,18 @@ public class ModuleManager {
         }
     }
 
+    private void stopIsolated(ModularModule module, boolean forceStop) throws ModRunEx {
+        ChildJvm child = children.remove(module);
+        if (child == null)
+            return; // Still starting, the run thread shuts the child down.
+
+        try {
+            child.stop(forceStop);
+        } finally {
+            child.shutdown();
+        }
+    }
+
     public void stopModule(String uuid, @Deprecated boolean forceStop, Runnable onComplete) throws ModRunEx {
         try {
             ModularModule mod = findModuleByUuiD(uuid);
@@ -104,7 +305,8 @@ public class ModuleManager {
 
             stopModule(mod, forceStop, onComplete);
         } catch (ModUuidEx e) {
-            e.printStackTrace();
+            getDiagnostics().report(DiagnosticPhase.STOP, uuid, e);
+            throw new ModRunEx("Cannot stop the module " + uuid + " : " + e.getMessage(), e);
         }
     }
 
@@ -118,12 +320,10 @@ public class ModuleManager {
      */
 
     public ModularModule findModuleByUuiD(String uuid) throws ModUuidEx {
-        if (uuid.length() == 8) {
-            if (modSource.getModuleMap().containsKey(uuid))
-                return modSource.getModuleMap().get(uuid);
-        } else
+        if (uuid.length() != 8)
             throw new ModUuidEx("The uuid is incorrect !");
-        return null;
+
+        return modSource.getModuleMap().get(uuid); // Never instantiates a lazy module.
     }
 
     /**
@@ -134,16 +334,257 @@ public class ModuleManager {
      */
 
     public void setDepends(ModularModule module, ModularModule... modDeps) throws ModSourceEx {
-        if (modulesDependencies.containsKey(module.getUuid())) {
+        if (modulesDependencies.putIfAbsent(module.getUuid(), new CopyOnWriteArrayList<>(modDeps)) != null)
             throw new ModSourceEx("Cant update setDepends for... TODO");
-        } else {
-            modulesDependencies.put(module.getUuid(), new ArrayList<>(List.of(modDeps)));
-        }
+    }
+
+    /**
+     * (Protected, Internal API) - Check if the dependencies of a module uuid are already set.
+     */
+    protected boolean hasDepends(ModularModule module) {
+        return modulesDependencies.containsKey(module.getUuid());
+    }
+
+    /**
+     * (Protected, Internal API) - Replace the dependencies of a module uuid, used when a new version
+     * of the module takes over.
+     */
+    protected void replaceDepends(ModularModule module, ModularModule... modDeps) {
+        if (modDeps == null || modDeps.length == 0)
+            modulesDependencies.remove(module.getUuid());
+        else
+            modulesDependencies.put(module.getUuid(), new CopyOnWriteArrayList<>(modDeps));
+    }
+
+    /**
+     * (Protected, Internal API) - Point the dependencies on the old version of a module to its new version,
+     * the dependents would retain the old version and await its readiness.
+     */
+    protected void replaceDependency(ModularModule oldModule, ModularModule newModule) {
+        modulesDependencies.replaceAll((uuid, dependencies) -> {
+            if (!dependencies.contains(oldModule))
+                return dependencies;
+
+            List<ModularModule> replaced = new ArrayList<>(dependencies);
+            replaced.replaceAll(dependency -> dependency == oldModule ? newModule : dependency);
+            return new CopyOnWriteArrayList<>(replaced);
+        });
+    }
+
+    /**
+     * (Protected, Internal API) - Get the current dependencies of a module uuid, null if none.
+     */
+    protected List<ModularModule> snapshotDepends(ModularModule module) {
+        return modulesDependencies.get(module.getUuid()); // Never modified in place.
     }
 
     public List<ModularModule> getDepends(ModularModule module) throws ModSourceEx {
-        ArrayList<ModularModule> modules = modulesDependencies.get(module.getUuid());
+        List<ModularModule> modules = modulesDependencies.get(module.getUuid());
         if (modules != null) return Collections.unmodifiableList(modules);
         else throw new ModSourceEx("Module not found");
     }
+
+    /**
+     * Set the resource budget of a module (max concurrent tasks, CPU time and allocated bytes).
+     *
+     * @param module - Give the Module Object to limit.
+     * @param quota  - The ResourceQuota of the module.
+     * @since 1.8
+     */
+
+    public void setQuota(ModularModule module, ResourceQuota quota) {
+        getResourceGovernor().setQuota(module, quota);
+    }
+
+    /**
+     * Get the quota state of a module.
+     *
+     * @param module - Give the Module Object.
+     * @return - Returns a QuotaState snapshot of the module.
+     * @since 1.8
+     */
+
+    public QuotaState getQuotaState(ModularModule module) {
+        return getResourceGovernor().getQuotaState(module);
+    }
+
+    /**
+     * Set the execution group of a module : the priority and the kind of its threads, and the concurrency
+     * its tasks share with the other modules of the group.
+     *
+     * @param module - Give the Module Object.
+     * @param group  - The ExecutionGroup, applied to the next start of the module.
+     * @since 1.8
+     */
+
+    public void setExecutionGroup(ModularModule module, ExecutionGroup group) {
+        getResourceGovernor().setExecutionGroup(module, group);
+    }
+
+    public ExecutionGroup getExecutionGroup(ModularModule module) {
+        return getResourceGovernor().getExecutionGroup(module);
+    }
+
+    /**
+     * Get the state of an execution group : queue depth, running tasks and utilisation.
+     *
+     * @param group - The ExecutionGroup.
+     * @return - Returns an ExecutionGroupState snapshot of the group.
+     * @since 1.8
+     */
+
+    public ExecutionGroupState getExecutionGroupState(ExecutionGroup group) {
+        return getResourceGovernor().getExecutionGroupState(group);
+    }
+
+    /**
+     * Set how often the checkHealth() probe of the running modules is called.
+     *
+     * @param interval - The probe interval, applied to the next started modules.
+     * @since 1.8
+     */
+
+    public void setHealthCheckInterval(Duration interval) {
+        if (interval == null || interval.toMillis() <= 0)
+            throw new IllegalArgumentException("The health check interval must be positive !");
+        healthCheckInterval = interval;
+    }
+
+    public Duration getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    /**
+     * Set how long a module waits for the readiness of its dependencies before giving up (health DOWN).
+     *
+     * @param timeout - The readiness timeout.
+     * @since 1.8
+     */
+
+    public void setReadinessTimeout(Duration timeout) {
+        if (timeout == null || timeout.isNegative())
+            throw new IllegalArgumentException("The readiness timeout cannot be negative !");
+        readinessTimeout = timeout;
+    }
+
+    public Duration getReadinessTimeout() {
+        return readinessTimeout;
+    }
+
+    /**
+     * Run a module in a child JVM of a pool, instead of this JVM. A crash of the child (exit, OOM, native crash...)
+     * only marks the module DOWN and STOPPED, and each run gets a fresh child.
+     * <p>
+     * The module class is instantiated again in the child : it needs a public no-arg constructor, and only its
+     * health crosses the process boundary.
+     *
+     * @param module - Give the Module Object to isolate.
+     * @param pool   - The ChildJvmPool, or null to run the module in this JVM. Applied to the next start.
+     * @since 1.8
+     */
+
+    public void setIsolation(ModularModule module, ChildJvmPool pool) {
+        if (pool != null)
+            isolation.put(module, pool);
+        else
+            isolation.remove(module);
+    }
+
+    public boolean isIsolated(ModularModule module) {
+        return isolation.containsKey(module);
+    }
+
+    /**
+     * @return - Returns the ChildJvmPool of an isolated module, null if the module runs in this JVM.
+     */
+    public ChildJvmPool getIsolation(ModularModule module) {
+        return isolation.get(module);
+    }
+
+    /**
+     * @return - Returns the child JVM running the module, null if the module doesn't run in a child JVM.
+     */
+    public ChildJvm getChildJvm(ModularModule module) {
+        return children.get(module);
+    }
+
+    /**
+     * @return - Returns the Diagnostics of the ModularSource.
+     */
+    public Diagnostics getDiagnostics() {
+        return modSource.getDiagnostics();
+    }
+
+    public ResourceGovernor getResourceGovernor() {
+        ResourceGovernor governor = resourceGovernor;
+        if (governor == null) {
+            synchronized (governorLock) {
+                governor = resourceGovernor;
+                if (governor == null)
+                    resourceGovernor = governor = new ResourceGovernor(this);
+            }
+        }
+        return governor;
+    }
+
+    /**
+     * (Protected, Internal API) - Get or create the ModuleScheduler of a module.
+     */
+    protected ModuleScheduler getScheduler(ModularModule module) {
+        return schedulers.computeIfAbsent(module, k -> new ModuleScheduler(module, getResourceGovernor()));
+    }
+
+    /**
+     * (Protected, Internal API) - Release the scheduler and resources of an unregistered module.
+     */
+    protected void release(ModularModule module) {
+        cancelHealthProbes(module);
+        ModuleScheduler scheduler = schedulers.remove(module);
+        if (scheduler != null)
+            scheduler.cancelAll();
+
+        ResourceGovernor governor = resourceGovernor;
+        if (governor != null)
+            governor.release(module);
+        isolation.remove(module);
+    }
+
+    /**
+     * (Protected, Internal API) - Release the schedulers and resources of every module.
+     */
+    protected void shutdown() {
+        for (ScheduledFuture<?> probes : healthProbes.values())
+            probes.cancel(false);
+        healthProbes.clear();
+
+        for (ModuleScheduler scheduler : schedulers.values())
+            scheduler.cancelAll();
+        schedulers.clear();
+
+        ResourceGovernor governor = resourceGovernor;
+        if (governor != null)
+            governor.shutdown();
+    }
+
+    private final class ChildListener implements ChildJvm.Listener {
+        private final ModularModule module;
+        private final ChildJvm child;
+
+        private ChildListener(ModularModule module, ChildJvm child) {
+            this.module = module;
+            this.child = child;
+        }
+
+        @Override
+        public void onHealth(ModuleHealth health) {
+            if (children.get(module) == child)
+                module.setHealth(health);
+        }
+
+        @Override
+        public void onCrash(int exitCode) {
+            abortIsolated(module, child, DiagnosticPhase.RUN, new ModRunEx("The child JVM " + child.getId()
+                    + " of the module " + module.getUuid() + " crashed, exit code " + exitCode + " !"));
+        }
+    }
 }
@@ -0,0 +1,204 @@
+package works.nuka.modularkit;
+
+import works.nuka.modularkit.diagnostics.DiagnosticPhase;
+import works.nuka.modularkit.scheduler.CronExpression;
+import works.nuka.modularkit.scheduler.TimingWheel;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ModuleScheduler - The framework-owned scheduler of a module.
+ * <p>
+ * Every module shares the same TimingWheel thread, the tasks themselves run on the ModuleExecutor of
+ * the module, so they are accounted and throttled by the ResourceGovernor. All the tasks are cancelled
+ * when the module is stopped or unregistered.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings({"UnusedReturnValue", "unused"})
+public class ModuleScheduler {
+
+    private static final TimingWheel WHEEL =
+            new TimingWheel("ModularKit-Scheduler", 10, TimeUnit.MILLISECONDS, 512);
+
+    private final ModularModule module;
+    private final ResourceGovernor governor;
+    private final Set<ScheduledTask> tasks = ConcurrentHashMap.newKeySet();
+
+    protected ModuleScheduler(ModularModule module, ResourceGovernor governor) {
+        this.module = module;
+        this.governor = governor;
+    }
+
+    /**
+     * Run a task once after a delay.
+     *
+     * @param task  - The task to run.
+     * @param delay - The delay before running the task.
+     * @param unit  - The TimeUnit of the delay.
+     * @return - Returns a ScheduledTask handle.
+     */
+    public ScheduledTask schedule(Runnable task, long delay, TimeUnit unit) {
+        ScheduledTask scheduled = new ScheduledTask(task, 0, null);
+        scheduled.arm(unit.toNanos(delay));
+        return scheduled;
+    }
+
+    /**
+     * Run a task periodically at a fixed rate. A run is skipped if the previous one is still running.
+     *
+     * @param task         - The task to run.
+     * @param initialDelay - The delay before the first run.
+     * @param period       - The period between two runs.
+     * @param unit         - The TimeUnit of the delay and period.
+     * @return - Returns a ScheduledTask handle.
+     */
+    public ScheduledTask scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0)
+            throw new IllegalArgumentException("The period must be positive !");
+
+        ScheduledTask scheduled = new ScheduledTask(task, unit.toNanos(period), null);
+        scheduled.arm(unit.toNanos(initialDelay));
+        return scheduled;
+    }
+
+    /**
+     * Run a task each time the cron expression matches (eg : "*&#47;5 * * * *", every 5 minutes).
+     *
+     * @param cron - The cron expression, see CronExpression.
+     * @param task - The task to run.
+     * @return - Returns a ScheduledTask handle.
+     */
+    public ScheduledTask scheduleCron(String cron, Runnable task) {
+        ScheduledTask scheduled = new ScheduledTask(task, 0, CronExpression.parse(cron));
+        scheduled.armCron();
+        return scheduled;
+    }
+
+    /**
+     * Cancel every task of the module.
+     */
+    public void cancelAll() {
+        for (ScheduledTask task : tasks)
+            task.cancel();
+    }
+
+    /**
+     * @return - Returns the number of scheduled tasks not cancelled nor done.
+     */
+    public int getTaskCount() {
+        return tasks.size();
+    }
+
+    /**
+     * A handle on a task of the ModuleScheduler.
+     */
+    public final class ScheduledTask {
+        private final Runnable task;
+        private final long periodNanos;
+        private final CronExpression cron;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile ModuleExecutor lastExecutor;
+        private volatile TimingWheel.Timeout timeout;
+        private volatile boolean cancelled;
+        private long nextRun;
+
+        private ScheduledTask(Runnable task, long periodNanos, CronExpression cron) {
+            if (task == null)
+                throw new IllegalArgumentException("The task cannot be null !");
+
+            this.task = task;
+            this.periodNanos = periodNanos;
+            this.cron = cron;
+            tasks.add(this);
+        }
+
+        private void arm(long delayNanos) {
+            nextRun = System.nanoTime() + delayNanos;
+            timeout = WHEEL.newTimeout(this::fire, delayNanos, TimeUnit.NANOSECONDS);
+            if (cancelled)
+                timeout.cancel();
+        }
+
+        private void armCron() {
+            ZonedDateTime now = ZonedDateTime.now();
+            ZonedDateTime next = cron.next(now);
+            if (next == null) {
+                tasks.remove(this);
+                return;
+            }
+
+            long delay = Duration.between(now, next).toNanos();
+            timeout = WHEEL.newTimeout(this::fire, delay, TimeUnit.NANOSECONDS);
+            if (cancelled)
+                timeout.cancel();
+        }
+
+        // Run on the wheel thread : only re-arm the timeout and hand the task to the executor.
+        private void fire() {
+            if (cancelled)
+                return;
+
+            if (cron != null)
+                armCron();
+            else if (periodNanos > 0) {
+                nextRun += periodNanos;
+                long delay = nextRun - System.nanoTime();
+                timeout = WHEEL.newTimeout(this::fire, Math.max(0, delay), TimeUnit.NANOSECONDS);
+                if (cancelled)
+                    timeout.cancel(); // Cancelled while re-arming.
+            } else
+                tasks.remove(this);
+
+            ModuleExecutor previous = lastExecutor;
+            if (previous != null && previous.isShutdown())
+                running.set(false); // The previous run was dropped with its executor.
+
+            if (!running.compareAndSet(false, true))
+                return; // The previous run is still running (or throttled), skip this one.
+
+            try {
+                ModuleExecutor executor = governor.getExecutor(module);
+                lastExecutor = executor;
+                executor.execute(() -> {
+                    try {
+                        if (!cancelled)
+                            task.run();
+                    } catch (Throwable t) {
+                        governor.getModuleManager().getDiagnostics()
+                                .report(DiagnosticPhase.RUN, module.getUuid(), t);
+                    } finally {
+                        running.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                running.set(false);
+            }
+        }
+
+        /**
+         * Cancel the task, a run already started is not interrupted.
+         */
+        public void cancel() {
+            cancelled = true;
+            TimingWheel.Timeout current = timeout;
+            if (current != null)
+                current.cancel();
+            tasks.remove(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isPeriodic() {
+            return periodNanos > 0 || cron != null;
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package works.nuka.modularkit;
+
+import works.nuka.modularkit.diagnostics.DiagnosticPhase;
+import works.nuka.modularkit.events.ModuleStatus;
+import works.nuka.modularkit.ex.ModRunEx;
+import works.nuka.modularkit.resources.ExecutionGroup;
+import works.nuka.modularkit.resources.ExecutionGroupState;
+import works.nuka.modularkit.resources.QuotaPolicy;
+import works.nuka.modularkit.resources.QuotaState;
+import works.nuka.modularkit.resources.ResourceQuota;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ResourceGovernor - Enforce the per-module ResourceQuota of a ModuleManager.
+ * <p>
+ * The CPU time and the allocated bytes of the module threads (the run thread and the ModuleExecutor
+ * workers) are sampled through the ThreadMXBean by one shared sampler thread. Only the ModuleExecutor
+ * can be throttled, the run thread of a module cannot be paused safely.
+ * <p>
+ * Each module also belongs to an ExecutionGroup, which creates its threads and can limit how many tasks of the
+ * group run at the same time (the BATCH group by default), with its own queue depth and utilisation metrics.
+ * The utilisation is measured over a sliding window (10s by default), running tasks included.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings({"UnusedReturnValue", "unused"})
+public class ResourceGovernor {
+
+    private static final long SAMPLE_INTERVAL_MS = 50;
+    private static final int WINDOW_BUCKETS = 10;
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean ALLOC_BEAN;
+    private static final ScheduledExecutorService SAMPLER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread sampler = new Thread(r, "ModularKit-Governor");
+        sampler.setDaemon(true);
+        return sampler;
+    });
+
+    static {
+        if (THREAD_BEAN.isThreadCpuTimeSupported() && !THREAD_BEAN.isThreadCpuTimeEnabled())
+            THREAD_BEAN.setThreadCpuTimeEnabled(true);
+
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean sunBean
+                && sunBean.isThreadAllocatedMemorySupported()) {
+            if (!sunBean.isThreadAllocatedMemoryEnabled())
+                sunBean.setThreadAllocatedMemoryEnabled(true);
+            ALLOC_BEAN = sunBean;
+        } else
+            ALLOC_BEAN = null;
+    }
+
+    private final ModuleManager moduleManager;
+    private final Map<ModularModule, Account> accounts = new ConcurrentHashMap<>(); // Keyed by instance.
+    private final Map<ExecutionGroup, GroupAccount> groups = new EnumMap<>(ExecutionGroup.class);
+    private volatile long bucketNanos = TimeUnit.SECONDS.toNanos(1); // The utilisation window over WINDOW_BUCKETS.
+    private ScheduledFuture<?> sampling;
+
+    protected ResourceGovernor(ModuleManager moduleManager) {
+        this.moduleManager = moduleManager;
+        for (ExecutionGroup group : ExecutionGroup.values())
+            groups.put(group, new GroupAccount(group == ExecutionGroup.BATCH
+                    ? Math.max(1, Runtime.getRuntime().availableProcessors() / 2) : 0));
+    }
+
+    /**
+     * Set the resource quota of a module, replacing the previous one.
+     *
+     * @param module - The module to limit.
+     * @param quota  - The new quota, use ResourceQuota.unlimited() to remove the limits.
+     */
+    public void setQuota(ModularModule module, ResourceQuota quota) {
+        Account account = account(module);
+        synchronized (account) {
+            account.quota = quota != null ? quota : ResourceQuota.unlimited();
+            if (account.executor != null)
+                account.executor.setMaxConcurrentTasks(concurrencyOf(account.quota));
+            if (account.throttled && !account.quota.isSampled())
+                unthrottle(account);
+        }
+
+        if (account.quota.isSampled())
+            startSampling();
+    }
+
+    public ResourceQuota getQuota(ModularModule module) {
+        Account account = accounts.get(module);
+        return account != null ? account.quota : ResourceQuota.unlimited();
+    }
+
+    /**
+     * Get the current quota state of a module, without calling into the module.
+     *
+     * @param module - The module.
+     * @return - Returns a QuotaState snapshot.
+     */
+    public QuotaState getQuotaState(ModularModule module) {
+        Account account = accounts.get(module);
+        if (account == null)
+            return new QuotaState(module.getUuid(), ResourceQuota.unlimited(), 0, 0, 0, 0, 0, 0, false, 0);
+
+        synchronized (account) {
+            ModuleExecutor executor = account.executor;
+            return new QuotaState(module.getUuid(), account.quota, account.periodCpu, account.periodAlloc,
+                    account.totalCpu, account.totalAlloc,
+                    executor != null ? executor.getActiveCount() : 0,
+                    executor != null ? executor.getQueue().size() : 0,
+                    account.throttled, account.violations);
+        }
+    }
+
+    /**
+     * @return - Returns the QuotaState of every module known by the governor, keyed by module instance
+     * (both versions of a module during an upgrade).
+     */
+    public Map<ModularModule, QuotaState> getQuotaStates() {
+        HashMap<ModularModule, QuotaState> states = new HashMap<>();
+        for (Account account : accounts.values())
+            states.put(account.module, getQuotaState(account.module));
+        return Collections.unmodifiableMap(states);
+    }
+
+    /**
+     * Set the execution group of a module, applied to the threads created from now on : set it before
+     * starting the module.
+     *
+     * @param module - The module.
+     * @param group  - The ExecutionGroup, null for the DEFAULT group.
+     */
+    public void setExecutionGroup(ModularModule module, ExecutionGroup group) {
+        account(module).group = group != null ? group : ExecutionGroup.DEFAULT;
+    }
+
+    public ExecutionGroup getExecutionGroup(ModularModule module) {
+        Account account = accounts.get(module);
+        return account != null ? account.group : ExecutionGroup.DEFAULT;
+    }
+
+    /**
+     * Limit how many tasks of an execution group run at the same time, over every module of the group.
+     * The extra tasks wait in their ModuleExecutor.
+     *
+     * @param group            - The ExecutionGroup.
+     * @param concurrencyLimit - The maximum running tasks, 0 for unlimited (the default, except for the BATCH
+     *                         group limited to half of the processors).
+     */
+    public void setGroupConcurrency(ExecutionGroup group, int concurrencyLimit) {
+        if (concurrencyLimit < 0)
+            throw new IllegalArgumentException("The concurrency limit cannot be negative !");
+
+        GroupAccount account = groups.get(group);
+        account.lock.lock();
+        try {
+            account.limit = concurrencyLimit;
+            account.released.signalAll();
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    /**
+     * Set the sliding window of the utilisation of the execution groups, the measures start again.
+     *
+     * @param window - The window, 10s by default.
+     */
+    public void setUtilisationWindow(Duration window) {
+        long bucket = window.toNanos() / WINDOW_BUCKETS;
+        if (bucket <= 0)
+            throw new IllegalArgumentException("The utilisation window is too short !");
+
+        bucketNanos = bucket;
+        for (GroupAccount account : groups.values()) {
+            account.lock.lock();
+            try {
+                Arrays.fill(account.bucketIds, -1);
+            } finally {
+                account.lock.unlock();
+            }
+        }
+    }
+
+    public Duration getUtilisationWindow() {
+        return Duration.ofNanos(bucketNanos * WINDOW_BUCKETS);
+    }
+
+    /**
+     * Get the current state of an execution group, without calling into the modules.
+     *
+     * @param group - The ExecutionGroup.
+     * @return - Returns an ExecutionGroupState snapshot.
+     */
+    public ExecutionGroupState getExecutionGroupState(ExecutionGroup group) {
+        int modules = 0;
+        int queued = 0;
+        for (Account account : accounts.values()) {
+            if (account.group != group)
+                continue;
+
+            modules++;
+            ModuleExecutor executor = account.executor;
+            if (executor != null)
+                queued += executor.getQueue().size();
+        }
+
+        GroupAccount account = groups.get(group);
+        account.lock.lock();
+        try {
+            int capacity = account.limit > 0 ? account.limit : Runtime.getRuntime().availableProcessors();
+            return new ExecutionGroupState(group, modules, account.limit, account.running, queued + account.waiting,
+                    account.completed.sum(), account.busyNanos.sum(),
+                    Math.min(1.0, windowUtilisation(account) / capacity));
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    /**
+     * @return - Returns the ExecutionGroupState of every execution group.
+     */
+    public Map<ExecutionGroup, ExecutionGroupState> getExecutionGroupStates() {
+        EnumMap<ExecutionGroup, ExecutionGroupState> states = new EnumMap<>(ExecutionGroup.class);
+        for (ExecutionGroup group : ExecutionGroup.values())
+            states.put(group, getExecutionGroupState(group));
+        return Collections.unmodifiableMap(states);
+    }
+
+    /**
+     * The busy time of the group over the full buckets of the window and the current one, the running tasks
+     * included, divided by that time. Must be called while holding the group lock.
+     */
+    private double windowUtilisation(GroupAccount account) {
+        long bucket = bucketNanos;
+        long now = System.nanoTime() - account.createdAt;
+        long current = now / bucket;
+        long from = Math.max(0, (current - WINDOW_BUCKETS + 1) * bucket);
+
+        long busy = 0;
+        for (int i = 0; i < WINDOW_BUCKETS; i++)
+            if (account.bucketIds[i] > current - WINDOW_BUCKETS)
+                busy += account.bucketBusy[i];
+
+        // The running tasks, each one counted from its start or from the window start.
+        long running = (long) account.running * now - account.runningStarts;
+        busy += Math.min(running, (long) account.running * (now - from));
+        return (double) busy / Math.max(1, now - from);
+    }
+
+    /**
+     * Add the busy time of a completed task to the buckets of the window it ran in.
+     * Must be called while holding the group lock.
+     */
+    private void addBusyTime(GroupAccount account, long start, long end) {
+        long bucket = bucketNanos;
+        for (long id = Math.max(start / bucket, end / bucket - WINDOW_BUCKETS + 1); id <= end / bucket; id++) {
+            int slot = (int) (id % WINDOW_BUCKETS);
+            if (account.bucketIds[slot] != id) {
+                account.bucketIds[slot] = id;
+                account.bucketBusy[slot] = 0;
+            }
+            account.bucketBusy[slot] += Math.min(end, (id + 1) * bucket) - Math.max(start, id * bucket);
+        }
+    }
+
+    /**
+     * (Protected, Internal API) - Called by a worker before a task, wait for the concurrency of its group.
+     *
+     * @return - Returns the start time of the task, to give back to afterTask().
+     */
+    protected long beforeTask(ExecutionGroup group) {
+        GroupAccount account = groups.get(group);
+        boolean interrupted = false;
+        long start;
+        account.lock.lock();
+        try {
+            account.waiting++;
+            try {
+                while (account.limit > 0 && account.running >= account.limit)
+                    account.released.await();
+            } catch (InterruptedException e) {
+                interrupted = true; // Shut down : the task runs anyway, like a paused ModuleExecutor.
+            } finally {
+                account.waiting--;
+            }
+            account.running++;
+            start = System.nanoTime();
+            account.runningStarts += start - account.createdAt;
+        } finally {
+            account.lock.unlock();
+        }
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return start;
+    }
+
+    /**
+     * (Protected, Internal API) - Called by a worker after a task started by beforeTask().
+     *
+     * @param start - The start time returned by beforeTask().
+     */
+    protected void afterTask(ExecutionGroup group, long start) {
+        GroupAccount account = groups.get(group);
+        long end = System.nanoTime();
+        account.completed.increment();
+        account.busyNanos.add(end - start);
+        account.lock.lock();
+        try {
+            account.running--;
+            account.runningStarts -= start - account.createdAt;
+            addBusyTime(account, start - account.createdAt, end - account.createdAt);
+            account.released.signal();
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    /**
+     * (Protected, Internal API) - Get or create the ModuleExecutor of a module.
+     */
+    protected ModuleExecutor getExecutor(ModularModule module) {
+        Account account = account(module);
+        synchronized (account) {
+            if (account.executor == null || account.executor.isShutdown()) {
+                account.executor = new ModuleExecutor(module, this, concurrencyOf(account.quota), account.group);
+                if (account.throttled)
+                    account.executor.pause();
+            }
+            return account.executor;
+        }
+    }
+
+    /**
+     * (Protected, Internal API) - Called when a module stops, cancel its pending tasks.
+     */
+    protected void onStop(ModularModule module) {
+        Account account = accounts.get(module);
+        if (account == null)
+            return;
+
+        synchronized (account) {
+            if (account.executor != null) {
+                account.executor.shutdownNow();
+                account.executor = null;
+            }
+        }
+    }
+
+    /**
+     * (Protected, Internal API) - Called when a module is unregistered, forget its account.
+     */
+    protected void release(ModularModule module) {
+        onStop(module);
+        accounts.remove(module);
+    }
+
+    /**
+     * (Protected, Internal API) - Release every account and stop the sampling.
+     */
+    protected synchronized void shutdown() {
+        for (Account account : accounts.values())
+            onStop(account.module);
+        accounts.clear();
+
+        if (sampling != null) {
+            sampling.cancel(false);
+            sampling = null;
+        }
+    }
+
+    protected ModuleManager getModuleManager() {
+        return moduleManager;
+    }
+
+    protected void registerThread(ModularModule module, Thread thread) {
+        account(module).threads.put(thread, new long[]{-1, -1});
+    }
+
+    protected void retireThread(ModularModule module, Thread thread) {
+        Account account = accounts.get(module);
+        if (account == null)
+            return;
+
+        synchronized (account) {
+            sampleThread(account, thread);
+            account.threads.remove(thread);
+        }
+    }
+
+    private Account account(ModularModule module) {
+        return accounts.computeIfAbsent(module, k -> new Account(module));
+    }
+
+    private static int concurrencyOf(ResourceQuota quota) {
+        return quota.hasConcurrencyLimit() ? quota.getMaxConcurrentTasks()
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    private synchronized void startSampling() {
+        if (sampling == null)
+            sampling = SAMPLER.scheduleAtFixedRate(this::sample, SAMPLE_INTERVAL_MS, SAMPLE_INTERVAL_MS,
+                    TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        for (Account account : accounts.values()) {
+            if (!account.quota.isSampled())
+                continue;
+
+            boolean stop = false;
+            synchronized (account) {
+                if (now - account.periodStart >= account.quota.getPeriod().toNanos()) {
+                    account.periodStart = now;
+                    account.periodCpu = 0;
+                    account.periodAlloc = 0;
+                    account.violated = false;
+                    if (account.throttled)
+                        unthrottle(account);
+                }
+
+                Thread runThread = account.module.getModThread();
+                if (runThread != null && runThread.isAlive())
+                    sampleThread(account, runThread);
+
+                for (Thread worker : account.threads.keySet())
+                    if (worker != runThread)
+                        sampleThread(account, worker);
+
+                if (!account.violated && isOverQuota(account)) {
+                    account.violated = true;
+                    account.violations++;
+
+                    if (account.quota.getPolicy() == QuotaPolicy.THROTTLE) {
+                        account.throttled = true;
+                        if (account.executor != null)
+                            account.executor.pause();
+                    } else
+                        stop = account.module.getModuleStatus() == ModuleStatus.RUNNING;
+                }
+            }
+
+            if (stop) // module.stop() is user code, never run it on the sampler thread.
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        moduleManager.stopModule(account.module, false, null);
+                    } catch (ModRunEx e) {
+                        moduleManager.getDiagnostics().report(DiagnosticPhase.STOP, account.module.getUuid(), e);
+                    }
+                });
+        }
+    }
+
+    private static boolean isOverQuota(Account account) {
+        ResourceQuota quota = account.quota;
+        return (quota.getMaxCpuTimeNanos() > 0 && account.periodCpu > quota.getMaxCpuTimeNanos())
+                || (quota.getMaxAllocatedBytes() > 0 && account.periodAlloc > quota.getMaxAllocatedBytes());
+    }
+
+    private static void unthrottle(Account account) {
+        account.throttled = false;
+        if (account.executor != null)
+            account.executor.resume();
+    }
+
+    // Must be called while holding the account lock.
+    private static void sampleThread(Account account, Thread thread) {
+        long id = thread.threadId();
+        long cpu = THREAD_BEAN.getThreadCpuTime(id); // -1 if the thread is dead or virtual.
+        long alloc = ALLOC_BEAN != null ? ALLOC_BEAN.getThreadAllocatedBytes(id) : -1;
+        long[] last = account.threads.computeIfAbsent(thread, k -> new long[]{-1, -1});
+
+        if (cpu >= 0) {
+            long delta = last[0] >= 0 ? cpu - last[0] : cpu;
+            account.periodCpu += delta;
+            account.totalCpu += delta;
+            last[0] = cpu;
+        }
+
+        if (alloc >= 0) {
+            long delta = last[1] >= 0 ? alloc - last[1] : alloc;
+            account.periodAlloc += delta;
+            account.totalAlloc += delta;
+            last[1] = alloc;
+        }
+
+        if (!thread.isAlive())
+            account.threads.remove(thread);
+    }
+
+    private static class Account {
+        private final ModularModule module;
+        private final Map<Thread, long[]> threads = new ConcurrentHashMap<>(); // thread -> {cpu, alloc}
+        private volatile ResourceQuota quota = ResourceQuota.unlimited();
+        private volatile ExecutionGroup group = ExecutionGroup.DEFAULT;
+        private volatile ModuleExecutor executor;
+        private long periodStart = System.nanoTime();
+        private long periodCpu;
+        private long periodAlloc;
+        private long totalCpu;
+        private long totalAlloc;
+        private long violations;
+        private boolean violated;
+        private volatile boolean throttled;
+
+        private Account(ModularModule module) {
+            this.module = module;
+        }
+    }
+
+    private static class GroupAccount {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = lock.newCondition();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final long createdAt = System.nanoTime();
+        private final long[] bucketIds = new long[WINDOW_BUCKETS]; // The window buckets, -1 : empty.
+        private final long[] bucketBusy = new long[WINDOW_BUCKETS];
+        private long runningStarts; // Sum of the start times of the running tasks, since createdAt.
+        private int limit; // 0 : unlimited.
+        private int running;
+        private int waiting;
+
+        private GroupAccount(int limit) {
+            this.limit = limit;
+            Arrays.fill(bucketIds, -1);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package works.nuka.modularkit.cds;
+
+import works.nuka.modularkit.ModularModule;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.ModuleClassLoader;
+import works.nuka.modularkit.diagnostics.DiagnosticPhase;
+import works.nuka.modularkit.ex.ModEx;
+import works.nuka.modularkit.ex.ModRegisterEx;
+import works.nuka.modularkit.ex.ModRunEx;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * CdsTrainer - The AppCDS training mode of ModularKit.
+ * <p>
+ * It runs the ModularSource directory loader (and optionally starts every module) while recording the
+ * classes defined by the ModuleClassLoaders, then writes :
+ * <ul>
+ *     <li>modularkit.classlist : a class list in the JDK format, with the "id / super / interfaces / source"
+ *     attributes needed for the classes of the per-jar class loaders (-XX:SharedClassListFile).</li>
+ *     <li>modularkit-cds.properties : the archive layout, the module jars in loading order with their size
+ *     and modification time. The archive is only valid for this exact layout.</li>
+ * </ul>
+ * Launch the training with -XX:ArchiveClassesAtExit to get a dynamic archive, see the README.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public class CdsTrainer {
+
+    public static final String CLASSLIST_FILE = "modularkit.classlist";
+    public static final String LAYOUT_FILE = "modularkit-cds.properties";
+
+    private final String sourceUuid;
+    private final File moduleDir;
+    private final String fileExtension;
+    private long startDurationMillis = -1;
+
+    /**
+     * @param sourceUuid    - UuID of the ModularSource used for the training.
+     * @param moduleDir     - The module directory, must be the same as in production.
+     * @param fileExtension - The module file extension.
+     */
+    public CdsTrainer(String sourceUuid, File moduleDir, String fileExtension) {
+        this.sourceUuid = sourceUuid;
+        this.moduleDir = moduleDir;
+        this.fileExtension = fileExtension;
+    }
+
+    /**
+     * Also start every module during the training, to record the classes loaded by start().
+     *
+     * @param durationMillis - How long the modules run before being stopped.
+     * @return - Returns this CdsTrainer.
+     */
+    public CdsTrainer startModules(long durationMillis) {
+        this.startDurationMillis = durationMillis;
+        return this;
+    }
+
+    /**
+     * Run the training and write the class list and the layout.
+     *
+     * @param outputDir - Where to write the files.
+     * @return - Returns the recorded classes, in loading order.
+     * @throws ModEx       - If the ModularSource cannot be created.
+     * @throws IOException - If the files cannot be written.
+     */
+    public List<Class<?>> train(File outputDir) throws ModEx, IOException {
+        ModuleClassLoader.clearRecordedClasses();
+        ModuleClassLoader.setRecording(true);
+
+        ModularSource source;
+        List<Class<?>> classes;
+        try {
+            source = new ModularSource(sourceUuid, moduleDir, fileExtension);
+            if (startDurationMillis >= 0)
+                runModules(source);
+        } finally {
+            ModuleClassLoader.setRecording(false);
+            classes = ModuleClassLoader.getRecordedClasses();
+            ModuleClassLoader.clearRecordedClasses(); // The global list would pin the module class loaders.
+        }
+
+        source.destroy(false);
+
+        Files.createDirectories(outputDir.toPath());
+        writeClassList(classes, new File(outputDir, CLASSLIST_FILE));
+        writeLayout(classes, new File(outputDir, LAYOUT_FILE));
+        return classes;
+    }
+
+    private void runModules(ModularSource source) {
+        List<ModularModule> modules = new ArrayList<>(source.getUnmodifiableModuleMap().values());
+
+        for (ModularModule module : modules)
+            try {
+                source.getModuleManager().runModule(module, null);
+            } catch (ModRegisterEx e) {
+                source.getDiagnostics().report(DiagnosticPhase.START, module.getUuid(), e);
+            }
+
+        try {
+            Thread.sleep(startDurationMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (ModularModule module : modules)
+            try {
+                source.getModuleManager().stopModule(module, false, null);
+            } catch (ModRunEx e) {
+                source.getDiagnostics().report(DiagnosticPhase.STOP, module.getUuid(), e);
+            }
+    }
+
+    /**
+     * Write the classes in the JDK class list format. The classes of the ModuleClassLoaders are
+     * "unregistered" classes for the JVM : they need an id, the ids of their super types and their source jar.
+     */
+    private static void writeClassList(List<Class<?>> classes, File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        Map<Class<?>, Integer> ids = new IdentityHashMap<>();
+
+        for (Class<?> c : classes)
+            classId(c, ids, lines);
+
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    private static int classId(Class<?> c, Map<Class<?>, Integer> ids, List<String> lines) {
+        Integer id = ids.get(c);
+        if (id != null)
+            return id;
+
+        StringBuilder line = new StringBuilder(c.getName().replace('.', '/'));
+
+        if (c.getClassLoader() instanceof ModuleClassLoader loader) {
+            Class<?> superClass = c.getSuperclass() != null ? c.getSuperclass() : Object.class;
+            int superId = classId(superClass, ids, lines);
+            List<Integer> interfaceIds = new ArrayList<>();
+            for (Class<?> itf : c.getInterfaces())
+                interfaceIds.add(classId(itf, ids, lines));
+
+            id = ids.size();
+            line.append(" id: ").append(id).append(" super: ").append(superId);
+            if (!interfaceIds.isEmpty()) {
+                line.append(" interfaces:");
+                for (int itfId : interfaceIds)
+                    line.append(' ').append(itfId);
+            }
+            line.append(" source: ").append(loader.getModuleFile().getAbsolutePath());
+        } else {
+            id = ids.size();
+            line.append(" id: ").append(id);
+        }
+
+        ids.put(c, id);
+        lines.add(line.toString());
+        return id;
+    }
+
+    private void writeLayout(List<Class<?>> classes, File file) throws IOException {
+        Set<File> jars = new LinkedHashSet<>();
+        for (Class<?> c : classes)
+            if (c.getClassLoader() instanceof ModuleClassLoader loader)
+                jars.add(loader.getModuleFile().getAbsoluteFile());
+
+        Properties layout = new Properties();
+        layout.setProperty("source.uuid", sourceUuid);
+        layout.setProperty("module.dir", moduleDir.getAbsolutePath());
+        layout.setProperty("module.extension", fileExtension);
+        layout.setProperty("classes", String.valueOf(classes.size()));
+        layout.setProperty("jars", String.valueOf(jars.size()));
+
+        int i = 0;
+        for (File jar : jars) {
+            layout.setProperty("jar." + i + ".path", jar.getPath());
+            layout.setProperty("jar." + i + ".size", String.valueOf(jar.length()));
+            layout.setProperty("jar." + i + ".lastModified", String.valueOf(jar.lastModified()));
+            i++;
+        }
+
+        try (OutputStream out = new FileOutputStream(file)) {
+            layout.store(out, "ModularKit CDS layout, the archive is only valid for these module jars.");
+        }
+    }
+
+    /**
+     * Check that the module jars still match a recorded layout, a CDS archive trained on another
+     * layout would silently ignore the changed jars.
+     *
+     * @param layoutFile - The modularkit-cds.properties file.
+     * @return - Returns the list of the jars which changed, empty if the layout still matches.
+     * @throws IOException - If the layout cannot be read.
+     */
+    public static List<String> verifyLayout(File layoutFile) throws IOException {
+        Properties layout = new Properties();
+        try (var in = Files.newInputStream(layoutFile.toPath())) {
+            layout.load(in);
+        }
+
+        List<String> changed = new ArrayList<>();
+        int jars = Integer.parseInt(layout.getProperty("jars", "0"));
+        for (int i = 0; i < jars; i++) {
+            File jar = new File(layout.getProperty("jar." + i + ".path"));
+            if (!jar.isFile()
+                    || jar.length() != Long.parseLong(layout.getProperty("jar." + i + ".size"))
+                    || jar.lastModified() != Long.parseLong(layout.getProperty("jar." + i + ".lastModified")))
+                changed.add(jar.getPath());
+        }
+
+        return changed;
+    }
+
+    /**
+     * Usage : CdsTrainer &lt;sourceUuid&gt; &lt;moduleDir&gt; &lt;fileExtension&gt; &lt;outputDir&gt; [--start &lt;millis&gt;]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 4 && args.length != 6) {
+            System.err.println("Usage : CdsTrainer <sourceUuid> <moduleDir> <fileExtension> <outputDir> "
+                    + "[--start <millis>]");
+            System.exit(2);
+        }
+
+        CdsTrainer trainer = new CdsTrainer(args[0], new File(args[1]), args[2]);
+        if (args.length == 6 && args[4].equals("--start"))
+            trainer.startModules(Long.parseLong(args[5]));
+
+        File outputDir = new File(args[3]);
+        List<Class<?>> classes = trainer.train(outputDir);
+
+        System.out.println("Recorded " + classes.size() + " module classes into " + outputDir.getAbsolutePath());
+    }
+}
@@ -0,0 +1,107 @@
+package works.nuka.modularkit.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * ClusterMessage - A message between the ClusterNodes.
+ * <ul>
+ *     <li>HEARTBEAT : the node is alive (its lease is renewed) and runs these singleton modules.</li>
+ *     <li>LEAVE : the node leaves the cluster, its modules are placed again without waiting for its lease.</li>
+ * </ul>
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class ClusterMessage {
+
+    public enum Type {
+        HEARTBEAT, LEAVE
+    }
+
+    private final Type type;
+    private final String nodeId;
+    private final long sequence;
+    private final Set<String> runningModules;
+
+    public ClusterMessage(Type type, String nodeId, long sequence, Set<String> runningModules) {
+        this.type = type;
+        this.nodeId = nodeId;
+        this.sequence = sequence;
+        this.runningModules = Set.copyOf(runningModules);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return - Returns the message number of the node, the older messages are ignored.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return - Returns the uuids of the singleton modules running on the node.
+     */
+    public Set<String> getRunningModules() {
+        return runningModules;
+    }
+
+    /**
+     * @return - Returns the binary form of the message.
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + runningModules.size() * 10);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type.ordinal());
+            out.writeUTF(nodeId);
+            out.writeLong(sequence);
+            out.writeInt(runningModules.size());
+            for (String module : runningModules)
+                out.writeUTF(module);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Never thrown by a ByteArrayOutputStream.
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param data - The binary form of a message.
+     * @return - Returns the message.
+     * @throws IOException - If the data is malformed.
+     */
+    public static ClusterMessage decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int type = in.readUnsignedByte();
+            if (type >= Type.values().length)
+                throw new IOException("Unknown message type " + type);
+
+            String nodeId = in.readUTF();
+            long sequence = in.readLong();
+            int count = in.readInt();
+            if (count < 0 || count > data.length)
+                throw new IOException("Malformed message");
+
+            Set<String> modules = new LinkedHashSet<>();
+            for (int i = 0; i < count; i++)
+                modules.add(in.readUTF());
+            return new ClusterMessage(Type.values()[type], nodeId, sequence, modules);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type + "{node=" + nodeId + ", seq=" + sequence + ", running=" + runningModules + '}';
+    }
+}
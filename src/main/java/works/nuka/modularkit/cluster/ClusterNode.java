@@ -0,0 +1,408 @@
+package works.nuka.modularkit.cluster;
+
+import works.nuka.modularkit.ModularModule;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.diagnostics.DiagnosticPhase;
+import works.nuka.modularkit.events.ModuleStatus;
+import works.nuka.modularkit.ex.ModRegisterEx;
+import works.nuka.modularkit.ex.ModRunEx;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ClusterNode - Share the module placement of a ModularSource running on several nodes.
+ * <p>
+ * Every node runs the same ModularSource and declares the same placements. The nodes send heartbeats through
+ * a ClusterTransport, a heartbeat renews the lease of its node and tells which singleton modules the node runs.
+ * <ul>
+ *     <li>An EVERYWHERE module runs on every node.</li>
+ *     <li>A SINGLETON module runs on the live node with the highest rendezvous hash for its uuid, so when a node
+ *     joins or leaves, only its share of the modules moves.</li>
+ * </ul>
+ * A new owner only starts a singleton once the previous owner stopped it (its heartbeat does not list it
+ * anymore) or lost its lease. A joining node waits one lease duration to learn the cluster before starting
+ * any singleton. During a network partition, each side runs the singletons it owns in its own view.
+ * <p>
+ * A node which left keeps a tombstone with the sequence of its LEAVE for a few leases : its late heartbeats are
+ * dropped, only a newer sequence (the node joined again) brings it back.
+ * <p>
+ * The placement is applied with ModuleManager.runModule() / stopModule() on the cluster thread of the node.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings({"UnusedReturnValue", "unused"})
+public class ClusterNode implements AutoCloseable {
+
+    private static final int TOMBSTONE_LEASES = 10; // How long the late messages of a node which left are dropped.
+
+    private final String nodeId;
+    private final ModularSource source;
+    private final ClusterTransport transport;
+    private final Map<String, Placement> placements = new ConcurrentHashMap<>();
+    private final Map<String, Member> members = new ConcurrentHashMap<>(); // The other live nodes.
+    private final Map<String, Departure> departed = new HashMap<>(); // Nodes which left, cluster thread only.
+    private final Set<String> started = ConcurrentHashMap.newKeySet(); // Modules started by this node.
+    private final ScheduledExecutorService executor;
+    private volatile Duration heartbeatInterval = Duration.ofSeconds(1);
+    private volatile Duration leaseDuration = Duration.ofSeconds(3);
+    private volatile boolean running;
+    private ScheduledFuture<?> heartbeat;
+    private long joinedAt;
+    private long sequence; // Cluster thread only.
+
+    /**
+     * @param nodeId    - The unique id of this node in the cluster.
+     * @param source    - The ModularSource shared by the nodes.
+     * @param transport - The ClusterTransport of the node.
+     */
+    public ClusterNode(String nodeId, ModularSource source, ClusterTransport transport) {
+        if (nodeId == null || nodeId.isEmpty())
+            throw new IllegalArgumentException("The node id cannot be empty !");
+        if (source == null || transport == null)
+            throw new IllegalArgumentException("The source and the transport cannot be null !");
+
+        this.nodeId = nodeId;
+        this.source = source;
+        this.transport = transport;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ModularKit-Cluster-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Declare where a module runs, the modules without placement are not managed by the cluster.
+     *
+     * @param moduleUuid - The module uuid.
+     * @param placement  - The Placement of the module.
+     * @return - Returns this ClusterNode.
+     */
+    public ClusterNode setPlacement(String moduleUuid, Placement placement) {
+        placements.put(moduleUuid, placement);
+        if (running)
+            submit(this::reconcile);
+        return this;
+    }
+
+    public Placement getPlacement(String moduleUuid) {
+        return placements.get(moduleUuid);
+    }
+
+    /**
+     * @param interval - How often the heartbeats are sent.
+     * @param lease    - How long a node stays alive without heartbeat, a few intervals.
+     * @return - Returns this ClusterNode.
+     */
+    public ClusterNode setTimings(Duration interval, Duration lease) {
+        if (interval.toMillis() <= 0 || lease.compareTo(interval) <= 0)
+            throw new IllegalArgumentException("The lease must be longer than the heartbeat interval !");
+        if (running)
+            throw new IllegalStateException("The node is already started !");
+
+        heartbeatInterval = interval;
+        leaseDuration = lease;
+        return this;
+    }
+
+    /**
+     * Join the cluster.
+     *
+     * @throws ModRunEx - If the transport cannot start.
+     */
+    public synchronized void start() throws ModRunEx {
+        if (running)
+            return;
+
+        try {
+            transport.start(nodeId, message -> submit(() -> receive(message)));
+        } catch (IOException e) {
+            throw new ModRunEx("Cannot join the cluster : " + e.getMessage(), e);
+        }
+
+        running = true;
+        joinedAt = System.nanoTime();
+        sequence = System.currentTimeMillis() * 1000; // A restarted node must not look late.
+        heartbeat = executor.scheduleAtFixedRate(this::tick, 0, heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leave the cluster : the other nodes are notified and the modules started by this node are stopped.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running)
+            return;
+
+        running = false;
+        heartbeat.cancel(false);
+
+        try {
+            executor.submit(() -> {
+                transport.broadcast(new ClusterMessage(ClusterMessage.Type.LEAVE, nodeId, ++sequence, Set.of()));
+                transport.close();
+
+                for (String uuid : started) {
+                    ModularModule module = source.getUnmodifiableModuleMap().get(uuid);
+                    if (module != null)
+                        stop(module);
+                }
+                started.clear();
+                members.clear();
+                departed.clear();
+            }).get();
+        } catch (Exception e) {
+            source.getDiagnostics().report(DiagnosticPhase.STOP, null, e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return - Returns the ids of the live nodes (this node included), sorted.
+     */
+    public List<String> getMembers() {
+        List<String> alive = new ArrayList<>(members.size() + 1);
+        long now = System.nanoTime();
+        long lease = leaseDuration.toNanos();
+
+        alive.add(nodeId);
+        for (Map.Entry<String, Member> member : members.entrySet())
+            if (now - member.getValue().lastSeen <= lease)
+                alive.add(member.getKey());
+
+        alive.sort(null);
+        return alive;
+    }
+
+    /**
+     * @param moduleUuid - A module uuid.
+     * @return - Returns the node which should run the module if it is a singleton, in the view of this node.
+     */
+    public String getOwner(String moduleUuid) {
+        return selectOwner(moduleUuid, getMembers());
+    }
+
+    /**
+     * @return - Returns the singleton modules running on each live node, as reported by their heartbeats.
+     */
+    public Map<String, Set<String>> getClusterView() {
+        Map<String, Set<String>> view = new HashMap<>();
+        view.put(nodeId, runningSingletons());
+
+        Set<String> alive = new HashSet<>(getMembers());
+        for (Map.Entry<String, Member> member : members.entrySet())
+            if (alive.contains(member.getKey()))
+                view.put(member.getKey(), member.getValue().running);
+        return view;
+    }
+
+    /**
+     * Rendezvous (highest random weight) hashing : every node scores each module, the best score runs it.
+     *
+     * @param moduleUuid - The module uuid.
+     * @param nodeIds    - The candidate nodes.
+     * @return - Returns the selected node, or null without candidate.
+     */
+    public static String selectOwner(String moduleUuid, Collection<String> nodeIds) {
+        String owner = null;
+        long best = 0;
+
+        for (String node : nodeIds) {
+            long score = score(node, moduleUuid);
+            if (owner == null || Long.compareUnsigned(score, best) > 0
+                    || (score == best && node.compareTo(owner) < 0)) {
+                owner = node;
+                best = score;
+            }
+        }
+        return owner;
+    }
+
+    // FNV-1a of "node/module", finalized with the murmur3 mixer.
+    private static long score(String node, String module) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : (node + '/' + module).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // The node is closed.
+        }
+    }
+
+    private void tick() {
+        if (!running)
+            return;
+
+        long now = System.nanoTime();
+        long lease = leaseDuration.toNanos();
+        members.values().removeIf(member -> now - member.lastSeen > lease);
+        departed.values().removeIf(departure -> now - departure.leftAt > TOMBSTONE_LEASES * lease);
+
+        if (!reconcile()) // Otherwise, the heartbeat was sent by reconcile().
+            sendHeartbeat();
+    }
+
+    private void receive(ClusterMessage message) {
+        if (!running || message.getNodeId().equals(nodeId))
+            return;
+
+        Member member = members.get(message.getNodeId());
+        if (member != null && message.getSequence() <= member.sequence)
+            return; // Late message.
+
+        Departure departure = departed.get(message.getNodeId());
+        if (departure != null) {
+            if (message.getSequence() <= departure.sequence)
+                return; // Sent before the node left.
+            departed.remove(message.getNodeId()); // Joined again.
+        }
+
+        if (message.getType() == ClusterMessage.Type.LEAVE) {
+            members.remove(message.getNodeId());
+            departed.put(message.getNodeId(), new Departure(System.nanoTime(), message.getSequence()));
+            reconcile();
+            return;
+        }
+
+        boolean changed = member == null || !member.running.equals(message.getRunningModules());
+        members.put(message.getNodeId(), new Member(System.nanoTime(), message.getSequence(),
+                message.getRunningModules()));
+
+        if (member == null)
+            sendHeartbeat(); // Introduce ourselves to the new node, without waiting for the next tick.
+        if (changed)
+            reconcile();
+    }
+
+    /**
+     * Apply the placement in the current view of the cluster.
+     *
+     * @return - Returns true if a module was started or stopped (the change is then broadcast).
+     */
+    private boolean reconcile() {
+        if (!running)
+            return false;
+
+        List<String> alive = getMembers();
+        boolean joining = System.nanoTime() - joinedAt < leaseDuration.toNanos();
+        Map<String, ModularModule> modules = source.getUnmodifiableModuleMap();
+        boolean changed = false;
+
+        for (Map.Entry<String, Placement> placement : placements.entrySet()) {
+            String uuid = placement.getKey();
+            ModularModule module = modules.get(uuid);
+            if (module == null)
+                continue;
+
+            boolean singleton = placement.getValue() == Placement.SINGLETON;
+            boolean runHere = !singleton || nodeId.equals(selectOwner(uuid, alive));
+            boolean runningHere = module.getModuleStatus() == ModuleStatus.RUNNING;
+
+            if (runHere && !runningHere) {
+                if (singleton && (joining || isRunningElsewhere(uuid)))
+                    continue; // Wait for the cluster view, or for the previous owner to stop.
+
+                changed |= run(module);
+            } else if (!runHere && runningHere)
+                changed |= stop(module);
+        }
+
+        if (changed)
+            sendHeartbeat();
+        return changed;
+    }
+
+    private boolean isRunningElsewhere(String uuid) {
+        long now = System.nanoTime();
+        long lease = leaseDuration.toNanos();
+
+        for (Member member : members.values())
+            if (now - member.lastSeen <= lease && member.running.contains(uuid))
+                return true;
+        return false;
+    }
+
+    private boolean run(ModularModule module) {
+        try {
+            if (!source.getModuleManager().runModule(module, null))
+                return false; // Already running.
+            started.add(module.getUuid());
+            return true;
+        } catch (ModRegisterEx e) {
+            source.getDiagnostics().report(DiagnosticPhase.START, module.getUuid(), e);
+            return false;
+        }
+    }
+
+    private boolean stop(ModularModule module) {
+        try {
+            source.getModuleManager().stopModule(module, false, null);
+            started.remove(module.getUuid());
+            return true;
+        } catch (ModRunEx e) {
+            source.getDiagnostics().report(DiagnosticPhase.STOP, module.getUuid(), e);
+            return false;
+        }
+    }
+
+    private void sendHeartbeat() {
+        transport.broadcast(new ClusterMessage(ClusterMessage.Type.HEARTBEAT, nodeId, ++sequence,
+                runningSingletons()));
+    }
+
+    private Set<String> runningSingletons() {
+        Set<String> runningModules = new HashSet<>();
+        Map<String, ModularModule> modules = source.getUnmodifiableModuleMap();
+
+        for (Map.Entry<String, Placement> placement : placements.entrySet()) {
+            ModularModule module = modules.get(placement.getKey());
+            if (placement.getValue() == Placement.SINGLETON && module != null
+                    && module.getModuleStatus() == ModuleStatus.RUNNING)
+                runningModules.add(placement.getKey());
+        }
+        return runningModules;
+    }
+
+    private record Member(long lastSeen, long sequence, Set<String> running) {
+    }
+
+    private record Departure(long leftAt, long sequence) {
+    }
+}
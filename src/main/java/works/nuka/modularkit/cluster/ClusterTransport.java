@@ -0,0 +1,36 @@
+package works.nuka.modularkit.cluster;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * ClusterTransport - How the ClusterNodes exchange their ClusterMessages.
+ * <p>
+ * The delivery is best effort : the messages can be lost or delayed, the leases cover it.
+ * ClusterMessage.encode() / decode() can be used by the transports which need bytes.
+ *
+ * @since 1.8
+ */
+public interface ClusterTransport {
+
+    /**
+     * Join the cluster.
+     *
+     * @param nodeId   - The id of the local node.
+     * @param receiver - Receives the messages of the other nodes, it never blocks.
+     * @throws IOException - If the transport cannot start.
+     */
+    void start(String nodeId, Consumer<ClusterMessage> receiver) throws IOException;
+
+    /**
+     * Send a message to every other node.
+     *
+     * @param message - The message.
+     */
+    void broadcast(ClusterMessage message);
+
+    /**
+     * Leave the cluster.
+     */
+    void close();
+}
@@ -0,0 +1,71 @@
+package works.nuka.modularkit.cluster;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * InMemoryNetwork - Connect ClusterNodes of the same JVM (tests, single-host setups).
+ * The nodes can be isolated to simulate a network partition.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public class InMemoryNetwork {
+
+    private final Map<String, Consumer<ClusterMessage>> nodes = new ConcurrentHashMap<>();
+    private final Set<String> isolated = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @return - Returns a new ClusterTransport connected to this network.
+     */
+    public ClusterTransport newTransport() {
+        return new ClusterTransport() {
+            private String nodeId;
+
+            @Override
+            public void start(String nodeId, Consumer<ClusterMessage> receiver) {
+                if (nodes.putIfAbsent(nodeId, receiver) != null)
+                    throw new IllegalStateException("The node " + nodeId + " is already connected !");
+                this.nodeId = nodeId;
+            }
+
+            @Override
+            public void broadcast(ClusterMessage message) {
+                if (nodeId == null || isolated.contains(nodeId))
+                    return;
+
+                for (Map.Entry<String, Consumer<ClusterMessage>> node : nodes.entrySet())
+                    if (!node.getKey().equals(nodeId) && !isolated.contains(node.getKey()))
+                        node.getValue().accept(message);
+            }
+
+            @Override
+            public void close() {
+                if (nodeId != null)
+                    nodes.remove(nodeId);
+            }
+        };
+    }
+
+    /**
+     * Cut a node from the others, until heal().
+     *
+     * @param nodeId - The node id.
+     */
+    public void isolate(String nodeId) {
+        isolated.add(nodeId);
+    }
+
+    public void heal(String nodeId) {
+        isolated.remove(nodeId);
+    }
+
+    /**
+     * @return - Returns the ids of the connected nodes.
+     */
+    public Set<String> getNodeIds() {
+        return Set.copyOf(nodes.keySet());
+    }
+}
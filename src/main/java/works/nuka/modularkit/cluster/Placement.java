@@ -0,0 +1,16 @@
+package works.nuka.modularkit.cluster;
+
+/**
+ * Where a module runs in a cluster.
+ */
+public enum Placement {
+    /**
+     * On one node only, chosen by rendezvous hashing among the live nodes.
+     */
+    SINGLETON,
+
+    /**
+     * On every node.
+     */
+    EVERYWHERE
+}
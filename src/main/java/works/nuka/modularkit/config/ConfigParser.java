@@ -0,0 +1,565 @@
+package works.nuka.modularkit.config;
+
+import works.nuka.modularkit.ex.ModConfigEx;
+import works.nuka.modularkit.resources.ExecutionGroup;
+import works.nuka.modularkit.resources.QuotaPolicy;
+import works.nuka.modularkit.resources.ResourceQuota;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * ConfigParser - Read the .modlr manifests of the module files and the source configuration files.
+ * <p>
+ * The format is made of sections and key / value lines, parsed line by line in one pass :
+ * <pre>
+ * # hello.jar!/.modlr
+ * [module]
+ * class = com.example.HelloModule
+ * uuid = 81f9ab59
+ * version = 1.2.0
+ * depends = 452457c5, 1a2b3c4d
+ * priority = 10
+ * lazy = false
+ * quota.tasks = 4
+ * quota.cpu = 50ms
+ * quota.allocation = 64MB
+ * quota.period = 1s
+ * quota.policy = THROTTLE
+ * group = LATENCY_CRITICAL
+ * </pre>
+ * A value is raw text up to a " #" comment, or a "quoted string" with \" \\ \n \t escapes. Every error gives
+ * its origin, line and column. A .modlr file which does not start with a section is a legacy Properties file
+ * (name = class name), still supported.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class ConfigParser {
+
+    public static final String MANIFEST_NAME = ".modlr";
+
+    private static final int MARK_LIMIT = 64 * 1024;
+    private static final Set<String> MODULE_KEYS = Set.of("class", "uuid", "name", "version", "author", "depends",
+            "priority", "lazy", "quota.tasks", "quota.cpu", "quota.allocation", "quota.period", "quota.policy",
+            "group");
+    private static final Set<String> SOURCE_KEYS = Set.of("uuid", "modules", "extension", "health-interval",
+            "readiness-timeout", "autostart");
+
+    private ConfigParser() {
+    }
+
+    /**
+     * Parse a .modlr manifest, in the section format or in the legacy Properties format.
+     *
+     * @param in     - The manifest content, UTF-8.
+     * @param origin - The name of the manifest in the errors, eg : "hello.jar!/.modlr".
+     * @return - Returns the manifests, in declaration order.
+     * @throws ModConfigEx - If the manifest is invalid, with the location of the first error.
+     */
+    public static List<ModuleManifest> parseManifest(InputStream in, String origin) throws ModConfigEx {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<ModuleManifest> manifests = new ArrayList<>();
+
+        try {
+            if (!startsWithSection(reader)) {
+                Properties legacy = new Properties();
+                legacy.load(reader);
+                for (String key : new TreeSet<>(legacy.stringPropertyNames()))
+                    manifests.add(ModuleManifest.legacy(legacy.getProperty(key).trim(), origin));
+                return manifests;
+            }
+
+            parse(reader, origin, section -> {
+                if (!section.name.equals("module"))
+                    throw section.error("Unknown section [" + section.name + "], expected [module]");
+                manifests.add(toManifest(section));
+            });
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ModConfigEx("Cannot read " + origin + " : " + e.getMessage(), e);
+        }
+
+        return manifests;
+    }
+
+    /**
+     * Read the manifests of a module file, without loading any class of it.
+     *
+     * @param moduleFile - The module file (jar).
+     * @return - Returns the manifests, empty if the module file has no .modlr file.
+     * @throws ModConfigEx - If the module file cannot be read, or its manifest is invalid.
+     */
+    public static List<ModuleManifest> readManifests(File moduleFile) throws ModConfigEx {
+        try (JarFile jar = new JarFile(moduleFile, false)) {
+            ZipEntry entry = jar.getEntry(MANIFEST_NAME);
+            if (entry == null)
+                return List.of();
+
+            try (InputStream in = jar.getInputStream(entry)) {
+                return parseManifest(in, moduleFile.getName() + "!/" + MANIFEST_NAME);
+            }
+        } catch (IOException e) {
+            throw new ModConfigEx("Cannot read " + moduleFile + " : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parse a source configuration file, made of one [source] section :
+     * <pre>
+     * [source]
+     * uuid = e3640e55
+     * modules = modules        # Relative to the configuration file
+     * extension = jar
+     * health-interval = 500ms
+     * readiness-timeout = 30s
+     * autostart = true
+     * </pre>
+     *
+     * @param file - The configuration file.
+     * @return - Returns the SourceConfig.
+     * @throws ModConfigEx - If the file is invalid, with the location of the first error.
+     */
+    public static SourceConfig parseSourceConfig(File file) throws ModConfigEx {
+        List<SourceConfig> configs = new ArrayList<>(1);
+        String origin = file.getName();
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            parse(reader, origin, section -> {
+                if (!section.name.equals("source"))
+                    throw section.error("Unknown section [" + section.name + "], expected [source]");
+                if (!configs.isEmpty())
+                    throw section.error("Duplicate section [source]");
+                configs.add(toSourceConfig(section, file.getAbsoluteFile().getParentFile()));
+            });
+        } catch (IOException e) {
+            throw new ModConfigEx("Cannot read " + file + " : " + e.getMessage(), e);
+        }
+
+        if (configs.isEmpty())
+            throw new ModConfigEx(origin, 1, 1, "Missing section [source]");
+        return configs.get(0);
+    }
+
+    private static ModuleManifest toManifest(Section section) throws ModConfigEx {
+        section.checkKeys(MODULE_KEYS);
+
+        String className = section.string("class", true);
+        String uuid = section.uuid("uuid");
+        List<String> depends = section.uuids("depends");
+        if (uuid != null && depends.contains(uuid))
+            throw section.get("depends").error("The module cannot depend on itself");
+
+        boolean lazy = section.bool("lazy", false);
+        if (lazy && uuid == null)
+            throw section.get("lazy").error("A lazy module needs a declared uuid");
+
+        ResourceQuota quota = null;
+        if (section.hasPrefix("quota.")) {
+            Value policy = section.get("quota.policy");
+            QuotaPolicy quotaPolicy = QuotaPolicy.THROTTLE;
+            if (policy != null) {
+                try {
+                    quotaPolicy = QuotaPolicy.valueOf(policy.text.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw policy.error("Unknown quota policy \"" + policy.text + "\", expected THROTTLE or STOP");
+                }
+            }
+
+            Duration period = section.duration("quota.period", Duration.ofSeconds(1));
+            if (period.isZero())
+                throw section.get("quota.period").error("The quota period must be positive");
+
+            quota = new ResourceQuota((int) section.integer("quota.tasks", 0, Integer.MAX_VALUE),
+                    section.duration("quota.cpu", Duration.ZERO).toNanos(), section.size("quota.allocation"),
+                    period, quotaPolicy);
+        }
+
+        ExecutionGroup group = null;
+        Value groupValue = section.get("group");
+        if (groupValue != null) {
+            try {
+                group = ExecutionGroup.valueOf(groupValue.text.toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw groupValue.error("Unknown execution group \"" + groupValue.text
+                        + "\", expected LATENCY_CRITICAL, DEFAULT, BATCH or BACKGROUND");
+            }
+        }
+
+        return new ModuleManifest(className, uuid, section.string("name", false), section.string("version", false),
+                section.string("author", false), depends,
+                (int) section.integer("priority", Integer.MIN_VALUE, Integer.MAX_VALUE), lazy, quota, group,
+                section.origin + ":" + section.line);
+    }
+
+    private static SourceConfig toSourceConfig(Section section, File baseDir) throws ModConfigEx {
+        section.checkKeys(SOURCE_KEYS);
+
+        String uuid = section.uuid("uuid");
+        if (uuid == null)
+            throw section.error("Missing key \"uuid\"");
+
+        String modules = section.string("modules", false);
+        File moduleDirectory = null;
+        if (modules != null) {
+            moduleDirectory = new File(modules);
+            if (!moduleDirectory.isAbsolute())
+                moduleDirectory = new File(baseDir, modules);
+        }
+
+        String extension = section.string("extension", false);
+        Value healthInterval = section.get("health-interval");
+        Value readinessTimeout = section.get("readiness-timeout");
+        return new SourceConfig(uuid, moduleDirectory, extension != null ? extension : "jar",
+                healthInterval != null ? section.duration("health-interval", null) : null,
+                readinessTimeout != null ? section.duration("readiness-timeout", null) : null,
+                section.bool("autostart", false));
+    }
+
+    /**
+     * Peek the first significant line : a section header means the section format.
+     */
+    private static boolean startsWithSection(BufferedReader reader) throws IOException {
+        reader.mark(MARK_LIMIT);
+        try {
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                int i = skipSpaces(line, first ? skipBom(line) : 0);
+                first = false;
+                if (i < line.length() && !isComment(line.charAt(i)))
+                    return line.charAt(i) == '[';
+            }
+            return false;
+        } finally {
+            reader.reset();
+        }
+    }
+
+    private static void parse(BufferedReader reader, String origin, SectionSink sink)
+            throws IOException, ModConfigEx {
+        Section section = null;
+        String line;
+        int lineNumber = 0;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int i = skipSpaces(line, lineNumber == 1 ? skipBom(line) : 0);
+            if (i == line.length() || isComment(line.charAt(i)))
+                continue;
+
+            if (line.charAt(i) == '[') {
+                int end = line.indexOf(']', i);
+                if (end < 0)
+                    throw new ModConfigEx(origin, lineNumber, line.length() + 1, "Expected ']'");
+                checkEndOfLine(line, end + 1, origin, lineNumber);
+
+                String name = line.substring(i + 1, end).trim();
+                if (name.isEmpty())
+                    throw new ModConfigEx(origin, lineNumber, i + 2, "Empty section name");
+
+                if (section != null)
+                    sink.accept(section);
+                section = new Section(name, origin, lineNumber, i + 1);
+                continue;
+            }
+
+            int keyStart = i;
+            while (i < line.length() && isKeyChar(line.charAt(i)))
+                i++;
+            if (i == keyStart)
+                throw new ModConfigEx(origin, lineNumber, keyStart + 1, "Expected a key");
+            String key = line.substring(keyStart, i);
+
+            i = skipSpaces(line, i);
+            if (i == line.length() || (line.charAt(i) != '=' && line.charAt(i) != ':'))
+                throw new ModConfigEx(origin, lineNumber, i + 1, "Expected '=' after \"" + key + "\"");
+            i = skipSpaces(line, i + 1);
+
+            if (section == null)
+                throw new ModConfigEx(origin, lineNumber, keyStart + 1, "Key \"" + key + "\" outside of a section");
+
+            String text;
+            int valueStart = i;
+            if (i < line.length() && line.charAt(i) == '"') {
+                StringBuilder quoted = new StringBuilder();
+                i = readQuoted(line, i + 1, quoted, origin, lineNumber);
+                checkEndOfLine(line, i, origin, lineNumber);
+                text = quoted.toString();
+            } else {
+                int end = i;
+                while (end < line.length() && !(isComment(line.charAt(end))
+                        && (end == i || Character.isWhitespace(line.charAt(end - 1)))))
+                    end++;
+                text = line.substring(i, end).trim();
+            }
+
+            if (section.values.putIfAbsent(key, new Value(text, origin, lineNumber, keyStart + 1, valueStart + 1)) != null)
+                throw new ModConfigEx(origin, lineNumber, keyStart + 1, "Duplicate key \"" + key + "\"");
+        }
+
+        if (section != null)
+            sink.accept(section);
+    }
+
+    private static int readQuoted(String line, int i, StringBuilder out, String origin, int lineNumber)
+            throws ModConfigEx {
+        while (i < line.length()) {
+            char c = line.charAt(i++);
+            if (c == '"')
+                return i;
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+
+            if (i == line.length())
+                break;
+            char escaped = line.charAt(i++);
+            switch (escaped) {
+                case '"', '\\' -> out.append(escaped);
+                case 'n' -> out.append('\n');
+                case 't' -> out.append('\t');
+                default -> throw new ModConfigEx(origin, lineNumber, i - 1, "Unknown escape \\" + escaped);
+            }
+        }
+        throw new ModConfigEx(origin, lineNumber, line.length() + 1, "Unclosed quoted string");
+    }
+
+    private static void checkEndOfLine(String line, int i, String origin, int lineNumber) throws ModConfigEx {
+        i = skipSpaces(line, i);
+        if (i < line.length() && !isComment(line.charAt(i)))
+            throw new ModConfigEx(origin, lineNumber, i + 1, "Unexpected '" + line.charAt(i) + "'");
+    }
+
+    private static int skipBom(String line) {
+        return line.startsWith("\uFEFF") ? 1 : 0;
+    }
+
+    private static int skipSpaces(String line, int i) {
+        while (i < line.length() && Character.isWhitespace(line.charAt(i)))
+            i++;
+        return i;
+    }
+
+    private static boolean isComment(char c) {
+        return c == '#' || c == ';';
+    }
+
+    private static boolean isKeyChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '.' || c == '-' || c == '_';
+    }
+
+    @FunctionalInterface
+    private interface SectionSink {
+        void accept(Section section) throws ModConfigEx;
+    }
+
+    private static final class Section {
+        private final String name;
+        private final String origin;
+        private final int line;
+        private final int column;
+        private final Map<String, Value> values = new LinkedHashMap<>();
+
+        private Section(String name, String origin, int line, int column) {
+            this.name = name;
+            this.origin = origin;
+            this.line = line;
+            this.column = column;
+        }
+
+        private ModConfigEx error(String message) {
+            return new ModConfigEx(origin, line, column, message + " in [" + name + "]");
+        }
+
+        private Value get(String key) {
+            return values.get(key);
+        }
+
+        private boolean hasPrefix(String prefix) {
+            for (String key : values.keySet())
+                if (key.startsWith(prefix))
+                    return true;
+            return false;
+        }
+
+        private void checkKeys(Set<String> allowed) throws ModConfigEx {
+            for (Map.Entry<String, Value> entry : values.entrySet())
+                if (!allowed.contains(entry.getKey())) {
+                    Value value = entry.getValue();
+                    throw new ModConfigEx(origin, value.line, value.keyColumn, "Unknown key \"" + entry.getKey() + "\" in ["
+                            + name + "]");
+                }
+        }
+
+        private String string(String key, boolean required) throws ModConfigEx {
+            Value value = values.get(key);
+            if (value == null || value.text.isEmpty()) {
+                if (required)
+                    throw value != null ? value.error("Empty value for \"" + key + "\"")
+                            : error("Missing key \"" + key + "\"");
+                return null;
+            }
+            return value.text;
+        }
+
+        private String uuid(String key) throws ModConfigEx {
+            String uuid = string(key, false);
+            if (uuid != null && uuid.length() != 8)
+                throw values.get(key).error("The uuid must be 8 characters long, got \"" + uuid + "\"");
+            return uuid;
+        }
+
+        private List<String> uuids(String key) throws ModConfigEx {
+            Value value = values.get(key);
+            if (value == null || value.text.isEmpty())
+                return List.of();
+
+            List<String> uuids = new ArrayList<>();
+            int start = 0;
+            for (String part : value.text.split(",", -1)) {
+                String uuid = part.trim();
+                int column = value.column + start + (part.length() - part.stripLeading().length());
+                if (uuid.length() != 8)
+                    throw new ModConfigEx(origin, value.line, column,
+                            "The uuid must be 8 characters long, got \"" + uuid + "\"");
+                if (!uuids.contains(uuid))
+                    uuids.add(uuid);
+                start += part.length() + 1;
+            }
+            return uuids;
+        }
+
+        private boolean bool(String key, boolean defaultValue) throws ModConfigEx {
+            Value value = values.get(key);
+            if (value == null)
+                return defaultValue;
+            return switch (value.text) {
+                case "true" -> true;
+                case "false" -> false;
+                default -> throw value.error("Expected true or false, got \"" + value.text + "\"");
+            };
+        }
+
+        private long integer(String key, long min, long max) throws ModConfigEx {
+            Value value = values.get(key);
+            if (value == null)
+                return 0;
+            try {
+                long parsed = Long.parseLong(value.text);
+                if (parsed < min || parsed > max)
+                    throw value.error("Out of range : " + parsed);
+                return parsed;
+            } catch (NumberFormatException e) {
+                throw value.error("Expected an integer, got \"" + value.text + "\"");
+            }
+        }
+
+        private Duration duration(String key, Duration defaultValue) throws ModConfigEx {
+            Value value = values.get(key);
+            if (value == null)
+                return defaultValue;
+
+            int unit = value.numberEnd();
+            if (unit == 0 || unit == value.text.length())
+                throw value.error("Expected a duration like 500ms or 2s, got \"" + value.text + "\"");
+
+            long amount = value.number(unit);
+            try {
+                return toDuration(value, unit, amount);
+            } catch (ArithmeticException e) {
+                throw value.error("Out of range : " + value.text);
+            }
+        }
+
+        private Duration toDuration(Value value, int unit, long amount) throws ModConfigEx {
+            return switch (value.text.substring(unit).trim()) {
+                case "ns" -> Duration.ofNanos(amount);
+                case "us" -> Duration.ofNanos(Math.multiplyExact(amount, 1000L));
+                case "ms" -> Duration.ofMillis(amount);
+                case "s" -> Duration.ofSeconds(amount);
+                case "m" -> Duration.ofMinutes(amount);
+                case "h" -> Duration.ofHours(amount);
+                default -> throw new ModConfigEx(origin, value.line, value.column + unit,
+                        "Unknown duration unit \"" + value.text.substring(unit).trim() + "\", expected ns, us, ms,"
+                                + " s, m or h");
+            };
+        }
+
+        private long size(String key) throws ModConfigEx {
+            Value value = values.get(key);
+            if (value == null)
+                return 0;
+
+            int unit = value.numberEnd();
+            if (unit == 0)
+                throw value.error("Expected a size like 512KB or 64MB, got \"" + value.text + "\"");
+
+            long amount = value.number(unit);
+            long multiplier = switch (value.text.substring(unit).trim().toUpperCase(Locale.ROOT)) {
+                case "", "B" -> 1;
+                case "K", "KB" -> 1024;
+                case "M", "MB" -> 1024 * 1024;
+                case "G", "GB" -> 1024 * 1024 * 1024;
+                default -> throw new ModConfigEx(origin, value.line, value.column + unit,
+                        "Unknown size unit \"" + value.text.substring(unit).trim() + "\", expected B, KB, MB or GB");
+            };
+
+            if (amount > Long.MAX_VALUE / multiplier)
+                throw value.error("Out of range : " + value.text);
+            return amount * multiplier;
+        }
+    }
+
+    private static final class Value {
+        private final String text;
+        private final String origin;
+        private final int line;
+        private final int keyColumn;
+        private final int column;
+
+        private Value(String text, String origin, int line, int keyColumn, int column) {
+            this.text = text;
+            this.origin = origin;
+            this.line = line;
+            this.keyColumn = keyColumn;
+            this.column = column;
+        }
+
+        private ModConfigEx error(String message) {
+            return new ModConfigEx(origin, line, column, message);
+        }
+
+        private int numberEnd() {
+            int i = 0;
+            while (i < text.length() && Character.isDigit(text.charAt(i)))
+                i++;
+            return i;
+        }
+
+        private long number(int end) throws ModConfigEx {
+            try {
+                return Long.parseLong(text, 0, end, 10);
+            } catch (NumberFormatException e) {
+                throw error("Out of range : " + text.substring(0, end));
+            }
+        }
+    }
+}
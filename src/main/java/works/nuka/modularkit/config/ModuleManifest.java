@@ -0,0 +1,132 @@
+package works.nuka.modularkit.config;
+
+import works.nuka.modularkit.resources.ExecutionGroup;
+import works.nuka.modularkit.resources.ResourceQuota;
+
+import java.util.List;
+
+/**
+ * ModuleManifest - The metadata of a module, read from the .modlr file of its module file without loading
+ * the module class.
+ * <p>
+ * A legacy .modlr file (a Properties file of class names) only gives the class names, the other values are
+ * then unset : null, empty, 0 or false.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class ModuleManifest {
+
+    private final String className;
+    private final String uuid;
+    private final String name;
+    private final String version;
+    private final String author;
+    private final List<String> depends;
+    private final int priority;
+    private final boolean lazy;
+    private final ResourceQuota quota;
+    private final ExecutionGroup group;
+    private final String origin;
+
+    public ModuleManifest(String className, String uuid, String name, String version, String author,
+                          List<String> depends, int priority, boolean lazy, ResourceQuota quota,
+                          ExecutionGroup group, String origin) {
+        this.className = className;
+        this.uuid = uuid;
+        this.name = name;
+        this.version = version;
+        this.author = author;
+        this.depends = List.copyOf(depends);
+        this.priority = priority;
+        this.lazy = lazy;
+        this.quota = quota;
+        this.group = group;
+        this.origin = origin;
+    }
+
+    /**
+     * @param className - The module class name.
+     * @param origin    - Where the class name was read.
+     * @return - Returns the manifest of a legacy .modlr entry.
+     */
+    public static ModuleManifest legacy(String className, String origin) {
+        return new ModuleManifest(className, null, null, null, null, List.of(), 0, false, null, null, origin);
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return - Returns the declared uuid, null if not declared.
+     */
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return - Returns the declared version, null if not declared.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    /**
+     * @return - Returns the uuids of the modules needed by this module.
+     */
+    public List<String> getDepends() {
+        return depends;
+    }
+
+    /**
+     * @return - Returns the start priority, the highest priorities are started first by
+     * ModularSource.startModules().
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return - Returns true if the module is only instantiated when it is first needed.
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * @return - Returns the declared ResourceQuota, null if not declared.
+     */
+    public ResourceQuota getQuota() {
+        return quota;
+    }
+
+    /**
+     * @return - Returns the declared ExecutionGroup, null if not declared.
+     */
+    public ExecutionGroup getGroup() {
+        return group;
+    }
+
+    /**
+     * @return - Returns where the manifest was read, eg : "hello.jar!/.modlr:3".
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public String toString() {
+        return "ModuleManifest{" + className + (uuid != null ? ", uuid=" + uuid : "")
+                + (version != null ? ", version=" + version : "") + (lazy ? ", lazy" : "") + (group != null ? ", group=" + group : "")
+                + ", priority=" + priority + ", origin=" + origin + "}";
+    }
+}
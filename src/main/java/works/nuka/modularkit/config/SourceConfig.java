@@ -0,0 +1,66 @@
+package works.nuka.modularkit.config;
+
+import java.io.File;
+import java.time.Duration;
+
+/**
+ * SourceConfig - The [source] section of a source configuration file, see ModularSource.fromConfig().
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class SourceConfig {
+
+    private final String uuid;
+    private final File moduleDirectory;
+    private final String fileExtension;
+    private final Duration healthCheckInterval;
+    private final Duration readinessTimeout;
+    private final boolean autoStart;
+
+    public SourceConfig(String uuid, File moduleDirectory, String fileExtension, Duration healthCheckInterval,
+                        Duration readinessTimeout, boolean autoStart) {
+        this.uuid = uuid;
+        this.moduleDirectory = moduleDirectory;
+        this.fileExtension = fileExtension;
+        this.healthCheckInterval = healthCheckInterval;
+        this.readinessTimeout = readinessTimeout;
+        this.autoStart = autoStart;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    /**
+     * @return - Returns the directory of the module files, null for a source without module files.
+     */
+    public File getModuleDirectory() {
+        return moduleDirectory;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * @return - Returns the health check interval, null to keep the default.
+     */
+    public Duration getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    /**
+     * @return - Returns the readiness timeout, null to keep the default.
+     */
+    public Duration getReadinessTimeout() {
+        return readinessTimeout;
+    }
+
+    /**
+     * @return - Returns true if the modules are started once loaded (see ModularSource.startModules()).
+     */
+    public boolean isAutoStart() {
+        return autoStart;
+    }
+}
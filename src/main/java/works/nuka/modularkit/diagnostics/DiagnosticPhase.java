@@ -0,0 +1,46 @@
+package works.nuka.modularkit.diagnostics;
+
+/**
+ * The phase of the module lifecycle in which a DiagnosticRecord was reported.
+ */
+public enum DiagnosticPhase {
+    /**
+     * Reading a module file (class loader, .modlr registration file).
+     */
+    LOAD,
+
+    /**
+     * Verifying a module file.
+     */
+    VERIFY,
+
+    /**
+     * Instantiating a module (factory or reflection).
+     */
+    INSTANTIATE,
+
+    /**
+     * Registering or unregistering a module.
+     */
+    REGISTER,
+
+    /**
+     * Starting a module (dependency gating).
+     */
+    START,
+
+    /**
+     * Running a module task.
+     */
+    RUN,
+
+    /**
+     * Stopping a module.
+     */
+    STOP,
+
+    /**
+     * Upgrading a module in place.
+     */
+    UPGRADE
+}
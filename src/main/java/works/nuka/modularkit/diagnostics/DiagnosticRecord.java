@@ -0,0 +1,82 @@
+package works.nuka.modularkit.diagnostics;
+
+/**
+ * DiagnosticRecord - A structured error report : what failed, in which module and during which phase.
+ * <p>
+ * The record only keeps references, nothing is formatted before a DiagnosticSink asks for it.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class DiagnosticRecord {
+
+    private final long sequence;
+    private final long timestamp;
+    private final DiagnosticPhase phase;
+    private final String sourceUuid;
+    private final String moduleUuid;
+    private final Throwable error;
+
+    DiagnosticRecord(long sequence, long timestamp, DiagnosticPhase phase, String sourceUuid, String moduleUuid,
+                     Throwable error) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.phase = phase;
+        this.sourceUuid = sourceUuid;
+        this.moduleUuid = moduleUuid;
+        this.error = error;
+    }
+
+    /**
+     * @return - Returns the position of the record in its Diagnostics, starting at 0.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return - Returns when the error was reported, in epoch milliseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public DiagnosticPhase getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return - Returns the uuid of the ModularSource, or null for the global Diagnostics.
+     */
+    public String getSourceUuid() {
+        return sourceUuid;
+    }
+
+    /**
+     * @return - Returns the uuid of the module, or null if the error does not concern a known module.
+     */
+    public String getModuleUuid() {
+        return moduleUuid;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return - Returns the exception type, eg : ModSourceEx, ModRegisterEx...
+     */
+    public Class<? extends Throwable> getErrorType() {
+        return error.getClass();
+    }
+
+    public String getMessage() {
+        return error.getMessage();
+    }
+
+    @Override
+    public String toString() {
+        return "[" + phase + "] source=" + sourceUuid + " module=" + moduleUuid + " "
+                + error.getClass().getSimpleName() + " : " + error.getMessage();
+    }
+}
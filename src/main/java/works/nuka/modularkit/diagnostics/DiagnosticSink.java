@@ -0,0 +1,28 @@
+package works.nuka.modularkit.diagnostics;
+
+/**
+ * DiagnosticSink - Receive the DiagnosticRecords, on the diagnostics thread (never on the reporting thread).
+ *
+ * @since 1.8
+ */
+@FunctionalInterface
+public interface DiagnosticSink {
+
+    /**
+     * @param record - The reported DiagnosticRecord.
+     */
+    void accept(DiagnosticRecord record);
+
+    /**
+     * Get a sink writing the records into a System.Logger, at the WARNING level.
+     *
+     * @param logger - The System.Logger.
+     * @return - Returns the DiagnosticSink.
+     */
+    static DiagnosticSink logger(System.Logger logger) {
+        return record -> {
+            if (logger.isLoggable(System.Logger.Level.WARNING))
+                logger.log(System.Logger.Level.WARNING, record.toString(), record.getError());
+        };
+    }
+}
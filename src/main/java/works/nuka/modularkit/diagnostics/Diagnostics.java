@@ -0,0 +1,225 @@
+package works.nuka.modularkit.diagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Diagnostics - Collect the errors of a ModularSource without slowing down the reporting threads.
+ * <p>
+ * A report only writes the DiagnosticRecord into a fixed-size ring buffer (the last records are kept,
+ * the oldest are overwritten) and queues it for the DiagnosticSinks. The sinks run on a single background
+ * thread, so a slow sink (or a console) never blocks a module load. When the queue is full the record
+ * is still kept in the ring buffer, but not delivered to the sinks (see getDroppedCount()).
+ * <p>
+ * The default sink writes into the "works.nuka.modularkit" System.Logger.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class Diagnostics {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private static final Diagnostics GLOBAL = new Diagnostics(null);
+    private static final BlockingQueue<Delivery> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong queued = new AtomicLong();
+    private static final AtomicLong delivered = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile DiagnosticSink defaultSink = DiagnosticSink.logger(System.getLogger("works.nuka.modularkit"));
+    private static volatile Thread dispatcher;
+
+    private final String sourceUuid;
+    private final AtomicReferenceArray<DiagnosticRecord> ring;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<DiagnosticSink> sinks = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param sourceUuid - The uuid of the ModularSource, or null.
+     */
+    public Diagnostics(String sourceUuid) {
+        this(sourceUuid, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param sourceUuid - The uuid of the ModularSource, or null.
+     * @param capacity   - How many records are kept, rounded up to a power of two.
+     */
+    public Diagnostics(String sourceUuid, int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("The capacity must be positive !");
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+
+        this.sourceUuid = sourceUuid;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return - Returns the Diagnostics of the errors not related to a ModularSource.
+     */
+    public static Diagnostics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Replace the sink receiving the records of every Diagnostics.
+     *
+     * @param sink - The default DiagnosticSink, null to only keep the records.
+     */
+    public static void setDefaultSink(DiagnosticSink sink) {
+        defaultSink = sink;
+    }
+
+    public static DiagnosticSink getDefaultSink() {
+        return defaultSink;
+    }
+
+    /**
+     * @return - Returns how many records were not delivered to the sinks because the queue was full.
+     */
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Wait until every queued record is delivered to the sinks.
+     *
+     * @param timeout - The maximum time to wait.
+     * @param unit    - The TimeUnit of the timeout.
+     * @return - Returns true if the queue is drained.
+     */
+    public static boolean flush(long timeout, TimeUnit unit) {
+        long target = queued.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (delivered.get() < target) {
+            if (System.nanoTime() - deadline >= 0)
+                return false;
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    /**
+     * Report an error, without blocking.
+     *
+     * @param phase      - The DiagnosticPhase of the error.
+     * @param moduleUuid - The uuid of the module, or null.
+     * @param error      - The error.
+     * @return - Returns the DiagnosticRecord of the error.
+     */
+    public DiagnosticRecord report(DiagnosticPhase phase, String moduleUuid, Throwable error) {
+        long seq = sequence.getAndIncrement();
+        DiagnosticRecord record = new DiagnosticRecord(seq, System.currentTimeMillis(), phase, sourceUuid,
+                moduleUuid, error);
+        ring.set((int) (seq & mask), record);
+
+        if (defaultSink != null || !sinks.isEmpty()) {
+            if (queue.offer(new Delivery(this, record))) {
+                queued.incrementAndGet();
+                ensureDispatcher();
+            } else
+                dropped.incrementAndGet();
+        }
+
+        return record;
+    }
+
+    /**
+     * @return - Returns the last reported records (at most the capacity), the oldest first.
+     */
+    public List<DiagnosticRecord> getRecords() {
+        long end = sequence.get();
+        long start = Math.max(0, end - ring.length());
+        List<DiagnosticRecord> records = new ArrayList<>((int) (end - start));
+
+        for (long seq = start; seq < end; seq++) {
+            DiagnosticRecord record = ring.get((int) (seq & mask));
+            // Skip the slots still being written, or already overwritten by a newer record.
+            if (record != null && record.getSequence() == seq)
+                records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * @return - Returns how many errors were reported, including the overwritten ones.
+     */
+    public long getReportedCount() {
+        return sequence.get();
+    }
+
+    /**
+     * @param sink - A DiagnosticSink receiving the records of this Diagnostics only.
+     */
+    public void addSink(DiagnosticSink sink) {
+        sinks.add(sink);
+    }
+
+    public boolean removeSink(DiagnosticSink sink) {
+        return sinks.remove(sink);
+    }
+
+    public String getSourceUuid() {
+        return sourceUuid;
+    }
+
+    private static void ensureDispatcher() {
+        if (dispatcher != null)
+            return;
+
+        synchronized (Diagnostics.class) {
+            if (dispatcher == null) {
+                Thread thread = new Thread(Diagnostics::dispatch, "ModularKit-Diagnostics");
+                thread.setDaemon(true);
+                thread.start();
+                dispatcher = thread;
+            }
+        }
+    }
+
+    private static void dispatch() {
+        while (true) {
+            Delivery delivery;
+            try {
+                delivery = queue.take();
+            } catch (InterruptedException e) {
+                continue; // The dispatcher lives as long as the JVM.
+            }
+
+            try {
+                DiagnosticSink sink = defaultSink;
+                if (sink != null)
+                    deliver(sink, delivery.record);
+
+                for (DiagnosticSink sourceSink : delivery.diagnostics.sinks)
+                    deliver(sourceSink, delivery.record);
+            } finally {
+                delivered.incrementAndGet();
+            }
+        }
+    }
+
+    private static void deliver(DiagnosticSink sink, DiagnosticRecord record) {
+        try {
+            sink.accept(record);
+        } catch (RuntimeException ignored) {
+            // A failing sink cannot be reported anywhere, and must not stop the others.
+        }
+    }
+
+    private record Delivery(Diagnostics diagnostics, DiagnosticRecord record) {
+    }
+}
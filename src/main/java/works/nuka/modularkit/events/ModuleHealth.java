@@ -0,0 +1,8 @@
+package works.nuka.modularkit.events;
+
+/**
+ * The cached health of a module (or the aggregated health of a ModularSource).
+ */
+public enum ModuleHealth {
+    UNKNOWN, STARTING, READY, DEGRADED, DOWN
+}
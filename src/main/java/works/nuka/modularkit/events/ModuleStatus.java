@@ -1,5 +1,30 @@
 package works.nuka.modularkit.events;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum ModuleStatus {
-    RUNNING, STOPPING, STOPPED, LOADED, UNLOADED
+    RUNNING, STOPPING, STOPPED, LOADED, UNLOADED;
+
+    // The legal lifecycle transitions : STOPPED -> RUNNING -> STOPPING -> STOPPED, and load / unload while stopped.
+    private static final Map<ModuleStatus, Set<ModuleStatus>> TRANSITIONS = new EnumMap<>(ModuleStatus.class);
+
+    static {
+        TRANSITIONS.put(STOPPED, EnumSet.of(RUNNING, LOADED, UNLOADED));
+        TRANSITIONS.put(LOADED, EnumSet.of(RUNNING, STOPPED, UNLOADED));
+        TRANSITIONS.put(UNLOADED, EnumSet.of(LOADED, STOPPED));
+        TRANSITIONS.put(RUNNING, EnumSet.of(STOPPING));
+        TRANSITIONS.put(STOPPING, EnumSet.of(STOPPED));
+    }
+
+    /**
+     * @param next - The next status.
+     * @return - Returns true if a module can go from this status to the next one.
+     * @since 1.8
+     */
+    public boolean canTransitionTo(ModuleStatus next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
 }
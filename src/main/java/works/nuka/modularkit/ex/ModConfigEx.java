@@ -0,0 +1,44 @@
+package works.nuka.modularkit.ex;
+
+@SuppressWarnings("unused")
+public class ModConfigEx extends ModSourceEx {
+
+    private final String origin;
+    private final int line;
+    private final int column;
+
+    public ModConfigEx(String origin, int line, int column, String message) {
+        super(origin + ":" + line + ":" + column + ": " + message);
+        this.origin = origin;
+        this.line = line;
+        this.column = column;
+    }
+
+    public ModConfigEx(String message, Throwable cause) {
+        super(message, cause);
+        this.origin = null;
+        this.line = 0;
+        this.column = 0;
+    }
+
+    /**
+     * @return - Returns the file of the error (eg : "hello.jar!/.modlr"), null if unknown.
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @return - Returns the line of the error, starting at 1, 0 if unknown.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return - Returns the column of the error, starting at 1, 0 if unknown.
+     */
+    public int getColumn() {
+        return column;
+    }
+}
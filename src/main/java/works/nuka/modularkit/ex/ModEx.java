@@ -11,4 +11,7 @@ public class ModEx extends Exception {
         super(message);
     }
 
+    public ModEx(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
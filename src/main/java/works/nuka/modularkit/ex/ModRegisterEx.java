@@ -11,4 +11,8 @@ public class ModRegisterEx extends Exception {
         super(message);
     }
 
+    public ModRegisterEx(String message, Throwable cause) {
+        super(message, cause);
+    }
+
 }
@@ -11,4 +11,8 @@ public class ModRunEx extends Exception {
         super(message);
     }
 
+    public ModRunEx(String message, Throwable cause) {
+        super(message, cause);
+    }
+
 }
@@ -10,4 +10,8 @@ public class ModSourceEx extends ModEx {
     public ModSourceEx(String message) {
         super(message);
     }
+
+    public ModSourceEx(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
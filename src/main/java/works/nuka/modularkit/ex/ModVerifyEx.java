@@ -0,0 +1,17 @@
+package works.nuka.modularkit.ex;
+
+@SuppressWarnings("unused")
+public class ModVerifyEx extends ModSourceEx {
+
+    public ModVerifyEx() {
+        super();
+    }
+
+    public ModVerifyEx(String message) {
+        super(message);
+    }
+
+    public ModVerifyEx(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,227 @@
+package works.nuka.modularkit.isolation;
+
+import works.nuka.modularkit.ModularModule;
+import works.nuka.modularkit.events.ModuleHealth;
+import works.nuka.modularkit.ex.ModRunEx;
+
+import java.io.IOException;
+import java.security.CodeSource;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * ChildJvm - A child JVM of a ChildJvmPool, seen from the host. It runs at most one module, then it is
+ * shut down : a leaking or misbehaving module never pollutes another run.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class ChildJvm {
+
+    /**
+     * The events of the isolated module, called on the reader thread of the child.
+     */
+    public interface Listener {
+        void onHealth(ModuleHealth health);
+
+        /**
+         * The child exited without being asked to (crash, halt, killed...).
+         *
+         * @param exitCode - The exit code of the child, -1 if unknown.
+         */
+        void onCrash(int exitCode);
+    }
+
+    private final ChildJvmPool pool;
+    private final String id;
+    private final long pid;
+    private final Process process;
+    private final IsolationProtocol.Connection connection;
+    private final Duration requestTimeout;
+    private final Object requestLock = new Object(); // One request at a time.
+    private volatile Request pending;
+    private volatile Listener listener;
+    private volatile boolean closing;
+
+    ChildJvm(ChildJvmPool pool, String id, long pid, Process process, IsolationProtocol.Connection connection,
+             Duration requestTimeout) {
+        this.pool = pool;
+        this.id = id;
+        this.pid = pid;
+        this.process = process;
+        this.connection = connection;
+        this.requestTimeout = requestTimeout;
+
+        Thread reader = new Thread(this::read, "ModularKit-Child-" + id);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Instantiate the module (by its class name and code source) in the child.
+     *
+     * @param module         - The module, registered in the host.
+     * @param sourceUuid     - The uuid of the host ModularSource.
+     * @param healthInterval - How often the child probes the health of the module.
+     * @param listener       - Receives the health changes and the crash of the child.
+     * @throws ModRunEx - If the child cannot load the module.
+     */
+    public void load(ModularModule module, String sourceUuid, Duration healthInterval, Listener listener)
+            throws ModRunEx {
+        this.listener = listener;
+        CodeSource codeSource = module.getClass().getProtectionDomain().getCodeSource();
+        String location = codeSource != null && codeSource.getLocation() != null
+                ? codeSource.getLocation().toString() : null;
+
+        request(IsolationProtocol.LOAD, out -> {
+            out.writeUTF(sourceUuid);
+            out.writeUTF(module.getClass().getName());
+            out.writeInt(location != null ? 1 : 0);
+            if (location != null)
+                out.writeUTF(location);
+            out.writeLong(healthInterval.toMillis());
+        });
+    }
+
+    public void start() throws ModRunEx {
+        request(IsolationProtocol.START, null);
+    }
+
+    /**
+     * @param force - Kill the module thread after stop(), in the child.
+     * @throws ModRunEx - If the child cannot stop the module.
+     */
+    public void stop(boolean force) throws ModRunEx {
+        request(IsolationProtocol.STOP, out -> out.writeBoolean(force));
+    }
+
+    /**
+     * Exit the child, gracefully first, then forcibly. A child is never reused.
+     */
+    public void shutdown() {
+        closing = true;
+        pool.forget(this);
+        try {
+            connection.send(IsolationProtocol.SHUTDOWN, null);
+            if (!process.waitFor(2, TimeUnit.SECONDS))
+                process.destroyForcibly();
+        } catch (IOException e) {
+            process.destroyForcibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        } finally {
+            connection.close();
+        }
+    }
+
+    public boolean isAlive() {
+        return !closing && process.isAlive();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return - Returns the process id of the child.
+     */
+    public long getPid() {
+        return pid;
+    }
+
+    private void request(byte type, IsolationProtocol.Payload payload) throws ModRunEx {
+        synchronized (requestLock) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            pending = new Request(type, future);
+
+            try {
+                connection.send(type, payload);
+                future.get(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (IOException e) {
+                throw new ModRunEx("The child JVM " + id + " is gone : " + e.getMessage(), e);
+            } catch (ExecutionException e) {
+                throw new ModRunEx(e.getCause().getMessage(), e.getCause());
+            } catch (TimeoutException e) {
+                kill(); // Its late reply must never answer the next request.
+                throw new ModRunEx("The child JVM " + id + " did not answer in " + requestTimeout, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ModRunEx("Interrupted while waiting for the child JVM " + id, e);
+            } finally {
+                pending = null;
+            }
+        }
+    }
+
+    private void read() {
+        try {
+            while (true) {
+                IsolationProtocol.Frame frame = connection.receive();
+
+                switch (frame.type()) {
+                    case IsolationProtocol.ACK -> {
+                        CompletableFuture<Void> future = pendingFor(frame.payload().readByte());
+                        if (future != null)
+                            future.complete(null);
+                    }
+                    case IsolationProtocol.ERROR -> {
+                        CompletableFuture<Void> future = pendingFor(frame.payload().readByte());
+                        String message = frame.payload().readUTF();
+                        if (future != null)
+                            future.completeExceptionally(new ModRunEx("Child JVM " + id + " : " + message));
+                    }
+                    case IsolationProtocol.HEALTH -> {
+                        int ordinal = frame.payload().readUnsignedByte();
+                        Listener l = listener;
+                        if (l != null && ordinal < ModuleHealth.values().length)
+                            l.onHealth(ModuleHealth.values()[ordinal]);
+                    }
+                    default -> throw new IOException("Unexpected frame type " + frame.type());
+                }
+            }
+        } catch (IOException e) {
+            Request request = pending;
+            if (request != null)
+                request.future().completeExceptionally(new ModRunEx("The child JVM " + id + " is gone !", e));
+
+            connection.close();
+            if (!closing) {
+                Listener l = listener;
+                if (l != null)
+                    l.onCrash(exitCode());
+            }
+        }
+    }
+
+    // The replies echo the type of their request : a reply to another request is ignored.
+    private CompletableFuture<Void> pendingFor(byte requestType) {
+        Request request = pending;
+        return request != null && request.type() == requestType ? request.future() : null;
+    }
+
+    // Kill an unresponsive child without waiting for it, the caller reports the failure.
+    private void kill() {
+        closing = true;
+        pool.forget(this);
+        process.destroyForcibly();
+        connection.close();
+    }
+
+    private int exitCode() {
+        try {
+            if (process.waitFor(5, TimeUnit.SECONDS))
+                return process.exitValue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        process.destroyForcibly();
+        return -1;
+    }
+
+    private record Request(byte type, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,262 @@
+package works.nuka.modularkit.isolation;
+
+import works.nuka.modularkit.diagnostics.DiagnosticPhase;
+import works.nuka.modularkit.diagnostics.Diagnostics;
+import works.nuka.modularkit.ex.ModRunEx;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ChildJvmPool - A pool of warm child JVMs for the isolated modules (see ModuleManager.setIsolation()).
+ * <p>
+ * The pool keeps warmSize idle children started in advance, so an isolated module does not wait for a JVM
+ * startup. The children use the classpath of the host and connect back through a Unix domain socket, in a
+ * private temporary directory. A child only runs one module : it is shut down when the module stops or crashes,
+ * and the pool starts a new one.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class ChildJvmPool implements AutoCloseable {
+
+    private final int warmSize;
+    private final List<String> jvmOptions;
+    private final Path socketDir;
+    private final Path socketPath;
+    private final ServerSocketChannel server;
+    private final BlockingQueue<ChildJvm> idle = new LinkedBlockingQueue<>();
+    private final Set<ChildJvm> children = ConcurrentHashMap.newKeySet();
+    private final Map<String, CompletableFuture<Hello>> connecting = new ConcurrentHashMap<>();
+    private final ExecutorService spawner;
+    private final AtomicInteger spawning = new AtomicInteger();
+    private final AtomicLong spawned = new AtomicLong();
+    private final AtomicLong ids = new AtomicLong();
+    private volatile Duration startTimeout = Duration.ofSeconds(30);
+    private volatile Duration requestTimeout = Duration.ofSeconds(30);
+    private volatile boolean closed;
+
+    /**
+     * @param warmSize - How many idle children are kept started.
+     * @throws IOException - If the socket of the pool cannot be created.
+     */
+    public ChildJvmPool(int warmSize) throws IOException {
+        this(warmSize, List.of());
+    }
+
+    /**
+     * @param warmSize   - How many idle children are kept started.
+     * @param jvmOptions - The options of the child JVMs, eg : "-Xmx64m".
+     * @throws IOException - If the socket of the pool cannot be created.
+     */
+    public ChildJvmPool(int warmSize, List<String> jvmOptions) throws IOException {
+        if (warmSize < 0)
+            throw new IllegalArgumentException("The warm size cannot be negative !");
+
+        this.warmSize = warmSize;
+        this.jvmOptions = List.copyOf(jvmOptions);
+        this.socketDir = Files.createTempDirectory("modularkit-ipc"); // Owner-only on POSIX systems.
+        this.socketPath = socketDir.resolve("pool.sock");
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+
+        this.spawner = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "ModularKit-ChildSpawner");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Thread acceptor = new Thread(this::accept, "ModularKit-ChildAcceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        refill();
+    }
+
+    /**
+     * @param start   - How long a child JVM can take to start.
+     * @param request - How long a child can take to answer a lifecycle request.
+     */
+    public void setTimeouts(Duration start, Duration request) {
+        startTimeout = start;
+        requestTimeout = request;
+    }
+
+    /**
+     * Take a warm child, or start one if the pool is empty.
+     *
+     * @return - Returns a child JVM, owned by the caller until its shutdown().
+     * @throws ModRunEx - If the pool is closed or a child cannot start.
+     */
+    public ChildJvm acquire() throws ModRunEx {
+        if (closed)
+            throw new ModRunEx("The child JVM pool is closed !");
+
+        ChildJvm child;
+        while ((child = idle.poll()) != null && !child.isAlive())
+            child.shutdown();
+
+        if (child == null)
+            child = spawn(); // Cold start.
+
+        refill();
+        return child;
+    }
+
+    /**
+     * @return - Returns how many warm children are waiting.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @return - Returns how many child JVMs were started.
+     */
+    public long getSpawnCount() {
+        return spawned.get();
+    }
+
+    public int getWarmSize() {
+        return warmSize;
+    }
+
+    /**
+     * Shut down every child of the pool, the idle ones and the running ones.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // Already closed.
+        }
+
+        spawner.shutdownNow();
+        for (ChildJvm child : new ArrayList<>(children))
+            child.shutdown();
+        idle.clear();
+
+        try {
+            Files.deleteIfExists(socketPath);
+            Files.deleteIfExists(socketDir);
+        } catch (IOException ignored) {
+            // Left in the temporary directory.
+        }
+    }
+
+    // Called by ChildJvm.shutdown().
+    void forget(ChildJvm child) {
+        children.remove(child);
+    }
+
+    private synchronized void refill() {
+        while (!closed && idle.size() + spawning.get() < warmSize) {
+            spawning.incrementAndGet();
+            spawner.execute(() -> {
+                try {
+                    ChildJvm child = spawn();
+                    if (closed)
+                        child.shutdown();
+                    else
+                        idle.offer(child);
+                } catch (ModRunEx e) {
+                    if (!closed)
+                        Diagnostics.global().report(DiagnosticPhase.START, null, e);
+                } finally {
+                    spawning.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private ChildJvm spawn() throws ModRunEx {
+        String id = ProcessHandle.current().pid() + "-" + ids.incrementAndGet();
+        CompletableFuture<Hello> hello = new CompletableFuture<>();
+        connecting.put(id, hello);
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ChildMain.class.getName());
+        command.add(socketPath.toString());
+        command.add(id);
+
+        Process process = null;
+        try {
+            process = new ProcessBuilder(command).inheritIO().directory(new File(".")).start();
+            spawned.incrementAndGet();
+
+            Hello connected = hello.get(startTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            ChildJvm child = new ChildJvm(this, id, connected.pid, process, connected.connection, requestTimeout);
+            children.add(child);
+            return child;
+        } catch (IOException | ExecutionException | TimeoutException e) {
+            if (process != null)
+                process.destroyForcibly();
+            throw new ModRunEx("Cannot start a child JVM : " + e, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            throw new ModRunEx("Interrupted while starting a child JVM", e);
+        } finally {
+            connecting.remove(id);
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (IOException e) {
+                return; // Closed.
+            }
+
+            IsolationProtocol.Connection connection = new IsolationProtocol.Connection(channel);
+            try {
+                IsolationProtocol.Frame frame = connection.receive();
+                if (frame.type() != IsolationProtocol.HELLO)
+                    throw new IOException("Expected HELLO, got " + frame.type());
+
+                String id = frame.payload().readUTF();
+                long pid = frame.payload().readLong();
+                CompletableFuture<Hello> hello = connecting.get(id);
+                if (hello == null || !hello.complete(new Hello(connection, pid)))
+                    connection.close(); // Unknown or late child, it exits with the connection.
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+    }
+
+    private record Hello(IsolationProtocol.Connection connection, long pid) {
+    }
+}
@@ -0,0 +1,164 @@
+package works.nuka.modularkit.isolation;
+
+import works.nuka.modularkit.ModularModule;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.ModuleClassLoader;
+import works.nuka.modularkit.ModuleManager;
+import works.nuka.modularkit.events.ModuleHealth;
+import works.nuka.modularkit.ex.ModRunEx;
+import works.nuka.modularkit.ex.ModUuidEx;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ChildMain - The entry point of a child JVM of a ChildJvmPool, runs one isolated module.
+ * <p>
+ * The child connects to the Unix domain socket of its pool, says HELLO, then executes the LOAD / START / STOP
+ * requests of the host. It exits when the host asks it, or when the host goes away.
+ *
+ * @since 1.8
+ */
+public final class ChildMain {
+
+    private final IsolationProtocol.Connection connection;
+    private ChildSource source;
+    private ModularModule module;
+
+    private ChildMain(IsolationProtocol.Connection connection) {
+        this.connection = connection;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage : ChildMain <socketPath> <childId>");
+            System.exit(2);
+        }
+
+        // Load the framework before saying HELLO, so a warm child only pays for the module classes.
+        for (Class<?> c : new Class<?>[]{ModularSource.class, ModuleManager.class, ModularModule.class,
+                ModuleClassLoader.class, ModuleHealth.class})
+            Class.forName(c.getName(), true, ChildMain.class.getClassLoader());
+
+        SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(Path.of(args[0])));
+        IsolationProtocol.Connection connection = new IsolationProtocol.Connection(channel);
+        connection.send(IsolationProtocol.HELLO, out -> {
+            out.writeUTF(args[1]);
+            out.writeLong(ProcessHandle.current().pid());
+        });
+
+        new ChildMain(connection).serve();
+    }
+
+    private void serve() {
+        while (true) {
+            IsolationProtocol.Frame frame;
+            try {
+                frame = connection.receive();
+            } catch (IOException e) {
+                // The host closed the connection (or died) : never outlive it.
+                Runtime.getRuntime().halt(e instanceof EOFException ? 0 : 1);
+                return;
+            }
+
+            if (frame.type() == IsolationProtocol.SHUTDOWN)
+                System.exit(0);
+
+            try {
+                handle(frame);
+                connection.send(IsolationProtocol.ACK, out -> out.writeByte(frame.type()));
+            } catch (Exception e) {
+                String message = e.getClass().getSimpleName() + " : " + e.getMessage();
+                try {
+                    connection.send(IsolationProtocol.ERROR, out -> {
+                        out.writeByte(frame.type());
+                        out.writeUTF(message);
+                    });
+                } catch (IOException ex) {
+                    Runtime.getRuntime().halt(1);
+                }
+            }
+        }
+    }
+
+    private void handle(IsolationProtocol.Frame frame) throws Exception {
+        DataInputStream in = frame.payload();
+
+        switch (frame.type()) {
+            case IsolationProtocol.LOAD -> {
+                if (module != null)
+                    throw new ModRunEx("A module is already loaded !");
+
+                String sourceUuid = in.readUTF();
+                String className = in.readUTF();
+                List<String> codeSources = new ArrayList<>();
+                for (int i = in.readInt(); i > 0; i--)
+                    codeSources.add(in.readUTF());
+                long healthInterval = in.readLong();
+
+                source = new ChildSource(sourceUuid, connection);
+                source.getModuleManager().setHealthCheckInterval(Duration.ofMillis(healthInterval));
+                module = instantiate(className, codeSources);
+                source.registerModule(module);
+            }
+            case IsolationProtocol.START -> {
+                if (module == null || !source.getModuleManager().runModule(module, null))
+                    throw new ModRunEx("The module is not loaded or already running !");
+            }
+            case IsolationProtocol.STOP -> {
+                boolean force = in.readBoolean();
+                if (module != null)
+                    source.getModuleManager().stopModule(module, force, null);
+            }
+            default -> throw new IOException("Unexpected frame type " + frame.type());
+        }
+    }
+
+    private static ModularModule instantiate(String className, List<String> codeSources) throws Exception {
+        ClassLoader loader = ChildMain.class.getClassLoader();
+        String classPath = File.pathSeparator + System.getProperty("java.class.path") + File.pathSeparator;
+
+        // The module files out of the child classpath get their own ModuleClassLoader, like in the host.
+        for (String codeSource : codeSources) {
+            File file = new File(URI.create(codeSource));
+            if (file.isFile() && !classPath.contains(File.pathSeparator + file.getPath() + File.pathSeparator))
+                loader = new ModuleClassLoader(file, loader);
+        }
+
+        Class<?> modClass = Class.forName(className, true, loader);
+        if (!ModularModule.class.isAssignableFrom(modClass))
+            throw new ModRunEx("The module doesn't extends to ModularModule.");
+        return (ModularModule) modClass.getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * The source of the child : it forwards the health changes of its module to the host.
+     */
+    private static final class ChildSource extends ModularSource {
+        private final IsolationProtocol.Connection connection;
+
+        private ChildSource(String uuid, IsolationProtocol.Connection connection) throws ModUuidEx {
+            super(uuid);
+            this.connection = connection;
+        }
+
+        @Override
+        protected void onHealthChanged(ModularModule module, ModuleHealth oldHealth, ModuleHealth newHealth) {
+            super.onHealthChanged(module, oldHealth, newHealth);
+            try {
+                connection.send(IsolationProtocol.HEALTH, out -> out.writeByte(newHealth.ordinal()));
+            } catch (IOException e) {
+                Runtime.getRuntime().halt(1); // The host is gone.
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package works.nuka.modularkit.isolation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * IsolationProtocol - The binary protocol between the host and its child JVMs, over a Unix domain socket.
+ * <p>
+ * A frame is {@code [int length][byte type][payload]}, the length counts the type and the payload :
+ * <ul>
+ *     <li>HELLO (child) : String childId, long pid - the child is ready.</li>
+ *     <li>LOAD (host) : String sourceUuid, String className, int count, count * String codeSource,
+ *     long healthIntervalMillis - instantiate and register the module.</li>
+ *     <li>START (host), STOP (host) : boolean force - the module lifecycle.</li>
+ *     <li>SHUTDOWN (host) - exit the child.</li>
+ *     <li>ACK (child) : byte requestType - the request succeeded.</li>
+ *     <li>ERROR (child) : byte requestType, String message - the request failed.</li>
+ *     <li>HEALTH (child) : byte ModuleHealth ordinal - the health of the module changed.</li>
+ * </ul>
+ */
+final class IsolationProtocol {
+
+    static final byte HELLO = 1;
+    static final byte LOAD = 2;
+    static final byte START = 3;
+    static final byte STOP = 4;
+    static final byte SHUTDOWN = 5;
+    static final byte ACK = 6;
+    static final byte ERROR = 7;
+    static final byte HEALTH = 8;
+
+    private static final int MAX_FRAME = 1024 * 1024;
+
+    private IsolationProtocol() {
+    }
+
+    @FunctionalInterface
+    interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    record Frame(byte type, DataInputStream payload) {
+    }
+
+    /**
+     * One end of the socket : one reader thread, any number of writers.
+     */
+    static final class Connection implements AutoCloseable {
+        private final SocketChannel channel;
+        private final ByteBuffer header = ByteBuffer.allocate(4);
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void send(byte type, Payload payload) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(0); // Length, patched below.
+                out.writeByte(type);
+                if (payload != null)
+                    payload.write(out);
+            }
+
+            ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+            frame.putInt(0, frame.remaining() - 4);
+
+            synchronized (this) {
+                while (frame.hasRemaining())
+                    channel.write(frame);
+            }
+        }
+
+        // Only called by the reader thread.
+        Frame receive() throws IOException {
+            header.clear();
+            readFully(header);
+            int length = header.getInt(0);
+            if (length < 1 || length > MAX_FRAME)
+                throw new IOException("Malformed frame length " + length);
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body);
+            DataInputStream payload = new DataInputStream(new ByteArrayInputStream(body.array(), 1, length - 1));
+            return new Frame(body.get(0), payload);
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0)
+                    throw new EOFException("Connection closed");
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already closed.
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package works.nuka.modularkit.leaks;
+
+import java.util.List;
+
+/**
+ * Leak - A module or a module class loader still reachable after its release.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class Leak {
+
+    public enum Kind {
+        MODULE,
+        CLASS_LOADER
+    }
+
+    private final Kind kind;
+    private final String name;
+    private final String sourceUuid;
+    private final long releasedAt;
+    private final long retainedBytes;
+    private final List<String> retainingPath;
+
+    public Leak(Kind kind, String name, String sourceUuid, long releasedAt, long retainedBytes,
+                List<String> retainingPath) {
+        this.kind = kind;
+        this.name = name;
+        this.sourceUuid = sourceUuid;
+        this.releasedAt = releasedAt;
+        this.retainedBytes = retainedBytes;
+        this.retainingPath = List.copyOf(retainingPath);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return - Returns the module uuid, or the class loader name (eg : "Mod_hello.jar").
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String getSourceUuid() {
+        return sourceUuid;
+    }
+
+    /**
+     * @return - Returns when the module or the class loader was released (epoch millis).
+     */
+    public long getReleasedAt() {
+        return releasedAt;
+    }
+
+    /**
+     * @return - Returns the estimated heap retained by a leaked module, -1 if not estimated.
+     */
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * @return - Returns the path from a root to the leaked object, empty if unknown (only computed
+     * with a heap dump, see LeakTracker.report(Duration, Path)).
+     */
+    public List<String> getRetainingPath() {
+        return retainingPath;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder()
+                .append(kind).append(' ').append(name).append(" (source ").append(sourceUuid).append(')');
+        if (retainedBytes >= 0)
+            builder.append(", ~").append(retainedBytes).append(" bytes retained");
+        if (!retainingPath.isEmpty())
+            builder.append(", retained by ").append(String.join(" -> ", retainingPath));
+        return builder.toString();
+    }
+}
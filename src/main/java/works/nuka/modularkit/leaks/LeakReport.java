@@ -0,0 +1,84 @@
+package works.nuka.modularkit.leaks;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * LeakReport - An immutable snapshot of the released modules and class loaders still in the heap.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class LeakReport {
+
+    private final List<Leak> leaks;
+    private final long collectedCount;
+    private final long loadedClassCount;
+    private final long unloadedClassCount;
+    private final Path heapDump;
+
+    public LeakReport(List<Leak> leaks, long collectedCount, long loadedClassCount, long unloadedClassCount,
+                      Path heapDump) {
+        this.leaks = List.copyOf(leaks);
+        this.collectedCount = collectedCount;
+        this.loadedClassCount = loadedClassCount;
+        this.unloadedClassCount = unloadedClassCount;
+        this.heapDump = heapDump;
+    }
+
+    public List<Leak> getLeaks() {
+        return leaks;
+    }
+
+    /**
+     * @param sourceUuid - The ModularSource uuid.
+     * @return - Returns the leaks of one source.
+     */
+    public List<Leak> getLeaks(String sourceUuid) {
+        return leaks.stream().filter(leak -> sourceUuid.equals(leak.getSourceUuid())).toList();
+    }
+
+    public boolean hasLeaks() {
+        return !leaks.isEmpty();
+    }
+
+    /**
+     * @return - Returns how many released modules and class loaders were garbage collected so far.
+     */
+    public long getCollectedCount() {
+        return collectedCount;
+    }
+
+    /**
+     * @return - Returns the classes currently loaded in the JVM (the metaspace usage follows it).
+     */
+    public long getLoadedClassCount() {
+        return loadedClassCount;
+    }
+
+    /**
+     * @return - Returns the classes unloaded since the JVM start.
+     */
+    public long getUnloadedClassCount() {
+        return unloadedClassCount;
+    }
+
+    /**
+     * @return - Returns the heap dump written for the report, null if none.
+     */
+    public Path getHeapDump() {
+        return heapDump;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("LeakReport : ").append(leaks.size()).append(" leak(s), ")
+                .append(collectedCount).append(" collected, ").append(loadedClassCount).append(" classes loaded, ")
+                .append(unloadedClassCount).append(" unloaded");
+        if (heapDump != null)
+            builder.append(", heap dump ").append(heapDump);
+        for (Leak leak : leaks)
+            builder.append(System.lineSeparator()).append("  ").append(leak);
+        return builder.toString();
+    }
+}
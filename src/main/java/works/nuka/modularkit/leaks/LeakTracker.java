@@ -0,0 +1,302 @@
+package works.nuka.modularkit.leaks;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import works.nuka.modularkit.ModularModule;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.ModuleClassLoader;
+import works.nuka.modularkit.ModuleManager;
+import works.nuka.modularkit.ModuleScheduler;
+import works.nuka.modularkit.ResourceGovernor;
+import works.nuka.modularkit.diagnostics.Diagnostics;
+
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LeakTracker - Check that the released modules and module class loaders are garbage collected.
+ * <p>
+ * A ModularSource watches every module it unregisters (or replaces by an upgrade, or destroys) and every
+ * ModuleClassLoader it closes. The tracker only keeps a phantom and a weak reference on them : a watched object
+ * still reachable after a full GC is a leak, and keeps its classes in the metaspace.
+ * <p>
+ * With a heap dump, the report also gives the path from a root to each leak. The roots are the static state of
+ * the framework (the registered sources, the recorded classes...), the live threads and the roots added with
+ * addRoot() ; the heap dump itself can be opened with any HPROF analyzer for the paths from the other GC roots.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class LeakTracker {
+
+    private static final LeakTracker GLOBAL = new LeakTracker();
+    private static final List<Class<?>> FRAMEWORK_ROOTS = List.of(ModularSource.class, ModuleClassLoader.class,
+            ModuleManager.class, ModuleScheduler.class, ResourceGovernor.class, Diagnostics.class);
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final Set<Watched> watched = ConcurrentHashMap.newKeySet(); // Keeps the phantoms reachable.
+    private final Map<String, WeakReference<Object>> roots = new ConcurrentHashMap<>();
+    private final AtomicLong collected = new AtomicLong();
+    private volatile boolean enabled = true;
+
+    /**
+     * @return - Returns the LeakTracker fed by every ModularSource.
+     */
+    public static LeakTracker global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Enable or disable the watching of the released objects (enabled by default, it costs two references
+     * per released object).
+     *
+     * @param enabled - false to stop watching.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Watch a module released by its source : it should be garbage collected from now on.
+     *
+     * @param module     - The released module.
+     * @param sourceUuid - The uuid of its ModularSource.
+     */
+    public void watchModule(ModularModule module, String sourceUuid) {
+        watch(module, Leak.Kind.MODULE, module.getUuid(), sourceUuid);
+    }
+
+    /**
+     * Watch a closed module class loader : it should be garbage collected, with its classes, from now on.
+     *
+     * @param loader     - The closed class loader.
+     * @param sourceUuid - The uuid of its ModularSource.
+     */
+    public void watchClassLoader(ClassLoader loader, String sourceUuid) {
+        watch(loader, Leak.Kind.CLASS_LOADER, String.valueOf(loader.getName()), sourceUuid);
+    }
+
+    /**
+     * Add a root of the application to the retaining path search. The root is weakly referenced.
+     *
+     * @param name - The name of the root in the paths.
+     * @param root - The root object.
+     */
+    public void addRoot(String name, Object root) {
+        roots.put(name, new WeakReference<>(root));
+    }
+
+    public void removeRoot(String name) {
+        roots.remove(name);
+    }
+
+    /**
+     * @return - Returns how many watched objects are not collected yet.
+     */
+    public int getWatchedCount() {
+        drain();
+        return watched.size();
+    }
+
+    /**
+     * @return - Returns how many watched objects were garbage collected.
+     */
+    public long getCollectedCount() {
+        drain();
+        return collected.get();
+    }
+
+    /**
+     * Report the watched objects not collected yet, without triggering a GC : a recent release is not a leak yet.
+     *
+     * @return - Returns the LeakReport.
+     */
+    public LeakReport report() {
+        return buildReport(alive(), null, false);
+    }
+
+    /**
+     * Request GCs until every watched object is collected or the timeout expires, then report the survivors.
+     *
+     * @param gcTimeout - How long the released objects can take to be collected.
+     * @return - Returns the LeakReport.
+     * @throws InterruptedException - If interrupted while waiting for the GC.
+     */
+    public LeakReport report(Duration gcTimeout) throws InterruptedException {
+        return buildReport(awaitCollection(gcTimeout), null, false);
+    }
+
+    /**
+     * Like report(Duration), and if leaks remain : write a heap dump, then compute the retaining path and the
+     * retained heap of each leak.
+     *
+     * @param gcTimeout - How long the released objects can take to be collected.
+     * @param heapDump  - The .hprof file to write, it must not exist.
+     * @return - Returns the LeakReport, with the paths.
+     * @throws InterruptedException - If interrupted while waiting for the GC.
+     * @throws IOException          - If the heap dump cannot be written.
+     */
+    public LeakReport report(Duration gcTimeout, Path heapDump) throws InterruptedException, IOException {
+        List<Watched> leaks = awaitCollection(gcTimeout);
+        if (leaks.isEmpty())
+            return buildReport(leaks, null, false);
+
+        dumpHeap(heapDump, true);
+        return buildReport(leaks, heapDump, true);
+    }
+
+    /**
+     * Estimate the heap retained by a module : the objects reachable from the module, without the framework,
+     * the other modules, the classes and the threads. It walks the object graph, do not call it in a hot path.
+     *
+     * @param module - The module.
+     * @return - Returns the estimated bytes.
+     */
+    public static long estimateRetainedBytes(ModularModule module) {
+        return ObjectGraph.estimateRetainedBytes(module);
+    }
+
+    /**
+     * Estimate the heap retained by every module of a source, see estimateRetainedBytes(ModularModule).
+     *
+     * @param source - The ModularSource.
+     * @return - Returns the estimated bytes, keyed by module uuid.
+     */
+    public static Map<String, Long> estimateRetainedBytes(ModularSource source) {
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        for (ModularModule module : source.getUnmodifiableModuleMap().values())
+            estimates.put(module.getUuid(), ObjectGraph.estimateRetainedBytes(module));
+        return estimates;
+    }
+
+    /**
+     * Write a heap dump with the HotSpotDiagnosticMXBean.
+     *
+     * @param file - The .hprof file to write, it must not exist.
+     * @param live - true to only dump the reachable objects (triggers a full GC).
+     * @throws IOException - If the file cannot be written, or the JVM is not HotSpot.
+     */
+    public static void dumpHeap(Path file, boolean live) throws IOException {
+        HotSpotDiagnosticMXBean bean;
+        try {
+            bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("The heap dumps need a HotSpot JVM !", e);
+        }
+        if (bean == null)
+            throw new IOException("The heap dumps need a HotSpot JVM !");
+
+        bean.dumpHeap(file.toAbsolutePath().toString(), live);
+    }
+
+    private void watch(Object object, Leak.Kind kind, String name, String sourceUuid) {
+        if (!enabled)
+            return;
+
+        drain();
+        watched.add(new Watched(object, queue, kind, name, sourceUuid));
+    }
+
+    private void drain() {
+        Reference<?> reference;
+        while ((reference = queue.poll()) != null)
+            if (watched.remove((Watched) reference))
+                collected.incrementAndGet();
+    }
+
+    private List<Watched> alive() {
+        drain();
+        List<Watched> alive = new ArrayList<>();
+        for (Watched w : watched)
+            if (!w.weak.refersTo(null))
+                alive.add(w);
+        return alive;
+    }
+
+    private List<Watched> awaitCollection(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<Watched> alive = alive();
+
+        while (!alive.isEmpty() && System.nanoTime() - deadline < 0) {
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(20);
+            alive = alive();
+        }
+        return alive;
+    }
+
+    private LeakReport buildReport(List<Watched> survivors, Path heapDump, boolean analyze) {
+        Map<Object, List<String>> paths = Map.of();
+        List<Object> targets = new ArrayList<>();
+
+        if (analyze) {
+            for (Watched w : survivors) {
+                Object target = w.weak.get();
+                if (target != null)
+                    targets.add(target);
+            }
+            paths = ObjectGraph.findPaths(collectRoots(), targets);
+        }
+
+        List<Leak> leaks = new ArrayList<>();
+        for (Watched w : survivors) {
+            Object target = analyze ? w.weak.get() : null;
+            List<String> path = target != null ? paths.getOrDefault(target, List.of()) : List.of();
+            long retained = target instanceof ModularModule module ? ObjectGraph.estimateRetainedBytes(module) : -1;
+            leaks.add(new Leak(w.kind, w.name, w.sourceUuid, w.releasedAt, retained, path));
+        }
+        targets.clear();
+
+        ClassLoadingMXBean classes = ManagementFactory.getClassLoadingMXBean();
+        return new LeakReport(leaks, collected.get(), classes.getLoadedClassCount(),
+                classes.getUnloadedClassCount(), heapDump);
+    }
+
+    private Map<String, Object> collectRoots() {
+        Map<String, Object> all = new LinkedHashMap<>();
+        for (Class<?> root : FRAMEWORK_ROOTS)
+            all.put("class " + root.getName(), root);
+        for (Map.Entry<String, WeakReference<Object>> root : roots.entrySet()) {
+            Object object = root.getValue().get();
+            if (object != null)
+                all.put(root.getKey(), object);
+        }
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+            all.put("thread " + thread.getName() + " #" + thread.threadId(), thread);
+        return all;
+    }
+
+    private static final class Watched extends PhantomReference<Object> {
+        private final WeakReference<Object> weak; // Only used by the retaining path search.
+        private final Leak.Kind kind;
+        private final String name;
+        private final String sourceUuid;
+        private final long releasedAt = System.currentTimeMillis();
+
+        private Watched(Object object, ReferenceQueue<Object> queue, Leak.Kind kind, String name, String sourceUuid) {
+            super(object, queue);
+            this.weak = new WeakReference<>(object);
+            this.kind = kind;
+            this.name = name;
+            this.sourceUuid = sourceUuid;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package works.nuka.modularkit.leaks;
+
+import works.nuka.modularkit.ModularModule;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.ModuleManager;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * ObjectGraph - A reflective walk of the heap from a set of roots, without any agent.
+ * <p>
+ * The fields of the classes open to ModularKit are followed by reflection. The JDK classes are strongly
+ * encapsulated : the collections, the maps and the atomic references are followed through their public API,
+ * the other JDK objects are leaves. The references (weak, soft, phantom) are never followed.
+ */
+final class ObjectGraph {
+
+    static final int MAX_OBJECTS = 2_000_000;
+
+    private static final Module SELF = ObjectGraph.class.getModule();
+
+    private static final ClassValue<Field[]> INSTANCE_FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            return referenceFields(type, false);
+        }
+    };
+
+    private static final ClassValue<Field[]> STATIC_FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            return referenceFields(type, true);
+        }
+    };
+
+    private static final ClassValue<Long> SHALLOW_SIZES = new ClassValue<>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            long size = 12; // Compressed object header.
+            for (Class<?> c = type; c != null; c = c.getSuperclass())
+                for (Field field : c.getDeclaredFields())
+                    if (!Modifier.isStatic(field.getModifiers()))
+                        size += slotSize(field.getType());
+            return align(size);
+        }
+    };
+
+    private ObjectGraph() {
+    }
+
+    /**
+     * Find the shortest path from the roots to each leaked object. A ClassLoader is retained by itself, its
+     * classes and every instance of its classes.
+     *
+     * @param roots   - The named roots of the walk.
+     * @param targets - The leaked modules and class loaders.
+     * @return - Returns the path of every target found, keyed by identity.
+     */
+    static Map<Object, List<String>> findPaths(Map<String, Object> roots, Collection<Object> targets) {
+        Map<Object, List<String>> paths = new IdentityHashMap<>();
+        Set<Object> objectTargets = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<ClassLoader> loaderTargets = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object target : targets) {
+            objectTargets.add(target);
+            if (target instanceof ClassLoader loader)
+                loaderTargets.add(loader);
+        }
+
+        Map<Object, Step> visited = new IdentityHashMap<>();
+        ArrayDeque<Object> queue = new ArrayDeque<>();
+        for (Map.Entry<String, Object> root : roots.entrySet())
+            if (root.getValue() != null && visited.putIfAbsent(root.getValue(), new Step(null, root.getKey())) == null)
+                queue.add(root.getValue());
+
+        while (!queue.isEmpty() && paths.size() < objectTargets.size() && visited.size() < MAX_OBJECTS) {
+            Object object = queue.poll();
+
+            Object hit = objectTargets.contains(object) ? object : null;
+            if (hit == null) {
+                ClassLoader loader = object instanceof Class<?> type ? type.getClassLoader()
+                        : object.getClass().getClassLoader();
+                if (loader != null && loaderTargets.contains(loader))
+                    hit = loader;
+            }
+
+            if (hit != null) {
+                paths.putIfAbsent(hit, render(object, visited));
+                continue; // The path ends at the first retained object.
+            }
+
+            forEachEdge(object, true, (label, next) -> {
+                if (visited.size() < MAX_OBJECTS && visited.putIfAbsent(next, new Step(object, label)) == null)
+                    queue.add(next);
+            });
+        }
+
+        return paths;
+    }
+
+    /**
+     * Estimate the heap retained by a module : the shallow size of the objects reachable from the module,
+     * without crossing into the framework, the other modules, the classes and the threads.
+     *
+     * @param module - The module instance.
+     * @return - Returns the estimated bytes.
+     */
+    static long estimateRetainedBytes(ModularModule module) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Object> queue = new ArrayDeque<>();
+        visited.add(module);
+        queue.add(module);
+        long bytes = 0;
+
+        while (!queue.isEmpty()) {
+            Object object = queue.poll();
+            bytes += shallowSize(object);
+
+            forEachEdge(object, false, (label, next) -> {
+                if (next instanceof Class<?> || next instanceof ClassLoader || next instanceof Thread
+                        || next instanceof ModularSource || next instanceof ModuleManager
+                        || next instanceof ModularModule)
+                    return; // Shared, not owned by the module.
+
+                if (visited.size() < MAX_OBJECTS && visited.add(next))
+                    queue.add(next);
+            });
+        }
+
+        return bytes;
+    }
+
+    static long shallowSize(Object object) {
+        Class<?> type = object.getClass();
+        if (type.isArray())
+            return align(16 + (long) Array.getLength(object) * slotSize(type.getComponentType()));
+        if (object instanceof String string)
+            return SHALLOW_SIZES.get(String.class) + align(16 + string.length()); // The value array, Latin-1.
+        return SHALLOW_SIZES.get(type);
+    }
+
+    private static void forEachEdge(Object object, boolean withClasses, BiConsumer<Object, Object> edge) {
+        Class<?> type = object.getClass();
+
+        if (object instanceof Reference<?>)
+            return; // Never retains its referent.
+
+        if (object instanceof Class<?> c) {
+            for (Field field : STATIC_FIELDS.get(c))
+                follow(field, null, edge);
+            if (c.getClassLoader() != null)
+                edge.accept("<classloader>", c.getClassLoader());
+            return;
+        }
+
+        if (withClasses)
+            edge.accept("<class>", type);
+
+        if (type.isArray()) {
+            if (!type.getComponentType().isPrimitive()) {
+                Object[] array = (Object[]) object;
+                for (int i = 0; i < array.length; i++)
+                    if (array[i] != null)
+                        edge.accept(i, array[i]);
+            }
+            return;
+        }
+
+        if (object instanceof Thread thread && thread.getContextClassLoader() != null)
+            edge.accept("<contextClassLoader>", thread.getContextClassLoader());
+
+        boolean encapsulated = false;
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            if (!isOpen(c)) {
+                encapsulated = true;
+                continue;
+            }
+            for (Field field : INSTANCE_FIELDS.get(c))
+                follow(field, object, edge);
+        }
+
+        if (encapsulated) {
+            try {
+                if (object instanceof Map<?, ?> map) {
+                    for (Map.Entry<?, ?> entry : map.entrySet()) {
+                        if (entry.getKey() != null)
+                            edge.accept("<key>", entry.getKey());
+                        if (entry.getValue() != null)
+                            edge.accept("[" + describeKey(entry.getKey()) + "]", entry.getValue());
+                    }
+                } else if (object instanceof Collection<?> collection) {
+                    for (Object element : collection)
+                        if (element != null)
+                            edge.accept("<element>", element);
+                } else if (object instanceof AtomicReference<?> reference && reference.get() != null)
+                    edge.accept("<value>", reference.get());
+            } catch (RuntimeException ignored) {
+                // Concurrently modified, the walk is best effort.
+            }
+        }
+    }
+
+    private static void follow(Field field, Object object, BiConsumer<Object, Object> edge) {
+        try {
+            Object next = field.get(object);
+            if (next != null)
+                edge.accept(field, next);
+        } catch (IllegalAccessException | RuntimeException ignored) {
+            // Not readable.
+        }
+    }
+
+    private static Field[] referenceFields(Class<?> type, boolean statics) {
+        if (!isOpen(type))
+            return new Field[0];
+
+        List<Field> fields = new ArrayList<>();
+        try {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) != statics || field.getType().isPrimitive())
+                    continue;
+                try {
+                    field.setAccessible(true);
+                    fields.add(field);
+                } catch (RuntimeException ignored) {
+                    // Not open to ModularKit.
+                }
+            }
+        } catch (LinkageError ignored) {
+            // A field type cannot be resolved.
+        }
+        return fields.toArray(new Field[0]);
+    }
+
+    private static boolean isOpen(Class<?> type) {
+        return type.getModule().isOpen(type.getPackageName(), SELF);
+    }
+
+    private static List<String> render(Object target, Map<Object, Step> visited) {
+        List<String> path = new ArrayList<>();
+        Object object = target;
+        while (object != null) {
+            Step step = visited.get(object);
+            String label = step.label instanceof Field field
+                    ? field.getDeclaringClass().getSimpleName() + "." + field.getName()
+                    : step.label instanceof Integer index ? "[" + index + "]" : String.valueOf(step.label);
+            path.add(step.parent == null ? label : label + " : " + describe(object));
+            object = step.parent;
+        }
+
+        Collections.reverse(path);
+        return path;
+    }
+
+    private static String describe(Object object) {
+        Class<?> type = object instanceof Class<?> c ? c : object.getClass();
+        ClassLoader loader = type.getClassLoader();
+        String prefix = object instanceof Class<?> ? "class " : "";
+        return prefix + type.getName() + (loader != null && loader.getName() != null && !(object instanceof ClassLoader)
+                ? " (" + loader.getName() + ")" : "");
+    }
+
+    private static String describeKey(Object key) {
+        if (key instanceof String || key instanceof Number || key instanceof Enum<?>)
+            return key.toString();
+        return key == null ? "null" : key.getClass().getSimpleName();
+    }
+
+    private static long slotSize(Class<?> type) {
+        if (type == long.class || type == double.class)
+            return 8;
+        if (type == int.class || type == float.class)
+            return 4;
+        if (type == short.class || type == char.class)
+            return 2;
+        if (type == byte.class || type == boolean.class)
+            return 1;
+        return 4; // Compressed reference.
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private record Step(Object parent, Object label) {
+    }
+}
@@ -0,0 +1,34 @@
+package works.nuka.modularkit.processor;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mark a ModularModule for the build-time descriptor generation.
+ * <p>
+ * The ModuleDescriptorProcessor generates a $Class_ModularFactory next to the annotated class and
+ * registers it as a works.nuka.modularkit.ModuleFactory service. The metadata declared here must
+ * match the values given to the ModularModule constructor, they are readable without instantiating
+ * the module.
+ *
+ * @since 1.8
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface ModuleDescriptor {
+
+    /**
+     * @return - The module uuid (8 chars), optional.
+     */
+    String uuid() default "";
+
+    String name() default "";
+
+    String author() default "";
+
+    String version() default "";
+}
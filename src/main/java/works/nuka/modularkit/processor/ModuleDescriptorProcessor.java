@@ -0,0 +1,192 @@
+package works.nuka.modularkit.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * ModuleDescriptorProcessor - Generate a reflection-free ModuleFactory for every @ModuleDescriptor class.
+ * <p>
+ * For a module com.example.Foo, it generates com.example.Foo_ModularFactory and lists it in
+ * META-INF/services/works.nuka.modularkit.ModuleFactory.
+ *
+ * @since 1.8
+ */
+public class ModuleDescriptorProcessor extends AbstractProcessor {
+
+    private static final String MODULE_CLASS = "works.nuka.modularkit.ModularModule";
+    private static final String FACTORY_CLASS = "works.nuka.modularkit.ModuleFactory";
+    private static final String FACTORY_SUFFIX = "_ModularFactory";
+
+    private final Set<String> factories = new TreeSet<>();
+    private Filer filer;
+    private Messager messager;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        filer = processingEnv.getFiler();
+        messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Set.of(ModuleDescriptor.class.getCanonicalName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(ModuleDescriptor.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@ModuleDescriptor can only be used on a class.");
+                continue;
+            }
+
+            TypeElement type = (TypeElement) element;
+            if (isValid(type))
+                generateFactory(type);
+        }
+
+        if (roundEnv.processingOver() && !factories.isEmpty())
+            writeServiceFile();
+
+        return true;
+    }
+
+    private boolean isValid(TypeElement type) {
+        TypeElement moduleType = processingEnv.getElementUtils().getTypeElement(MODULE_CLASS);
+        if (moduleType == null) {
+            error(type, MODULE_CLASS + " is not on the classpath.");
+            return false;
+        }
+
+        TypeMirror erasure = processingEnv.getTypeUtils().erasure(moduleType.asType());
+        if (!processingEnv.getTypeUtils().isSubtype(type.asType(), erasure)) {
+            error(type, "The module doesn't extends to ModularModule.");
+            return false;
+        }
+
+        if (type.getModifiers().contains(Modifier.ABSTRACT) || type.getModifiers().contains(Modifier.PRIVATE)) {
+            error(type, "A module cannot be abstract or private.");
+            return false;
+        }
+
+        if (type.getNestingKind() != NestingKind.TOP_LEVEL && !(type.getNestingKind() == NestingKind.MEMBER
+                && type.getModifiers().contains(Modifier.STATIC))) {
+            error(type, "A nested module must be a static member class.");
+            return false;
+        }
+
+        boolean hasNoArgConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements()))
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE))
+                hasNoArgConstructor = true;
+
+        if (!hasNoArgConstructor) {
+            error(type, "A module needs a non-private constructor without parameters.");
+            return false;
+        }
+
+        String uuid = type.getAnnotation(ModuleDescriptor.class).uuid();
+        if (!uuid.isEmpty() && uuid.length() != 8) {
+            error(type, "uuid is incorrect !");
+            return false;
+        }
+
+        return true;
+    }
+
+    private void generateFactory(TypeElement type) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleBinaryName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+        String factoryName = simpleBinaryName.replace('$', '_') + FACTORY_SUFFIX;
+        String qualifiedFactory = packageName.isEmpty() ? factoryName : packageName + "." + factoryName;
+        ModuleDescriptor descriptor = type.getAnnotation(ModuleDescriptor.class);
+
+        try (Writer w = filer.createSourceFile(qualifiedFactory, type).openWriter()) {
+            if (!packageName.isEmpty())
+                w.write("package " + packageName + ";\n\n");
+
+            w.write("@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")\n");
+            w.write("public final class " + factoryName + " implements " + FACTORY_CLASS + " {\n\n");
+            w.write("    public " + factoryName + "() {\n    }\n\n");
+            w.write("    @Override\n");
+            w.write("    public " + MODULE_CLASS + " newInstance() throws Exception {\n");
+            w.write("        return new " + type.getQualifiedName() + "();\n    }\n");
+            writeGetter(w, "getModuleClassName", binaryName);
+            writeGetter(w, "getUuid", descriptor.uuid());
+            writeGetter(w, "getModuleName", descriptor.name());
+            writeGetter(w, "getAuthor", descriptor.author());
+            writeGetter(w, "getVersion", descriptor.version());
+            w.write("}\n");
+        } catch (IOException e) {
+            error(type, "Cannot generate " + qualifiedFactory + " : " + e.getMessage());
+            return;
+        }
+
+        factories.add(qualifiedFactory);
+    }
+
+    private static void writeGetter(Writer w, String name, String value) throws IOException {
+        w.write("\n    @Override\n");
+        w.write("    public String " + name + "() {\n");
+        w.write("        return \"" + escape(value) + "\";\n    }\n");
+    }
+
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void writeServiceFile() {
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "",
+                    "META-INF/services/" + FACTORY_CLASS);
+            try (Writer w = file.openWriter()) {
+                for (String factory : factories)
+                    w.write(factory + "\n");
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Cannot write the ModuleFactory services : " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
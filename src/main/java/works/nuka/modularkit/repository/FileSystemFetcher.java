@@ -0,0 +1,55 @@
+package works.nuka.modularkit.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * FileSystemFetcher - A ModuleFetcher reading the module files of a directory (eg : a network mount).
+ *
+ * @since 1.8
+ */
+public class FileSystemFetcher implements ModuleFetcher {
+
+    private final File directory;
+    private final String extension;
+
+    /**
+     * @param directory     - The directory of the module files.
+     * @param fileExtension - The extension of the module files.
+     */
+    public FileSystemFetcher(File directory, String fileExtension) {
+        if (fileExtension == null || fileExtension.isEmpty())
+            throw new IllegalArgumentException("You need to set a custom file extension !");
+
+        this.directory = directory;
+        this.extension = fileExtension.startsWith(".") ? fileExtension : "." + fileExtension;
+    }
+
+    @Override
+    public List<ModuleArtifact> listArtifacts() throws IOException {
+        List<ModuleArtifact> artifacts = new ArrayList<>();
+
+        try (Stream<Path> files = Files.list(directory.toPath())) {
+            for (Path file : files.filter(Files::isRegularFile)
+                    .filter(e -> e.getFileName().toString().endsWith(extension))
+                    .sorted()
+                    .toList()) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    artifacts.add(new ModuleArtifact(file.getFileName().toString(), ModuleCache.sha256(in)));
+                }
+            }
+        }
+        return artifacts;
+    }
+
+    @Override
+    public InputStream open(ModuleArtifact artifact) throws IOException {
+        return Files.newInputStream(new File(directory, artifact.getName()).toPath());
+    }
+}
@@ -0,0 +1,96 @@
+package works.nuka.modularkit.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HttpFetcher - A ModuleFetcher downloading the module files from an HTTP repository :
+ * <ul>
+ *     <li>{@code <base>/index} lists the module set, one {@code <sha256> <name>} per line,</li>
+ *     <li>{@code <base>/<name>} is the content of a module file.</li>
+ * </ul>
+ *
+ * @since 1.8
+ */
+public class HttpFetcher implements ModuleFetcher {
+
+    private final URI base;
+    private final HttpClient client;
+    private final Duration timeout;
+
+    /**
+     * @param base - The base URI of the repository.
+     */
+    public HttpFetcher(URI base) {
+        this(base, Duration.ofSeconds(30));
+    }
+
+    /**
+     * @param base    - The base URI of the repository.
+     * @param timeout - The connect and request timeout.
+     */
+    public HttpFetcher(URI base, Duration timeout) {
+        this.base = base.toString().endsWith("/") ? base : URI.create(base + "/");
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Override
+    public List<ModuleArtifact> listArtifacts() throws IOException {
+        List<ModuleArtifact> artifacts = new ArrayList<>();
+
+        for (String line : send(base.resolve("index"), HttpResponse.BodyHandlers.ofString()).lines().toList()) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            String[] parts = line.split("\\s+", 2);
+            if (parts.length != 2)
+                throw new IOException("Malformed index line : " + line);
+
+            try {
+                artifacts.add(new ModuleArtifact(parts[1], parts[0]));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed index line : " + line, e);
+            }
+        }
+        return artifacts;
+    }
+
+    @Override
+    public InputStream open(ModuleArtifact artifact) throws IOException {
+        String name = URLEncoder.encode(artifact.getName(), StandardCharsets.UTF_8).replace("+", "%20");
+        return send(base.resolve(name), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private <T> T send(URI uri, HttpResponse.BodyHandler<T> handler) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+        HttpResponse<T> response;
+
+        try {
+            response = client.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading " + uri, e);
+        }
+
+        if (response.statusCode() != 200) {
+            if (response.body() instanceof InputStream in)
+                in.close();
+            throw new IOException("GET " + uri + " returned " + response.statusCode());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,61 @@
+package works.nuka.modularkit.repository;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * ModuleArtifact - A module file of a repository, identified by the SHA-256 of its content.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class ModuleArtifact {
+
+    private final String name;
+    private final String sha256;
+
+    /**
+     * @param name   - The file name of the module in the repository, eg : "hello-1.0.jar".
+     * @param sha256 - The SHA-256 of the file content, in hexadecimal.
+     */
+    public ModuleArtifact(String name, String sha256) {
+        if (name == null || name.isEmpty() || name.contains("/") || name.contains("\\"))
+            throw new IllegalArgumentException("Invalid artifact name : " + name);
+        if (sha256 == null || !sha256.matches("[0-9a-fA-F]{64}"))
+            throw new IllegalArgumentException("Invalid SHA-256 for " + name + " : " + sha256);
+
+        this.name = name;
+        this.sha256 = sha256.toLowerCase(Locale.ROOT);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    /**
+     * @return - Returns the file extension of the artifact name with its dot, eg : ".jar", or "" without extension.
+     */
+    public String getExtension() {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(dot) : "";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ModuleArtifact other && name.equals(other.name) && sha256.equals(other.sha256);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, sha256);
+    }
+
+    @Override
+    public String toString() {
+        return name + "@" + sha256.substring(0, 12);
+    }
+}
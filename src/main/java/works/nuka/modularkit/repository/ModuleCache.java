@@ -0,0 +1,271 @@
+package works.nuka.modularkit.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ModuleCache - A local content-addressed store of module files, with a size limit.
+ * <p>
+ * Each file is stored as {@code <sha256><extension>} and only added after its hash was checked, so a cached
+ * file can be trusted as long as its name. When the cache grows over its size limit, the least recently used
+ * files are deleted. The files already in the directory are reused, in their last access order.
+ * <p>
+ * A pinned content (being pulled, or loaded by a source) is never deleted : while the pinned files do not fit,
+ * the cache stays over its size limit.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public class ModuleCache {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // LRU order.
+    private final Map<String, Integer> pins = new HashMap<>(); // sha256 -> pin count, cached or not yet
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long totalBytes;
+
+    /**
+     * @param directory - The cache directory, created if needed.
+     * @param maxBytes  - The size limit of the cache, in bytes.
+     * @throws IOException - If the directory cannot be created or read.
+     */
+    public ModuleCache(File directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("The cache size must be positive !");
+
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory.toPath());
+
+        File[] files = directory.listFiles();
+        if (files == null)
+            throw new IOException("Cannot read the cache directory " + directory);
+
+        List<File> existing = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(".part"))
+                Files.deleteIfExists(file.toPath()); // Interrupted download.
+            else if (file.isFile() && keyOf(file) != null)
+                existing.add(file);
+        }
+
+        existing.sort(Comparator.comparingLong(File::lastModified));
+        for (File file : existing) {
+            Entry entry = new Entry(file, file.length());
+            entries.put(keyOf(file), entry);
+            totalBytes += entry.size;
+        }
+        evict(null);
+    }
+
+    /**
+     * Get a cached file, and mark it as recently used.
+     *
+     * @param sha256 - The SHA-256 of the content.
+     * @return - Returns the cached file, or null if the content is not cached.
+     */
+    public synchronized File get(String sha256) {
+        Entry entry = entries.get(sha256);
+        if (entry == null || !entry.file.isFile()) {
+            if (entry != null)
+                remove(sha256); // Deleted behind our back.
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        entry.file.setLastModified(System.currentTimeMillis()); // Keep the LRU order across restarts.
+        return entry.file;
+    }
+
+    /**
+     * Store a content in the cache, after checking its hash.
+     *
+     * @param sha256    - The expected SHA-256 of the content.
+     * @param extension - The file extension of the cached file, eg : ".jar".
+     * @param in        - The content, read until its end (not closed).
+     * @return - Returns the cached file.
+     * @throws IOException - If the content cannot be written or does not match the hash.
+     */
+    public File put(String sha256, String extension, InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        Path part = Files.createTempFile(directory.toPath(), sha256, ".part");
+
+        try {
+            long size;
+            try (OutputStream out = Files.newOutputStream(part)) {
+                size = new DigestInputStream(in, digest).transferTo(out);
+            }
+
+            String actual = HexFormat.of().formatHex(digest.digest());
+            if (!actual.equals(sha256))
+                throw new IOException("Content mismatch : expected " + sha256 + ", got " + actual);
+
+            File target = new File(directory, sha256 + extension);
+
+            synchronized (this) {
+                Entry previous = entries.get(sha256);
+                if (previous != null && previous.file.isFile() && pins.containsKey(sha256))
+                    return previous.file; // Same content, and a class loader may read this file.
+
+                entries.remove(sha256);
+                if (previous != null) {
+                    totalBytes -= previous.size;
+                    if (!previous.file.equals(target))
+                        previous.file.delete();
+                }
+
+                Files.move(part, target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                entries.put(sha256, new Entry(target, size));
+                totalBytes += size;
+                evict(sha256);
+            }
+            return target;
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    /**
+     * Remove a content from the cache.
+     *
+     * @param sha256 - The SHA-256 of the content.
+     * @return - Returns true if the content was cached.
+     */
+    public synchronized boolean remove(String sha256) {
+        Entry entry = entries.remove(sha256);
+        if (entry == null)
+            return false;
+
+        totalBytes -= entry.size;
+        entry.file.delete();
+        return true;
+    }
+
+    /**
+     * Protect contents from the eviction, until they are unpinned. A content can be pinned before it is cached,
+     * and pinned several times.
+     *
+     * @param sha256s - The SHA-256 of the contents.
+     */
+    public synchronized void pin(Collection<String> sha256s) {
+        for (String sha256 : sha256s)
+            pins.merge(sha256, 1, Integer::sum);
+    }
+
+    /**
+     * Release the pins of pin(), the cache then evicts the contents over its size limit.
+     *
+     * @param sha256s - The SHA-256 of the contents.
+     */
+    public synchronized void unpin(Collection<String> sha256s) {
+        for (String sha256 : sha256s)
+            pins.computeIfPresent(sha256, (k, count) -> count > 1 ? count - 1 : null);
+        evict(null);
+    }
+
+    public synchronized boolean isPinned(String sha256) {
+        return pins.containsKey(sha256);
+    }
+
+    public synchronized boolean contains(String sha256) {
+        return entries.containsKey(sha256);
+    }
+
+    /**
+     * @return - Returns the size of the cached files, in bytes.
+     */
+    public synchronized long getSize() {
+        return totalBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    // Delete the least recently used files until the cache fits, the kept and pinned entries are never deleted.
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (eldest.getKey().equals(keep) || pins.containsKey(eldest.getKey()))
+                continue;
+
+            totalBytes -= eldest.getValue().size;
+            eldest.getValue().file.delete();
+            it.remove();
+        }
+    }
+
+    private static String keyOf(File file) {
+        String name = file.getName();
+        if (name.length() < 64)
+            return null;
+
+        String key = name.substring(0, 64);
+        return key.matches("[0-9a-f]{64}") && (name.length() == 64 || name.charAt(64) == '.') ? key : null;
+    }
+
+    /**
+     * @param in - A content, read until its end (not closed).
+     * @return - Returns the SHA-256 of the content, in hexadecimal.
+     * @throws IOException - If the content cannot be read.
+     */
+    public static String sha256(InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (int read; (read = in.read(buffer)) != -1; )
+            digest.update(buffer, 0, read);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available !", e); // Required by every JDK.
+        }
+    }
+
+    private record Entry(File file, long size) {
+    }
+}
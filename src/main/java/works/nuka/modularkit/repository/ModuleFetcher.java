@@ -0,0 +1,27 @@
+package works.nuka.modularkit.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * ModuleFetcher - Where a ModuleRepository downloads its module files from.
+ * The methods can be called concurrently.
+ *
+ * @since 1.8
+ */
+public interface ModuleFetcher {
+
+    /**
+     * @return - Returns the module set currently published by the remote repository.
+     * @throws IOException - If the module set cannot be read.
+     */
+    List<ModuleArtifact> listArtifacts() throws IOException;
+
+    /**
+     * @param artifact - The artifact to download.
+     * @return - Returns the content of the artifact, closed by the caller.
+     * @throws IOException - If the artifact cannot be downloaded.
+     */
+    InputStream open(ModuleArtifact artifact) throws IOException;
+}
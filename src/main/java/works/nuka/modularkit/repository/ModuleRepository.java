@@ -0,0 +1,236 @@
+package works.nuka.modularkit.repository;
+
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.ex.ModSourceEx;
+import works.nuka.modularkit.ex.ModUuidEx;
+import works.nuka.modularkit.security.JarVerifier;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ModuleRepository - Pull module sets from a remote ModuleFetcher, through a local ModuleCache.
+ * <p>
+ * A cached artifact is never downloaded again, even after a restart. The downloads run concurrently (on
+ * virtual threads by default) and are deduplicated : while an artifact is downloading, the other requests
+ * for the same content wait for the same download. The artifacts of a pull, and of a source created by
+ * createSource(), are pinned in the cache : a module set larger than the cache is not evicted while in use.
+ *
+ * <pre>{@code
+ * ModuleRepository repository = new ModuleRepository(new HttpFetcher(URI.create("http://repo:8080/modules/")),
+ *         new ModuleCache(new File("/var/cache/modules"), 512L * 1024 * 1024));
+ * ModularSource source = repository.createSource("e3640e55", null);
+ * }</pre>
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public class ModuleRepository {
+
+    private final ModuleFetcher fetcher;
+    private final ModuleCache cache;
+    private final Executor executor;
+    private final Map<String, CompletableFuture<File>> inFlight = new ConcurrentHashMap<>(); // sha256 -> download
+    private final AtomicLong downloads = new AtomicLong();
+
+    public ModuleRepository(ModuleFetcher fetcher, ModuleCache cache) {
+        this(fetcher, cache, Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ModularKit-Fetch-", 0)
+                .factory()));
+    }
+
+    /**
+     * @param fetcher  - Where the artifacts are downloaded from.
+     * @param cache    - The local cache of the artifacts.
+     * @param executor - The Executor running the downloads.
+     */
+    public ModuleRepository(ModuleFetcher fetcher, ModuleCache cache, Executor executor) {
+        if (fetcher == null || cache == null || executor == null)
+            throw new IllegalArgumentException("The fetcher, cache and executor cannot be null !");
+
+        this.fetcher = fetcher;
+        this.cache = cache;
+        this.executor = executor;
+    }
+
+    /**
+     * Get an artifact from the cache, or download it.
+     *
+     * @param artifact - The artifact.
+     * @return - Returns a future of the cached file of the artifact.
+     */
+    public CompletableFuture<File> fetchAsync(ModuleArtifact artifact) {
+        String key = artifact.getSha256();
+        File cached = cache.get(key);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        CompletableFuture<File> download = new CompletableFuture<>();
+        CompletableFuture<File> running = inFlight.putIfAbsent(key, download);
+        if (running != null)
+            return running;
+
+        try {
+            executor.execute(() -> download(artifact, download));
+        } catch (RuntimeException e) {
+            inFlight.remove(key, download);
+            download.completeExceptionally(e);
+        }
+        return download;
+    }
+
+    private void download(ModuleArtifact artifact, CompletableFuture<File> download) {
+        String key = artifact.getSha256();
+
+        try {
+            File file = cache.get(key); // Downloaded between our cache miss and our registration.
+            if (file == null) {
+                downloads.incrementAndGet();
+                try (InputStream in = fetcher.open(artifact)) {
+                    file = cache.put(key, artifact.getExtension(), in);
+                }
+            }
+
+            inFlight.remove(key, download);
+            download.complete(file);
+        } catch (Throwable t) {
+            inFlight.remove(key, download);
+            download.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Get an artifact from the cache, or download it.
+     *
+     * @param artifact - The artifact.
+     * @return - Returns the cached file of the artifact.
+     * @throws ModSourceEx - If the artifact cannot be downloaded.
+     */
+    public File fetch(ModuleArtifact artifact) throws ModSourceEx {
+        try {
+            return fetchAsync(artifact).join();
+        } catch (CompletionException e) {
+            throw new ModSourceEx("Cannot fetch " + artifact + " : " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Download (concurrently) the missing artifacts of the current module set.
+     *
+     * @return - Returns the cached files of the module set, in the module set order.
+     * @throws ModSourceEx - If the module set cannot be listed or an artifact cannot be downloaded,
+     *                     the other failures are suppressed exceptions.
+     */
+    public List<File> pull() throws ModSourceEx {
+        return pull(listArtifacts());
+    }
+
+    private List<ModuleArtifact> listArtifacts() throws ModSourceEx {
+        try {
+            return fetcher.listArtifacts();
+        } catch (IOException e) {
+            throw new ModSourceEx("Cannot list the module set : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Download (concurrently) the missing artifacts of a module set. The artifacts are pinned until the pull
+     * returns, pin them in the cache to keep them longer.
+     *
+     * @param artifacts - The module set.
+     * @return - Returns the cached files of the module set, in the module set order.
+     * @throws ModSourceEx - If an artifact cannot be downloaded, the other failures are suppressed exceptions.
+     */
+    public List<File> pull(List<ModuleArtifact> artifacts) throws ModSourceEx {
+        List<String> keys = keysOf(artifacts);
+        cache.pin(keys);
+        try {
+            return fetchAll(artifacts);
+        } finally {
+            cache.unpin(keys);
+        }
+    }
+
+    private List<File> fetchAll(List<ModuleArtifact> artifacts) throws ModSourceEx {
+        List<CompletableFuture<File>> futures = new ArrayList<>(artifacts.size());
+        for (ModuleArtifact artifact : artifacts)
+            futures.add(fetchAsync(artifact));
+
+        List<File> files = new ArrayList<>(artifacts.size());
+        ModSourceEx failure = null;
+
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                files.add(futures.get(i).join());
+            } catch (CompletionException e) {
+                ModSourceEx ex = new ModSourceEx("Cannot fetch " + artifacts.get(i) + " : "
+                        + e.getCause().getMessage(), e.getCause());
+                if (failure == null)
+                    failure = ex;
+                else
+                    failure.addSuppressed(ex);
+            }
+        }
+
+        if (failure != null)
+            throw failure;
+        return files;
+    }
+
+    /**
+     * Pull the current module set and load it into a new ModularSource. Its artifacts stay pinned in the cache
+     * until the source is destroyed.
+     *
+     * @param uuid     - UuID of the ModularSource.
+     * @param verifier - (Optional) The JarVerifier of the module files, null to trust every file.
+     * @return - Returns the ModularSource.
+     * @throws ModUuidEx   - If the uuid is incorrect or null.
+     * @throws ModSourceEx - If the module set cannot be pulled.
+     */
+    public ModularSource createSource(String uuid, JarVerifier verifier) throws ModUuidEx, ModSourceEx {
+        List<ModuleArtifact> artifacts = listArtifacts();
+        List<String> keys = keysOf(artifacts);
+        cache.pin(keys);
+
+        ModularSource source;
+        try {
+            source = new ModularSource(uuid, pull(artifacts), verifier);
+        } catch (ModUuidEx | ModSourceEx | RuntimeException e) {
+            cache.unpin(keys);
+            throw e;
+        }
+        source.addDestroyHook(() -> cache.unpin(keys));
+        return source;
+    }
+
+    private static List<String> keysOf(List<ModuleArtifact> artifacts) {
+        List<String> keys = new ArrayList<>(artifacts.size());
+        for (ModuleArtifact artifact : artifacts)
+            keys.add(artifact.getSha256());
+        return keys;
+    }
+
+    /**
+     * @return - Returns how many artifacts were really downloaded (not served by the cache).
+     */
+    public long getDownloadCount() {
+        return downloads.get();
+    }
+
+    public ModuleCache getCache() {
+        return cache;
+    }
+
+    public ModuleFetcher getFetcher() {
+        return fetcher;
+    }
+}
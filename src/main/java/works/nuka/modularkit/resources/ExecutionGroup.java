@@ -0,0 +1,73 @@
+package works.nuka.modularkit.resources;
+
+/**
+ * The execution group of a module : how its run thread and its ModuleExecutor workers are created, and how many
+ * tasks of the group can run at the same time (see ResourceGovernor.setGroupConcurrency()).
+ * <p>
+ * The thread priorities are only a hint to the OS scheduler (eg : ignored by default on Linux), the isolation
+ * between the groups comes from their separate workers and from the concurrency limit of the BATCH group.
+ *
+ * @since 1.8
+ */
+public enum ExecutionGroup {
+    /**
+     * Workers at the maximum priority, kept alive while the module runs : no thread creation on the task path.
+     * Each module keeps its own workers, the group has no shared pool.
+     */
+    LATENCY_CRITICAL(Thread.MAX_PRIORITY, false),
+
+    /**
+     * The default : workers at the normal priority, stopped after 30s of inactivity.
+     */
+    DEFAULT(Thread.NORM_PRIORITY, false),
+
+    /**
+     * Workers at the minimum priority, throttled by the group concurrency (half of the processors by default)
+     * so the bulk work of the batch modules cannot take every processor.
+     */
+    BATCH(Thread.MIN_PRIORITY, false),
+
+    /**
+     * Virtual threads, for the modules mostly waiting on I/O. The CPU time and the allocated bytes of the
+     * virtual threads are not sampled : their CPU and allocation quotas are not enforced.
+     */
+    BACKGROUND(Thread.NORM_PRIORITY, true);
+
+    private final int threadPriority;
+    private final boolean virtual;
+
+    ExecutionGroup(int threadPriority, boolean virtual) {
+        this.threadPriority = threadPriority;
+        this.virtual = virtual;
+    }
+
+    /**
+     * @return - Returns the priority of the platform threads of the group.
+     */
+    public int getThreadPriority() {
+        return threadPriority;
+    }
+
+    /**
+     * @return - Returns true if the group runs on virtual threads.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Create an unstarted thread of the group.
+     *
+     * @param task - The task of the thread.
+     * @param name - The name of the thread.
+     * @return - Returns a platform thread with the group priority, or a virtual thread.
+     */
+    public Thread newThread(Runnable task, String name) {
+        if (virtual)
+            return Thread.ofVirtual().name(name).unstarted(task);
+
+        Thread thread = new Thread(task, name);
+        thread.setPriority(threadPriority);
+        return thread;
+    }
+}
@@ -0,0 +1,88 @@
+package works.nuka.modularkit.resources;
+
+/**
+ * ExecutionGroupState - An immutable snapshot of the tasks of an ExecutionGroup, over every module of the group.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class ExecutionGroupState {
+
+    private final ExecutionGroup group;
+    private final int moduleCount;
+    private final int concurrencyLimit;
+    private final int activeTasks;
+    private final int queuedTasks;
+    private final long completedTasks;
+    private final long busyTimeNanos;
+    private final double utilisation;
+
+    public ExecutionGroupState(ExecutionGroup group, int moduleCount, int concurrencyLimit, int activeTasks,
+                               int queuedTasks, long completedTasks, long busyTimeNanos, double utilisation) {
+        this.group = group;
+        this.moduleCount = moduleCount;
+        this.concurrencyLimit = concurrencyLimit;
+        this.activeTasks = activeTasks;
+        this.queuedTasks = queuedTasks;
+        this.completedTasks = completedTasks;
+        this.busyTimeNanos = busyTimeNanos;
+        this.utilisation = utilisation;
+    }
+
+    public ExecutionGroup getGroup() {
+        return group;
+    }
+
+    /**
+     * @return - Returns how many modules are in the group.
+     */
+    public int getModuleCount() {
+        return moduleCount;
+    }
+
+    /**
+     * @return - Returns how many tasks of the group can run at the same time, 0 if unlimited.
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public int getActiveTasks() {
+        return activeTasks;
+    }
+
+    /**
+     * @return - Returns the queue depth : the tasks queued in the ModuleExecutors of the group, and the tasks
+     * waiting for the group concurrency.
+     */
+    public int getQueuedTasks() {
+        return queuedTasks;
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks;
+    }
+
+    /**
+     * @return - Returns the total run time (ns) of the completed tasks, diff two snapshots for a given window.
+     */
+    public long getBusyTimeNanos() {
+        return busyTimeNanos;
+    }
+
+    /**
+     * @return - Returns the busy time of the group over its capacity during the utilisation window of the
+     * ResourceGovernor (the last 10s by default, running tasks included), between 0 and 1 : the capacity is the
+     * concurrency limit, or the processors count for an unlimited group.
+     */
+    public double getUtilisation() {
+        return utilisation;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionGroupState{group=" + group + ", modules=" + moduleCount + ", limit=" + concurrencyLimit
+                + ", active=" + activeTasks + ", queued=" + queuedTasks + ", completed=" + completedTasks
+                + ", utilisation=" + String.format("%.2f", utilisation) + '}';
+    }
+}
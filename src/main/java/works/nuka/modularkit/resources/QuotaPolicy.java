@@ -0,0 +1,16 @@
+package works.nuka.modularkit.resources;
+
+/**
+ * What the ResourceGovernor does with a module once it exceeds its ResourceQuota.
+ */
+public enum QuotaPolicy {
+    /**
+     * Pause the module executor until the end of the current quota period.
+     */
+    THROTTLE,
+
+    /**
+     * Stop the module through the ModuleManager.
+     */
+    STOP
+}
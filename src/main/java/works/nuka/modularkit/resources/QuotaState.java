@@ -0,0 +1,92 @@
+package works.nuka.modularkit.resources;
+
+/**
+ * QuotaState - An immutable snapshot of the resource usage of a module.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class QuotaState {
+
+    private final String moduleUuid;
+    private final ResourceQuota quota;
+    private final long cpuTimeNanos;
+    private final long allocatedBytes;
+    private final long totalCpuTimeNanos;
+    private final long totalAllocatedBytes;
+    private final int activeTasks;
+    private final int queuedTasks;
+    private final boolean throttled;
+    private final long violations;
+
+    public QuotaState(String moduleUuid, ResourceQuota quota, long cpuTimeNanos, long allocatedBytes,
+                      long totalCpuTimeNanos, long totalAllocatedBytes, int activeTasks, int queuedTasks,
+                      boolean throttled, long violations) {
+        this.moduleUuid = moduleUuid;
+        this.quota = quota;
+        this.cpuTimeNanos = cpuTimeNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.totalCpuTimeNanos = totalCpuTimeNanos;
+        this.totalAllocatedBytes = totalAllocatedBytes;
+        this.activeTasks = activeTasks;
+        this.queuedTasks = queuedTasks;
+        this.throttled = throttled;
+        this.violations = violations;
+    }
+
+    public String getModuleUuid() {
+        return moduleUuid;
+    }
+
+    public ResourceQuota getQuota() {
+        return quota;
+    }
+
+    /**
+     * @return - Returns the CPU time (ns) consumed during the current period.
+     */
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos;
+    }
+
+    /**
+     * @return - Returns the bytes allocated during the current period.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getTotalCpuTimeNanos() {
+        return totalCpuTimeNanos;
+    }
+
+    public long getTotalAllocatedBytes() {
+        return totalAllocatedBytes;
+    }
+
+    public int getActiveTasks() {
+        return activeTasks;
+    }
+
+    public int getQueuedTasks() {
+        return queuedTasks;
+    }
+
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    /**
+     * @return - Returns how many times the module exceeded its quota.
+     */
+    public long getViolations() {
+        return violations;
+    }
+
+    @Override
+    public String toString() {
+        return "QuotaState{module=" + moduleUuid + ", cpu=" + cpuTimeNanos + "ns, alloc=" + allocatedBytes
+                + "B, active=" + activeTasks + ", queued=" + queuedTasks + ", throttled=" + throttled
+                + ", violations=" + violations + '}';
+    }
+}
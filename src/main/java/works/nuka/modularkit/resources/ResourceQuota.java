@@ -0,0 +1,92 @@
+package works.nuka.modularkit.resources;
+
+import java.time.Duration;
+
+/**
+ * ResourceQuota - The resource budget of a single module.
+ * <p>
+ * CPU time and allocated bytes are counted per period : the counters are reset
+ * at the start of every period. A limit lower or equal to 0 means "unlimited".
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class ResourceQuota {
+
+    private static final ResourceQuota UNLIMITED =
+            new ResourceQuota(0, 0, 0, Duration.ofSeconds(1), QuotaPolicy.THROTTLE);
+
+    private final int maxConcurrentTasks;
+    private final long maxCpuTimeNanos;
+    private final long maxAllocatedBytes;
+    private final Duration period;
+    private final QuotaPolicy policy;
+
+    /**
+     * Create a new ResourceQuota.
+     *
+     * @param maxConcurrentTasks - Max tasks running at the same time on the module executor.
+     * @param maxCpuTimeNanos    - Max CPU time (ns) consumed by the module threads per period.
+     * @param maxAllocatedBytes  - Max bytes allocated by the module threads per period.
+     * @param period             - Accounting period of the CPU time and allocated bytes.
+     * @param policy             - What to do when the module exceeds the quota.
+     */
+    public ResourceQuota(int maxConcurrentTasks, long maxCpuTimeNanos, long maxAllocatedBytes,
+                         Duration period, QuotaPolicy policy) {
+        if (period == null || period.isZero() || period.isNegative())
+            throw new IllegalArgumentException("The quota period must be positive !");
+
+        if (policy == null)
+            throw new IllegalArgumentException("The quota policy cannot be null !");
+
+        this.maxConcurrentTasks = maxConcurrentTasks;
+        this.maxCpuTimeNanos = maxCpuTimeNanos;
+        this.maxAllocatedBytes = maxAllocatedBytes;
+        this.period = period;
+        this.policy = policy;
+    }
+
+    /**
+     * @return - Returns a quota without any limit, used by default for every module.
+     */
+    public static ResourceQuota unlimited() {
+        return UNLIMITED;
+    }
+
+    public int getMaxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+
+    public long getMaxCpuTimeNanos() {
+        return maxCpuTimeNanos;
+    }
+
+    public long getMaxAllocatedBytes() {
+        return maxAllocatedBytes;
+    }
+
+    public Duration getPeriod() {
+        return period;
+    }
+
+    public QuotaPolicy getPolicy() {
+        return policy;
+    }
+
+    public boolean hasConcurrencyLimit() {
+        return maxConcurrentTasks > 0;
+    }
+
+    /**
+     * @return - Returns true if this quota needs the CPU / allocation sampling.
+     */
+    public boolean isSampled() {
+        return maxCpuTimeNanos > 0 || maxAllocatedBytes > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceQuota{tasks=" + maxConcurrentTasks + ", cpu=" + maxCpuTimeNanos + "ns, alloc="
+                + maxAllocatedBytes + "B, period=" + period + ", policy=" + policy + '}';
+    }
+}
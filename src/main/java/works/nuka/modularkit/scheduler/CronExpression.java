@@ -0,0 +1,161 @@
+package works.nuka.modularkit.scheduler;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+/**
+ * CronExpression - A minimal cron expression : "minute hour day-of-month month day-of-week".
+ * <p>
+ * Every field accepts "*", single values, ranges "a-b", steps "*&#47;n" or "a-b/n" and lists "a,b,c".
+ * Day-of-week goes from 0 (Sunday) to 7 (Sunday). Like the classic cron, when both day fields are
+ * restricted, the expression matches if one of them matches.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class CronExpression {
+
+    private static final int MAX_SEARCH_YEARS = 5;
+
+    private final String expression;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean domRestricted;
+    private final boolean dowRestricted;
+
+    private CronExpression(String expression, String[] fields) {
+        this.expression = expression;
+        minutes = parseField(fields[0], 0, 59, "minute");
+        hours = parseField(fields[1], 0, 23, "hour");
+        daysOfMonth = parseField(fields[2], 1, 31, "day-of-month");
+        months = parseField(fields[3], 1, 12, "month");
+        daysOfWeek = parseField(fields[4], 0, 7, "day-of-week");
+
+        if (daysOfWeek.get(7))
+            daysOfWeek.set(0);
+
+        domRestricted = !fields[2].equals("*");
+        dowRestricted = !fields[4].equals("*");
+    }
+
+    /**
+     * Parse a cron expression.
+     *
+     * @param expression - The cron expression, eg : "*&#47;5 * * * *".
+     * @return - Returns the parsed CronExpression.
+     * @throws IllegalArgumentException - If the expression is malformed.
+     */
+    public static CronExpression parse(String expression) {
+        if (expression == null)
+            throw new IllegalArgumentException("The cron expression cannot be null !");
+
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5)
+            throw new IllegalArgumentException("A cron expression needs 5 fields : " + expression);
+
+        return new CronExpression(expression, fields);
+    }
+
+    /**
+     * Find the next matching time strictly after the given time.
+     *
+     * @param after - The reference time.
+     * @return - Returns the next matching time, or null if nothing matches in the next years.
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = after.plusYears(MAX_SEARCH_YEARS);
+
+        while (time.isBefore(limit)) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+                continue;
+            }
+
+            if (!matchesDay(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+                continue;
+            }
+
+            if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                continue;
+            }
+
+            if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+                continue;
+            }
+
+            return time;
+        }
+
+        return null;
+    }
+
+    private boolean matchesDay(ZonedDateTime time) {
+        boolean dom = daysOfMonth.get(time.getDayOfMonth());
+        boolean dow = daysOfWeek.get(time.getDayOfWeek().getValue() % 7);
+
+        if (domRestricted && dowRestricted)
+            return dom || dow;
+        return dom && dow;
+    }
+
+    private static BitSet parseField(String field, int min, int max, String name) {
+        BitSet bits = new BitSet(max + 1);
+
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseNumber(part.substring(slash + 1), 1, Integer.MAX_VALUE, name);
+                part = part.substring(0, slash);
+            }
+
+            int from;
+            int to;
+            if (part.equals("*")) {
+                from = min;
+                to = max;
+            } else {
+                int dash = part.indexOf('-');
+                if (dash >= 0) {
+                    from = parseNumber(part.substring(0, dash), min, max, name);
+                    to = parseNumber(part.substring(dash + 1), min, max, name);
+                    if (from > to)
+                        throw new IllegalArgumentException("Invalid " + name + " range : " + part);
+                } else {
+                    from = parseNumber(part, min, max, name);
+                    to = slash >= 0 ? max : from;
+                }
+            }
+
+            for (int i = from; i <= to; i += step)
+                bits.set(i);
+        }
+
+        return bits;
+    }
+
+    private static int parseNumber(String value, int min, int max, String name) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n < min || n > max)
+                throw new IllegalArgumentException("The " + name + " value " + n + " is out of range ["
+                        + min + ", " + max + "]");
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " value : " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,213 @@
+package works.nuka.modularkit.scheduler;
+
+import works.nuka.modularkit.diagnostics.DiagnosticPhase;
+import works.nuka.modularkit.diagnostics.Diagnostics;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TimingWheel - A hashed timing wheel, one thread drives any number of timeouts.
+ * <p>
+ * Timeouts are run on the wheel thread, they must only hand the real work to an executor.
+ * The precision is one tick, the wheel thread parks itself while there is no pending timeout.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class TimingWheel {
+
+    private final long tickNanos;
+    private final int mask;
+    private final ArrayDeque<WheelTimeout>[] wheel;
+    private final Queue<WheelTimeout> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeTimeouts = new AtomicInteger();
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean stopped;
+    private long tick;
+
+    /**
+     * Create and start a new TimingWheel.
+     *
+     * @param name          - Name of the wheel thread.
+     * @param tickDuration  - Duration of one tick.
+     * @param unit          - TimeUnit of the tickDuration.
+     * @param ticksPerWheel - Number of buckets, rounded up to a power of two.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0)
+            throw new IllegalArgumentException("tickDuration and ticksPerWheel must be positive !");
+
+        int size = Integer.highestOneBit(ticksPerWheel - 1 > 0 ? ticksPerWheel - 1 : 1) << 1;
+        tickNanos = unit.toNanos(tickDuration);
+        mask = size - 1;
+        wheel = new ArrayDeque[size];
+        for (int i = 0; i < size; i++)
+            wheel[i] = new ArrayDeque<>();
+
+        startTime = System.nanoTime();
+        worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Schedule a one-shot timeout.
+     *
+     * @param task  - The task to run on the wheel thread once the delay expired.
+     * @param delay - The delay.
+     * @param unit  - The TimeUnit of the delay.
+     * @return - Returns a Timeout handle, used to cancel the timeout.
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (stopped)
+            throw new IllegalStateException("The TimingWheel is stopped !");
+
+        long deadline = System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay));
+        WheelTimeout timeout = new WheelTimeout(task, deadline);
+        activeTimeouts.incrementAndGet();
+        pending.add(timeout);
+        LockSupport.unpark(worker);
+        return timeout;
+    }
+
+    /**
+     * @return - Returns the number of timeouts not expired nor cancelled yet.
+     */
+    public int getActiveTimeouts() {
+        return activeTimeouts.get();
+    }
+
+    public void stop() {
+        stopped = true;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (!stopped) {
+            if (activeTimeouts.get() == 0) {
+                purgeCancelled();
+                LockSupport.park(this);
+                tick = (System.nanoTime() - startTime) / tickNanos; // Empty ticks, nothing to expire.
+                continue;
+            }
+
+            long deadline = (tick + 1) * tickNanos;
+            long sleep = deadline - (System.nanoTime() - startTime);
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                if (System.nanoTime() - startTime < deadline)
+                    continue; // Woken by a new timeout, re-check.
+            }
+
+            transferPending();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        WheelTimeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled)
+                continue;
+
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            wheel[(int) (Math.max(calculated, tick) & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * Drop the cancelled timeouts before parking : the ticks are skipped while parked, the cancelled timeouts
+     * would never be visited and would retain their tasks.
+     */
+    private void purgeCancelled() {
+        transferPending();
+        for (ArrayDeque<WheelTimeout> bucket : wheel)
+            bucket.removeIf(timeout -> timeout.cancelled);
+    }
+
+    private void expire(ArrayDeque<WheelTimeout> bucket) {
+        Iterator<WheelTimeout> it = bucket.iterator();
+        while (it.hasNext()) {
+            WheelTimeout timeout = it.next();
+            if (timeout.cancelled) {
+                it.remove();
+            } else if (timeout.remainingRounds <= 0) {
+                it.remove();
+                timeout.expire();
+            } else
+                timeout.remainingRounds--;
+        }
+    }
+
+    /**
+     * A handle on a scheduled timeout.
+     */
+    public interface Timeout {
+        /**
+         * Cancel the timeout, does nothing if it already expired.
+         *
+         * @return - Returns true if the timeout was cancelled by this call.
+         */
+        boolean cancel();
+
+        boolean isCancelled();
+
+        boolean isExpired();
+    }
+
+    private final class WheelTimeout implements Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+        private volatile boolean expired;
+
+        private WheelTimeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        private synchronized void expire() {
+            if (cancelled)
+                return;
+
+            expired = true;
+            activeTimeouts.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Diagnostics.global().report(DiagnosticPhase.RUN, null, t);
+            }
+        }
+
+        @Override
+        public synchronized boolean cancel() {
+            if (cancelled || expired)
+                return false;
+
+            cancelled = true;
+            activeTimeouts.decrementAndGet();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return expired;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package works.nuka.modularkit.security;
+
+import works.nuka.modularkit.diagnostics.DiagnosticPhase;
+import works.nuka.modularkit.diagnostics.Diagnostics;
+import works.nuka.modularkit.ex.ModVerifyEx;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSigner;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * JarVerifier - Verify the module files before the ModularSource instantiates them.
+ * <p>
+ * Results are cached by content hash (and by verifier configuration), so an unchanged jar is never
+ * verified twice, even across restarts when a cache file is set. The content hash is computed from the
+ * bytes on every call : the path, the size and the modification time of a file prove nothing about its
+ * content. The cache file is authenticated with an HMAC, a forged or tampered cache file is ignored.
+ * <p>
+ * Verify and load the same bytes : a module file can be replaced between its verification and its loading,
+ * so the ModularSource verifies and loads a private snapshot of each file (see snapshot()).
+ *
+ * @since 1.8
+ */
+@SuppressWarnings({"UnusedReturnValue", "unused"})
+public class JarVerifier {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final String MAC_PROPERTY = "hmac";
+
+    private final VerificationPolicy policy;
+    private final Set<String> trustedDigests = ConcurrentHashMap.newKeySet();
+    private final Set<String> trustedCertificates = ConcurrentHashMap.newKeySet(); // SHA-256 of the certs.
+    private final Map<String, VerificationResult> results = new ConcurrentHashMap<>(); // sha256/config -> result
+    private final AtomicLong verifications = new AtomicLong();
+    private volatile Executor executor = ForkJoinPool.commonPool();
+    private volatile String configuration;
+    private volatile boolean dirty; // New results not written to the cache file yet.
+    private File cacheFile;
+    private SecretKeySpec cacheKey;
+    private Path snapshotDirectory;
+
+    public JarVerifier(VerificationPolicy policy) {
+        if (policy == null)
+            throw new IllegalArgumentException("The verification policy cannot be null !");
+        this.policy = policy;
+        updateConfiguration();
+    }
+
+    /**
+     * Trust a module file content.
+     *
+     * @param sha256 - The SHA-256 of the file, in hexadecimal.
+     * @return - Returns this JarVerifier.
+     */
+    public JarVerifier trustDigest(String sha256) {
+        trustedDigests.add(sha256.toLowerCase());
+        updateConfiguration();
+        return this;
+    }
+
+    /**
+     * Only accept the signatures made with this certificate (and the other trusted ones).
+     * Without trusted certificate, any valid signature is accepted.
+     *
+     * @param certificate - The signer certificate.
+     * @return - Returns this JarVerifier.
+     * @throws ModVerifyEx - If the certificate cannot be encoded.
+     */
+    public JarVerifier trustCertificate(Certificate certificate) throws ModVerifyEx {
+        try {
+            trustedCertificates.add(sha256(certificate.getEncoded()));
+        } catch (CertificateEncodingException e) {
+            throw new ModVerifyEx("Cannot read the certificate !", e);
+        }
+        updateConfiguration();
+        return this;
+    }
+
+    /**
+     * Persist the verification results, so that the next startups skip the unchanged jars. The results are
+     * authenticated with a secret key : keep it out of the reach of whoever can write the cache file, or
+     * anyone able to write the file could mark any jar as trusted.
+     * <p>
+     * The new results are written by flush(), called by the ModularSource after each scan of module files.
+     *
+     * @param file      - The cache file (a properties file).
+     * @param secretKey - The secret key of the HMAC of the cache file, at least 16 bytes.
+     * @return - Returns this JarVerifier.
+     * @throws IOException - If the existing cache file cannot be read.
+     */
+    public synchronized JarVerifier setCacheFile(File file, byte[] secretKey) throws IOException {
+        if (secretKey == null || secretKey.length < 16)
+            throw new IllegalArgumentException("The cache key must be at least 16 bytes long !");
+
+        this.cacheFile = file;
+        this.cacheKey = new SecretKeySpec(secretKey, MAC_ALGORITHM);
+        if (file.isFile()) {
+            Properties cache = new Properties();
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                cache.load(in);
+            }
+
+            if (!isAuthentic(cache)) {
+                Diagnostics.global().report(DiagnosticPhase.VERIFY, null,
+                        new ModVerifyEx("The verification cache " + file + " is not authentic, ignored."));
+                return this;
+            }
+
+            for (String key : cache.stringPropertyNames()) {
+                String value = cache.getProperty(key);
+                int slash = key.indexOf('/');
+                if (slash > 0)
+                    results.putIfAbsent(key, new VerificationResult(key.substring(0, slash),
+                            value.startsWith("OK"), value.substring(value.indexOf(':') + 1), true));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Set the executor of verifyAsync(), the common ForkJoinPool by default.
+     *
+     * @param executor - The executor.
+     * @return - Returns this JarVerifier.
+     */
+    public JarVerifier setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public VerificationPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return - Returns how many files were really verified (cache misses).
+     */
+    public long getVerificationCount() {
+        return verifications.get();
+    }
+
+    /**
+     * Copy a module file to a private snapshot, only readable by the user of this process. The snapshot is
+     * what is verified and loaded : a module file replaced after the copy does not change the loaded bytes.
+     *
+     * @param file - The module file.
+     * @return - Returns the snapshot, to delete once unused.
+     * @throws ModVerifyEx - If the file cannot be copied.
+     */
+    public File snapshot(File file) throws ModVerifyEx {
+        try {
+            // The temporary files and directories are owner-only on POSIX file systems.
+            Path snapshot = Files.createTempFile(getSnapshotDirectory(), "snapshot-", "-" + file.getName());
+            Files.copy(file.toPath(), snapshot, StandardCopyOption.REPLACE_EXISTING);
+            return snapshot.toFile();
+        } catch (IOException e) {
+            throw new ModVerifyEx("Cannot copy the module file " + file + " !", e);
+        }
+    }
+
+    private synchronized Path getSnapshotDirectory() throws IOException {
+        if (snapshotDirectory == null || !Files.isDirectory(snapshotDirectory)) {
+            snapshotDirectory = Files.createTempDirectory("modularkit-verified");
+            snapshotDirectory.toFile().deleteOnExit(); // Once the class loaders deleted their snapshots.
+        }
+        return snapshotDirectory;
+    }
+
+    /**
+     * Verify a module file in the background.
+     *
+     * @param file - The module file.
+     * @return - Returns the future VerificationResult.
+     */
+    public CompletableFuture<VerificationResult> verifyAsync(File file) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return verify(file);
+            } catch (ModVerifyEx e) {
+                return new VerificationResult(null, false, e.getMessage(), false);
+            }
+        }, executor);
+    }
+
+    /**
+     * Verify a module file, using the cache when possible.
+     *
+     * @param file - The module file.
+     * @return - Returns the VerificationResult.
+     * @throws ModVerifyEx - If the file cannot be read.
+     */
+    public VerificationResult verify(File file) throws ModVerifyEx {
+        if (policy == VerificationPolicy.NONE)
+            return new VerificationResult(null, true, "No verification policy", false);
+
+        String sha256 = contentHash(file);
+        String key = sha256 + "/" + configuration;
+
+        VerificationResult cached = results.get(key);
+        if (cached != null)
+            return cached.asCached();
+
+        verifications.incrementAndGet();
+        VerificationResult result = check(file, sha256);
+        results.put(key, result);
+        dirty = true;
+        return result;
+    }
+
+    /**
+     * Write the new verification results to the cache file, in one write for every verification since the
+     * previous flush. Does nothing without cache file or new result.
+     */
+    public synchronized void flush() {
+        if (cacheFile == null || !dirty)
+            return;
+        dirty = false; // A result added while writing sets it again.
+
+        Properties cache = new Properties();
+        for (Map.Entry<String, VerificationResult> entry : results.entrySet())
+            cache.setProperty(entry.getKey(), (entry.getValue().isTrusted() ? "OK:" : "KO:")
+                    + entry.getValue().getReason());
+        cache.setProperty(MAC_PROPERTY, HexFormat.of().formatHex(mac(cache)));
+
+        try (OutputStream out = new FileOutputStream(cacheFile)) {
+            cache.store(out, "ModularKit verification cache");
+        } catch (IOException e) {
+            dirty = true;
+            Diagnostics.global().report(DiagnosticPhase.VERIFY, null, e);
+        }
+    }
+
+    private VerificationResult check(File file, String sha256) {
+        boolean digestTrusted = trustedDigests.contains(sha256);
+
+        if (policy == VerificationPolicy.DIGEST || (policy == VerificationPolicy.DIGEST_OR_SIGNED && digestTrusted))
+            return new VerificationResult(sha256, digestTrusted,
+                    digestTrusted ? "Trusted digest" : "Untrusted digest", false);
+
+        String signatureError = checkSignatures(file);
+        return new VerificationResult(sha256, signatureError == null,
+                signatureError == null ? "Valid signature" : signatureError, false);
+    }
+
+    /**
+     * @return - Returns null if every entry is signed by a trusted signer, the error otherwise.
+     */
+    private String checkSignatures(File file) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (JarFile jar = new JarFile(file, true)) {
+            Enumeration<JarEntry> entries = jar.entries();
+            int signedEntries = 0;
+
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (entry.isDirectory() || isSignatureFile(entry.getName()))
+                    continue;
+
+                // The entry must be fully read to check its digest against the signed manifest.
+                try (InputStream in = jar.getInputStream(entry)) {
+                    while (in.read(buffer) != -1) ;
+                }
+
+                CodeSigner[] signers = entry.getCodeSigners();
+                if (signers == null || signers.length == 0)
+                    return "Unsigned entry : " + entry.getName();
+
+                if (!trustedCertificates.isEmpty() && !isTrusted(signers))
+                    return "Untrusted signer for : " + entry.getName();
+
+                signedEntries++;
+            }
+
+            return signedEntries > 0 ? null : "The jar is empty or not signed";
+        } catch (SecurityException e) {
+            return "Invalid signature : " + e.getMessage();
+        } catch (IOException e) {
+            return "Cannot read the jar : " + e.getMessage();
+        }
+    }
+
+    private boolean isTrusted(CodeSigner[] signers) {
+        for (CodeSigner signer : signers) {
+            try {
+                Certificate cert = signer.getSignerCertPath().getCertificates().get(0);
+                if (trustedCertificates.contains(sha256(cert.getEncoded())))
+                    return true;
+            } catch (CertificateEncodingException ignored) {
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSignatureFile(String name) {
+        String upper = name.toUpperCase();
+        return upper.startsWith("META-INF/") && (upper.equals("META-INF/MANIFEST.MF") || upper.endsWith(".SF")
+                || upper.endsWith(".RSA") || upper.endsWith(".DSA") || upper.endsWith(".EC")
+                || upper.startsWith("META-INF/SIG-"));
+    }
+
+    private static String contentHash(File file) throws ModVerifyEx {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1)
+                digest.update(buffer, 0, n);
+
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new ModVerifyEx("Cannot hash the module file " + file + " !", e);
+        }
+    }
+
+    // Removes the HMAC property of the cache, then checks it against the other properties.
+    private boolean isAuthentic(Properties cache) {
+        String mac = (String) cache.remove(MAC_PROPERTY);
+        try {
+            return mac != null && MessageDigest.isEqual(HexFormat.of().parseHex(mac), mac(cache));
+        } catch (IllegalArgumentException e) {
+            return false; // Not hexadecimal.
+        }
+    }
+
+    private byte[] mac(Properties cache) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(cacheKey);
+            for (String key : new TreeSet<>(cache.stringPropertyNames()))
+                if (!key.equals(MAC_PROPERTY))
+                    mac.update((key + '=' + cache.getProperty(key) + '\n').getBytes(StandardCharsets.UTF_8));
+            return mac.doFinal();
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available !", e);
+        }
+    }
+
+    // The results only stay valid for the same policy, digests and certificates.
+    private void updateConfiguration() {
+        StringBuilder sb = new StringBuilder(policy.name());
+        for (String digest : new TreeSet<>(trustedDigests))
+            sb.append(';').append(digest);
+        for (String cert : new TreeSet<>(trustedCertificates))
+            sb.append(";c").append(cert);
+        configuration = sha256(sb.toString().getBytes()).substring(0, 16);
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available !", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package works.nuka.modularkit.security;
+
+/**
+ * How the JarVerifier decides if a module file can be trusted.
+ */
+public enum VerificationPolicy {
+    /**
+     * Trust every module file.
+     */
+    NONE,
+
+    /**
+     * The SHA-256 of the module file must be one of the trusted digests.
+     */
+    DIGEST,
+
+    /**
+     * Every entry of the module jar must be signed (by one of the trusted certificates, if any).
+     */
+    SIGNED,
+
+    /**
+     * A trusted digest, or a valid signature.
+     */
+    DIGEST_OR_SIGNED
+}
@@ -0,0 +1,57 @@
+package works.nuka.modularkit.security;
+
+/**
+ * VerificationResult - The (cached) verification result of a module file content.
+ *
+ * @since 1.8
+ */
+@SuppressWarnings("unused")
+public final class VerificationResult {
+
+    private final String sha256;
+    private final boolean trusted;
+    private final String reason;
+    private final boolean cached;
+
+    public VerificationResult(String sha256, boolean trusted, String reason, boolean cached) {
+        this.sha256 = sha256;
+        this.trusted = trusted;
+        this.reason = reason;
+        this.cached = cached;
+    }
+
+    /**
+     * @return - Returns the SHA-256 of the module file, in hexadecimal.
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    public boolean isTrusted() {
+        return trusted;
+    }
+
+    /**
+     * @return - Returns why the file is (not) trusted.
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * @return - Returns true if the result comes from the verification cache.
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    VerificationResult asCached() {
+        return cached ? this : new VerificationResult(sha256, trusted, reason, true);
+    }
+
+    @Override
+    public String toString() {
+        return "VerificationResult{sha256=" + sha256 + ", trusted=" + trusted + ", reason='" + reason
+                + "', cached=" + cached + '}';
+    }
+}
@@ -0,0 +1,11 @@
+package works.nuka.modularkit;
+
+import works.nuka.modularkit.processor.ModuleDescriptor;
+
+@ModuleDescriptor(uuid = "5c1e0d2b", name = "AnnotatedModule", author = "Kawalize", version = "1.2.4")
+public class AnnotatedModule extends AnotherModule {
+
+    public AnnotatedModule() throws Exception {
+        super("AnnotatedModule", "5c1e0d2b");
+    }
+}
@@ -6,6 +6,10 @@ public class AnotherModule extends ModularModule {
         super("AnotherModule", "452457c5", "Kawalize", "1.2.4");
     }
 
+    protected AnotherModule(String name, String uuid) throws Exception {
+        super(name, uuid, "Kawalize", "1.2.4");
+    }
+
     @Override
     public void stop() {
         System.out.println("Bye " + this.getModuleName() + " !");
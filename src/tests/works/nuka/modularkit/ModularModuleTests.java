@@ -6,6 +6,12 @@ import org.junit.jupiter.api.Test;
 import works.nuka.modularkit.events.ModuleStatus;
 import works.nuka.modularkit.ex.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ModularModuleTests {
@@ -143,6 +149,89 @@ public class ModularModuleTests {
         assertEquals(ModuleStatus.RUNNING, testModule.getModuleStatus());
     }
 
+    @Test
+    void testIllegalStatusTransition() {
+        assertThrows(IllegalStateException.class, () -> testModule.setModuleStatus(ModuleStatus.STOPPING),
+                "STOPPED -> STOPPING is not a legal transition");
+        assertEquals(ModuleStatus.STOPPED, testModule.getModuleStatus());
+    }
+
+    @Test
+    void testAwaitStatus() throws Exception {
+        ModularSource source = new ModularSource(TEST_UUID);
+        source.registerModule(testModule);
+        assertFalse(testModule.awaitStatus(ModuleStatus.RUNNING, 10, TimeUnit.MILLISECONDS));
+
+        Thread starter = new Thread(() -> assertDoesNotThrow(() -> source.getModuleManager().runModule(testModule, null)));
+        starter.start();
+        assertTrue(testModule.awaitStatus(ModuleStatus.RUNNING, 5, TimeUnit.SECONDS));
+        assertFalse(source.getModuleManager().runModule(testModule, null), "Already running");
+
+        Thread stopper = new Thread(() -> assertDoesNotThrow(() -> source.getModuleManager().stopModule(testModule, false, null)));
+        stopper.start();
+        assertTrue(testModule.awaitStatus(ModuleStatus.STOPPED, 5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testTimedOutAwaitsLeaveNoWaiter() throws Exception {
+        ModuleLifecycle lifecycle = new ModuleLifecycle(ModuleStatus.STOPPED);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> assertDoesNotThrow(() -> {
+                for (int j = 0; j < 500; j++)
+                    assertFalse(lifecycle.await(ModuleStatus.RUNNING, 10, TimeUnit.MICROSECONDS));
+            }));
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(0, lifecycle.getWaiterCount());
+
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> lifecycle.await(ModuleStatus.RUNNING, 1, TimeUnit.SECONDS));
+        assertEquals(0, lifecycle.getWaiterCount());
+
+        Thread waiter = new Thread(() -> assertDoesNotThrow(() ->
+                assertTrue(lifecycle.await(ModuleStatus.RUNNING, 5, TimeUnit.SECONDS))));
+        waiter.start();
+        while (lifecycle.getWaiterCount() == 0)
+            Thread.sleep(1);
+        assertTrue(lifecycle.transition(ModuleStatus.STOPPED, ModuleStatus.RUNNING));
+        waiter.join();
+        assertEquals(0, lifecycle.getWaiterCount());
+    }
+
+    @Test
+    void testConcurrentStopsStopOnce() throws Exception {
+        AtomicInteger stops = new AtomicInteger();
+        ModularModule module = new ConcreteModularModule(TEST_NAME, TEST_UUID, TEST_AUTHOR, TEST_VERSION) {
+            @Override
+            protected void stop() {
+                stops.incrementAndGet();
+            }
+        };
+        ModularSource source = new ModularSource(TEST_UUID);
+        source.registerModule(module);
+        source.getModuleManager().runModule(module, null);
+
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> assertDoesNotThrow(() -> {
+                go.await();
+                source.getModuleManager().stopModule(module, false, null);
+            }));
+            thread.start();
+            threads.add(thread);
+        }
+        go.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(1, stops.get());
+        assertEquals(ModuleStatus.STOPPED, module.getModuleStatus());
+    }
+
     @Test
     void testDependencies() throws ModUuidEx, ModRegisterEx, ModSourceEx {
         ModularModule depMod = new ConcreteModularModule("DepModule", "0123456a", TEST_AUTHOR, TEST_VERSION);
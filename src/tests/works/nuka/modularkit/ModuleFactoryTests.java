@@ -0,0 +1,88 @@
+package works.nuka.modularkit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ServiceLoader;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModuleFactoryTests {
+
+    private static final String TEST_UUID = "7b2f9a01";
+    private File dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = Files.createTempDirectory("modularkit").toFile();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (ModularSource source : ModularSource.getSourceMap().values())
+            source.destroy(false);
+        ModularSource.getSourceMap().clear();
+        TestJars.delete(dir.toPath());
+    }
+
+    @Test
+    void testGeneratedFactory() throws Exception {
+        ModuleFactory factory = new AnnotatedModule_ModularFactory();
+        assertEquals(AnnotatedModule.class.getName(), factory.getModuleClassName());
+        assertEquals("5c1e0d2b", factory.getUuid());
+        assertEquals("AnnotatedModule", factory.getModuleName());
+        assertEquals("1.2.4", factory.getVersion());
+
+        ModularModule module = factory.newInstance();
+        assertInstanceOf(AnnotatedModule.class, module);
+        assertEquals(factory.getUuid(), module.getUuid());
+    }
+
+    @Test
+    void testGeneratedServiceFile() {
+        assertTrue(ServiceLoader.load(ModuleFactory.class).stream()
+                .anyMatch(provider -> provider.type() == AnnotatedModule_ModularFactory.class));
+    }
+
+    @Test
+    void testDirectoryLoaderAcceptsIndirectSubclass() throws Exception {
+        File jar = new File(dir, "annotated.jar");
+
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new JarEntry(".modlr"));
+            out.write(("annotated=" + AnnotatedModule.class.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        ModularSource source = new ModularSource(TEST_UUID, dir, "jar");
+        assertInstanceOf(AnnotatedModule.class, source.getUnmodifiableModuleMap().get("5c1e0d2b"));
+    }
+
+    @Test
+    void testDirectoryLoaderUsesJarFactory() throws Exception {
+        TestJars.annotatedModuleJar(dir, "factory.jar", "factorytest.FactoryModule", "3e91c0d4", "1.0.0", "1.0.0");
+
+        ModularSource source = new ModularSource(TEST_UUID, dir, "jar");
+        assertTrue(source.getLoadErrors().isEmpty(), source.getLoadErrors().toString());
+        ModularModule module = source.getUnmodifiableModuleMap().get("3e91c0d4");
+        assertEquals("factorytest.FactoryModule", module.getClass().getName());
+        assertNotSame(ModularSource.class.getClassLoader(), module.getClass().getClassLoader());
+    }
+
+    @Test
+    void testDirectoryLoaderChecksDescriptor() throws Exception {
+        TestJars.annotatedModuleJar(dir, "factory.jar", "factorytest.FactoryModule", "3e91c0d4", "2.0.0", "1.0.0");
+
+        ModularSource source = new ModularSource(TEST_UUID, dir, "jar");
+        assertNull(source.getUnmodifiableModuleMap().get("3e91c0d4"));
+        assertEquals(1, source.getLoadErrors().size());
+        assertTrue(source.getLoadErrors().get(0).getError().getMessage().contains("2.0.0"));
+    }
+}
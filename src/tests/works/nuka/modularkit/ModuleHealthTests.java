@@ -0,0 +1,221 @@
+package works.nuka.modularkit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import works.nuka.modularkit.events.ModuleHealth;
+import works.nuka.modularkit.ex.ModUuidEx;
+import works.nuka.modularkit.resources.QuotaPolicy;
+import works.nuka.modularkit.resources.ResourceQuota;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModuleHealthTests {
+
+    private static final String TEST_UUID = "e8a0b7c6";
+    private ModularSource source;
+
+    // A module which becomes ready only when the test says so.
+    private static class SlowModule extends ModularModule {
+        private volatile boolean ready;
+        private volatile boolean failing;
+        private volatile long startedAt;
+        private volatile ModuleHealth healthAtStart;
+        private volatile CountDownLatch probeEntered;
+        private final CountDownLatch probeRelease = new CountDownLatch(1);
+
+        SlowModule(String uuid, ModularModule... deps) throws ModUuidEx {
+            super("SlowModule", uuid, "Tests", "1.0", deps);
+        }
+
+        @Override
+        protected ModuleHealth checkHealth() {
+            if (failing)
+                throw new IllegalStateException("Broken probe");
+            CountDownLatch entered = probeEntered;
+            if (entered != null) {
+                entered.countDown();
+                try {
+                    probeRelease.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return ready ? ModuleHealth.READY : ModuleHealth.STARTING;
+        }
+
+        @Override
+        protected void start() {
+            healthAtStart = getHealth();
+            startedAt = System.nanoTime();
+        }
+
+        @Override
+        protected void stop() {
+        }
+
+        @Override
+        protected void load() {
+        }
+
+        @Override
+        protected void unload() {
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        source = new ModularSource(TEST_UUID);
+        source.getModuleManager().setHealthCheckInterval(Duration.ofMillis(20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        source.destroy(false);
+        ModularSource.getSourceMap().clear();
+    }
+
+    @Test
+    void testDefaultModuleBecomesReady() throws Exception {
+        ModularModule module = new AnotherModule();
+        source.registerModule(module);
+        assertEquals(ModuleHealth.UNKNOWN, source.getHealth());
+
+        source.getModuleManager().runModule(module, null);
+        assertTrue(module.awaitHealth(ModuleHealth.READY, 5, TimeUnit.SECONDS));
+        assertEquals(ModuleHealth.READY, source.getHealth());
+        assertEquals(1, source.getHealthCount(ModuleHealth.READY));
+
+        source.getModuleManager().stopModule(module, false, null);
+        assertEquals(ModuleHealth.UNKNOWN, module.getHealth());
+        assertEquals(ModuleHealth.UNKNOWN, source.getHealth());
+    }
+
+    @Test
+    void testNotReadyBeforeStart() throws Exception {
+        SlowModule module = new SlowModule("0000000c");
+        module.ready = true;
+        source.registerModule(module);
+
+        source.getModuleManager().runModule(module, null);
+        assertTrue(module.awaitHealth(ModuleHealth.READY, 5, TimeUnit.SECONDS));
+        assertEquals(ModuleHealth.STARTING, module.healthAtStart);
+    }
+
+    @Test
+    void testProbesIgnoreTaskQuota() throws Exception {
+        SlowModule module = new SlowModule("0000000b");
+        source.registerModule(module);
+        source.getModuleManager().setQuota(module,
+                new ResourceQuota(1, 0, 0, Duration.ofSeconds(1), QuotaPolicy.THROTTLE));
+        CountDownLatch release = new CountDownLatch(1);
+        module.getExecutor().execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        source.getModuleManager().runModule(module, null);
+        while (module.startedAt == 0)
+            Thread.sleep(5);
+        Thread.sleep(50); // The first probe after start() is STARTING.
+        module.ready = true;
+        try {
+            assertTrue(module.awaitHealth(ModuleHealth.READY, 5, TimeUnit.SECONDS),
+                    "The probes should not wait behind the module tasks");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testLateProbeAfterStop() throws Exception {
+        SlowModule module = new SlowModule("0000000a");
+        module.ready = true;
+        source.registerModule(module);
+        source.getModuleManager().runModule(module, null);
+        assertTrue(module.awaitHealth(ModuleHealth.READY, 5, TimeUnit.SECONDS));
+
+        module.probeEntered = new CountDownLatch(1);
+        assertTrue(module.probeEntered.await(5, TimeUnit.SECONDS));
+        source.getModuleManager().stopModule(module, false, null);
+        module.probeRelease.countDown();
+
+        Thread.sleep(100);
+        assertEquals(ModuleHealth.UNKNOWN, module.getHealth(), "A late probe should not publish its result");
+        assertEquals(ModuleHealth.UNKNOWN, source.getHealth());
+    }
+
+    @Test
+    void testHealthCountsWithConcurrentRegistration() throws Exception {
+        SlowModule module = new SlowModule("00000009");
+        Thread flipper = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++)
+                module.setHealth(i % 2 == 0 ? ModuleHealth.READY : ModuleHealth.DOWN);
+        });
+        flipper.start();
+
+        while (flipper.isAlive()) {
+            source.registerModule(module);
+            source.unregisterModule(module);
+        }
+        flipper.join();
+
+        for (ModuleHealth health : ModuleHealth.values())
+            assertEquals(0, source.getHealthCount(health), health + " count");
+    }
+
+    @Test
+    void testDependentWaitsForReadiness() throws Exception {
+        SlowModule dependency = new SlowModule("0000000d");
+        SlowModule dependent = new SlowModule("0000000e", dependency);
+        dependent.ready = true;
+        source.registerModule(dependency);
+        source.registerModule(dependent);
+
+        source.getModuleManager().runModule(dependency, null);
+        source.getModuleManager().runModule(dependent, null);
+
+        Thread.sleep(100);
+        assertEquals(0, dependent.startedAt, "The dependent should wait for its dependency");
+        assertEquals(ModuleHealth.STARTING, source.getHealth());
+
+        long readyAt = System.nanoTime();
+        dependency.ready = true;
+        assertTrue(dependent.awaitHealth(ModuleHealth.READY, 5, TimeUnit.SECONDS));
+        assertTrue(dependent.startedAt >= readyAt);
+        assertEquals(ModuleHealth.READY, source.getHealth());
+    }
+
+    @Test
+    void testDependencyTimeout() throws Exception {
+        source.getModuleManager().setReadinessTimeout(Duration.ofMillis(50));
+        SlowModule dependency = new SlowModule("0000000d");
+        SlowModule dependent = new SlowModule("0000000e", dependency);
+        source.registerModule(dependency);
+        source.registerModule(dependent);
+
+        source.getModuleManager().runModule(dependency, null);
+        source.getModuleManager().runModule(dependent, null);
+
+        assertTrue(dependent.awaitHealth(ModuleHealth.DOWN, 5, TimeUnit.SECONDS));
+        assertEquals(0, dependent.startedAt);
+    }
+
+    @Test
+    void testFailingProbeIsDown() throws Exception {
+        SlowModule module = new SlowModule("0000000f");
+        module.failing = true;
+        source.registerModule(module);
+        source.getModuleManager().runModule(module, null);
+
+        assertTrue(module.awaitHealth(ModuleHealth.DOWN, 5, TimeUnit.SECONDS));
+        assertEquals(ModuleHealth.DEGRADED, source.getHealth());
+    }
+}
@@ -0,0 +1,85 @@
+package works.nuka.modularkit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import works.nuka.modularkit.scheduler.CronExpression;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModuleSchedulerTests {
+
+    private static final String TEST_UUID = "c4d0e1f7";
+    private ModularSource source;
+    private ModularModule module;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        source = new ModularSource(TEST_UUID);
+        module = new AnotherModule();
+        source.registerModule(module);
+    }
+
+    @AfterEach
+    void tearDown() {
+        source.destroy(false);
+        ModularSource.getSourceMap().clear();
+    }
+
+    @Test
+    void testDelayedTask() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+        module.getScheduler().schedule(ran::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50), "Should wait for the delay");
+        assertEquals(0, module.getScheduler().getTaskCount());
+    }
+
+    @Test
+    void testFixedRateTask() throws Exception {
+        CountDownLatch ran = new CountDownLatch(3);
+        module.getScheduler().scheduleAtFixedRate(ran::countDown, 0, 20, TimeUnit.MILLISECONDS);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testStopCancelsTasks() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ModuleScheduler.ScheduledTask task =
+                module.getScheduler().scheduleAtFixedRate(runs::incrementAndGet, 100, 100, TimeUnit.MILLISECONDS);
+
+        source.getModuleManager().stopModule(module, false, null);
+        assertTrue(task.isCancelled());
+        assertEquals(0, module.getScheduler().getTaskCount());
+
+        Thread.sleep(250);
+        assertEquals(0, runs.get(), "A cancelled task should never run");
+    }
+
+    @Test
+    void testCronExpression() {
+        ZonedDateTime from = ZonedDateTime.of(2024, 1, 1, 10, 7, 30, 0, ZoneOffset.UTC);
+
+        assertEquals(from.withMinute(10).withSecond(0), CronExpression.parse("*/5 * * * *").next(from));
+        assertEquals(ZonedDateTime.of(2024, 1, 2, 3, 0, 0, 0, ZoneOffset.UTC),
+                CronExpression.parse("0 3 * * *").next(from));
+        // 2024-01-06 is a Saturday.
+        assertEquals(ZonedDateTime.of(2024, 1, 6, 0, 0, 0, 0, ZoneOffset.UTC),
+                CronExpression.parse("0 0 * * 6").next(from));
+    }
+
+    @Test
+    void testInvalidCronExpression() {
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("* * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("61 * * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("5-1 * * * *"));
+    }
+}
@@ -0,0 +1,203 @@
+package works.nuka.modularkit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import works.nuka.modularkit.events.ModuleHealth;
+import works.nuka.modularkit.events.ModuleStatus;
+import works.nuka.modularkit.ex.ModRegisterEx;
+import works.nuka.modularkit.ex.ModRunEx;
+import works.nuka.modularkit.ex.ModUuidEx;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModuleUpgradeTests {
+
+    private static final String SOURCE_UUID = "0f1e2d3c";
+    private static final String MODULE_UUID = "4b5a6978";
+    private ModularSource source;
+
+    private static class VersionedModule extends ModularModule {
+        private final boolean ready;
+
+        VersionedModule(String version, boolean ready) throws ModUuidEx {
+            super("VersionedModule", MODULE_UUID, "Tests", version);
+            this.ready = ready;
+        }
+
+        @Override
+        protected ModuleHealth checkHealth() {
+            return ready ? ModuleHealth.READY : ModuleHealth.STARTING;
+        }
+
+        @Override
+        protected void start() {
+        }
+
+        @Override
+        protected void stop() {
+        }
+
+        @Override
+        protected void load() {
+        }
+
+        @Override
+        protected void unload() {
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        source = new ModularSource(SOURCE_UUID);
+        source.getModuleManager().setHealthCheckInterval(Duration.ofMillis(20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        source.destroy(false);
+        ModularSource.getSourceMap().clear();
+    }
+
+    @Test
+    void testUpgradeSwitchesHandleWithoutGap() throws Exception {
+        VersionedModule v1 = new VersionedModule("1.0", true);
+        source.registerModule(v1);
+        source.getModuleManager().runModule(v1, null);
+        assertTrue(v1.awaitHealth(ModuleHealth.READY, 5, TimeUnit.SECONDS));
+
+        ModuleHandle handle = source.getHandle(MODULE_UUID);
+        AtomicBoolean polling = new AtomicBoolean(true);
+        AtomicInteger unavailable = new AtomicInteger();
+        Thread poller = new Thread(() -> {
+            while (polling.get()) {
+                ModularModule current = handle.get();
+                // The old version is only stopped after the switch : re-read the handle to ignore it.
+                if (current == null || (current.getHealth() != ModuleHealth.READY && handle.get() == current))
+                    unavailable.incrementAndGet();
+            }
+        });
+        poller.start();
+
+        VersionedModule v2 = new VersionedModule("2.0", true);
+        source.upgradeModule(v2, Duration.ofSeconds(5));
+        polling.set(false);
+        poller.join();
+
+        assertSame(v2, handle.get());
+        assertEquals(1, handle.getGeneration());
+        assertSame(v2, source.getUnmodifiableModuleMap().get(MODULE_UUID));
+        assertEquals(ModuleStatus.STOPPED, v1.getModuleStatus());
+        assertEquals(0, unavailable.get(), "The module should stay available during the upgrade");
+        assertEquals(1, source.getHealthCount(ModuleHealth.READY));
+    }
+
+    @Test
+    void testUpgradeRollsBackWhenNotReady() throws Exception {
+        VersionedModule v1 = new VersionedModule("1.0", true);
+        source.registerModule(v1);
+        source.getModuleManager().runModule(v1, null);
+        assertTrue(v1.awaitHealth(ModuleHealth.READY, 5, TimeUnit.SECONDS));
+
+        VersionedModule broken = new VersionedModule("2.0", false);
+        assertThrows(ModRunEx.class, () -> source.upgradeModule(broken, Duration.ofMillis(100)));
+
+        assertSame(v1, source.getUnmodifiableModuleMap().get(MODULE_UUID));
+        assertEquals(ModuleStatus.RUNNING, v1.getModuleStatus());
+        assertEquals(ModuleStatus.STOPPED, broken.getModuleStatus());
+    }
+
+    @Test
+    void testUpgradeUpdatesDependents() throws Exception {
+        VersionedModule v1 = new VersionedModule("1.0", true);
+        ModularModule dependent = new AnotherModule();
+        source.registerModule(v1);
+        source.registerModule(dependent);
+        source.getModuleManager().replaceDepends(dependent, v1);
+
+        VersionedModule v2 = new VersionedModule("2.0", true);
+        source.upgradeModule(v2, Duration.ofSeconds(5));
+        assertEquals(List.of(v2), source.getModuleManager().getDepends(dependent));
+    }
+
+    @Test
+    void testRollbackRestoresDependencies() throws Exception {
+        ModularModule dependency = new AnotherModule();
+        VersionedModule v1 = new VersionedModule("1.0", true);
+        source.registerModule(dependency);
+        source.registerModule(v1);
+        source.getModuleManager().replaceDepends(v1, dependency); // Like the depends of a manifest.
+        source.getModuleManager().runModule(dependency, null);
+        source.getModuleManager().runModule(v1, null);
+        assertTrue(v1.awaitHealth(ModuleHealth.READY, 5, TimeUnit.SECONDS));
+
+        VersionedModule broken = new VersionedModule("2.0", false);
+        assertThrows(ModRunEx.class, () -> source.upgradeModule(broken, Duration.ofMillis(100)));
+        assertEquals(List.of(dependency), source.getModuleManager().getDepends(v1));
+    }
+
+    @Test
+    void testUpgradeUnknownModule() throws Exception {
+        assertThrows(ModRegisterEx.class, () -> source.upgradeModule(new VersionedModule("2.0", true),
+                Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void testUpgradeFromModuleFile() throws Exception {
+        File v1Dir = Files.createTempDirectory("modularkit-v1").toFile();
+        File v2Dir = Files.createTempDirectory("modularkit-v2").toFile();
+        TestJars.moduleJar(v1Dir, "module.jar", "upgrade.sample.JarModule", MODULE_UUID, "1.0");
+        File v2 = TestJars.moduleJar(v2Dir, "module.jar", "upgrade.sample.JarModule", MODULE_UUID, "2.0");
+
+        ModularSource jarSource = new ModularSource("9c8d7e6f", v1Dir, "jar");
+        try {
+            ModularModule old = jarSource.getUnmodifiableModuleMap().get(MODULE_UUID);
+            ModuleClassLoader oldLoader = (ModuleClassLoader) old.getClass().getClassLoader();
+            jarSource.getModuleManager().runModule(old, null);
+
+            assertEquals(1, jarSource.upgradeModules(v2, null, Duration.ofSeconds(5)));
+
+            ModularModule current = jarSource.getHandle(MODULE_UUID).get();
+            assertEquals("2.0", current.getVersion());
+            assertNotSame(oldLoader, current.getClass().getClassLoader());
+            assertNull(oldLoader.findResource(".modlr"), "The old class loader should be closed");
+        } finally {
+            jarSource.destroy(false);
+        }
+    }
+
+    @Test
+    void testUpgradeAwaitsManifestDependencies() throws Exception {
+        String jarUuid = "5d6e7f80";
+        File v1Dir = Files.createTempDirectory("modularkit-v1").toFile();
+        File v2Dir = Files.createTempDirectory("modularkit-v2").toFile();
+        TestJars.moduleJar(v1Dir, "module.jar", "upgrade.sample.DependentModule", jarUuid, "1.0");
+        File v2 = TestJars.moduleJar(v2Dir, "module.jar", "upgrade.sample.DependentModule", jarUuid, "2.0",
+                "[module]\nclass = upgrade.sample.DependentModule\nuuid = " + jarUuid + "\ndepends = "
+                        + MODULE_UUID + "\n");
+
+        ModularSource jarSource = new ModularSource("9c8d7e70", v1Dir, "jar");
+        try {
+            jarSource.getModuleManager().setReadinessTimeout(Duration.ofMillis(100));
+            jarSource.registerModule(new VersionedModule("1.0", true)); // Never started : never READY.
+            ModularModule old = jarSource.getUnmodifiableModuleMap().get(jarUuid);
+            jarSource.getModuleManager().runModule(old, null);
+            assertTrue(old.awaitHealth(ModuleHealth.READY, 5, TimeUnit.SECONDS));
+
+            assertThrows(ModRunEx.class, () -> jarSource.upgradeModules(v2, null, Duration.ofSeconds(2)));
+            assertSame(old, jarSource.getHandle(jarUuid).get());
+            assertEquals(ModuleStatus.RUNNING, old.getModuleStatus());
+            assertTrue(jarSource.getManifest(jarUuid).getDepends().isEmpty(), "The old manifest should be restored");
+        } finally {
+            jarSource.destroy(false);
+        }
+    }
+}
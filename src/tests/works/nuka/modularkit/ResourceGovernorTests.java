@@ -0,0 +1,216 @@
+package works.nuka.modularkit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import works.nuka.modularkit.resources.ExecutionGroup;
+import works.nuka.modularkit.resources.ExecutionGroupState;
+import works.nuka.modularkit.resources.QuotaPolicy;
+import works.nuka.modularkit.resources.QuotaState;
+import works.nuka.modularkit.resources.ResourceQuota;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResourceGovernorTests {
+
+    private static final String TEST_UUID = "6a1e03c2";
+    private ModularSource source;
+    private ModularModule module;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        source = new ModularSource(TEST_UUID);
+        module = new AnotherModule();
+        source.registerModule(module);
+    }
+
+    @AfterEach
+    void tearDown() {
+        source.destroy(false);
+        ModularSource.getSourceMap().clear();
+    }
+
+    @Test
+    void testDefaultQuotaIsUnlimited() {
+        QuotaState state = source.getModuleManager().getQuotaState(module);
+        assertSame(ResourceQuota.unlimited(), state.getQuota());
+        assertFalse(state.isThrottled());
+        assertEquals(0, state.getViolations());
+    }
+
+    @Test
+    void testQuotaStatesPerInstance() throws Exception {
+        ModularModule nextVersion = new AnotherModule(); // Same uuid, like the new version of an upgrade.
+        ResourceGovernor governor = source.getModuleManager().getResourceGovernor();
+        governor.setQuota(module, new ResourceQuota(1, 0, 0, Duration.ofSeconds(1), QuotaPolicy.THROTTLE));
+        governor.setQuota(nextVersion, new ResourceQuota(2, 0, 0, Duration.ofSeconds(1), QuotaPolicy.THROTTLE));
+
+        assertEquals(1, governor.getQuotaStates().get(module).getQuota().getMaxConcurrentTasks());
+        assertEquals(2, governor.getQuotaStates().get(nextVersion).getQuota().getMaxConcurrentTasks());
+        governor.release(nextVersion);
+    }
+
+    @Test
+    void testMaxConcurrentTasks() throws Exception {
+        source.getModuleManager().setQuota(module,
+                new ResourceQuota(1, 0, 0, Duration.ofSeconds(1), QuotaPolicy.THROTTLE));
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(4);
+
+        for (int i = 0; i < 4; i++)
+            module.getExecutor().execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get(), "Only one task should run at a time");
+    }
+
+    @Test
+    void testCpuQuotaThrottlesExecutor() throws Exception {
+        source.getModuleManager().setQuota(module,
+                new ResourceQuota(1, 1_000_000, 0, Duration.ofMinutes(1), QuotaPolicy.THROTTLE));
+
+        module.getExecutor().submit(() -> {
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            while (System.nanoTime() < end) Thread.onSpinWait();
+        }).get(5, TimeUnit.SECONDS);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!source.getModuleManager().getQuotaState(module).isThrottled()
+                && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        QuotaState state = source.getModuleManager().getQuotaState(module);
+        assertTrue(state.isThrottled(), "The module should be throttled");
+        assertEquals(1, state.getViolations());
+        assertTrue(module.getExecutor().isPaused());
+    }
+
+    @Test
+    void testStopCancelsTasks() throws Exception {
+        ModuleExecutor executor = module.getExecutor();
+        source.getModuleManager().stopModule(module, false, null);
+        assertTrue(executor.isShutdown());
+        assertNotSame(executor, module.getExecutor());
+    }
+
+    @Test
+    void testInvalidQuotaPeriod() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ResourceQuota(1, 0, 0, Duration.ZERO, QuotaPolicy.STOP));
+    }
+
+    @Test
+    void testExecutionGroupThreads() throws Exception {
+        ModuleManager manager = source.getModuleManager();
+        assertEquals(ExecutionGroup.DEFAULT, manager.getExecutionGroup(module));
+
+        manager.setExecutionGroup(module, ExecutionGroup.LATENCY_CRITICAL);
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        module.getExecutor().submit(() -> worker.set(Thread.currentThread())).get(5, TimeUnit.SECONDS);
+        assertEquals(Thread.MAX_PRIORITY, worker.get().getPriority());
+        assertFalse(module.getExecutor().allowsCoreThreadTimeOut());
+
+        // The group applies to the next executor of the module.
+        manager.stopModule(module, false, null);
+        manager.setExecutionGroup(module, ExecutionGroup.BACKGROUND);
+        module.getExecutor().submit(() -> worker.set(Thread.currentThread())).get(5, TimeUnit.SECONDS);
+        assertTrue(worker.get().isVirtual());
+        assertTrue(worker.get().getName().startsWith("Mod_"));
+    }
+
+    @Test
+    void testBatchGroupConcurrency() throws Exception {
+        ModuleManager manager = source.getModuleManager();
+        manager.setExecutionGroup(module, ExecutionGroup.BATCH);
+        manager.setQuota(module, new ResourceQuota(4, 0, 0, Duration.ofSeconds(1), QuotaPolicy.THROTTLE));
+        manager.getResourceGovernor().setGroupConcurrency(ExecutionGroup.BATCH, 1);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++)
+            module.getExecutor().execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+
+        // The module could run 4 tasks, the group only runs one : the others wait for the group.
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((running.get() < 1 || manager.getExecutionGroupState(ExecutionGroup.BATCH).getQueuedTasks() < 3)
+                && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        ExecutionGroupState state = manager.getExecutionGroupState(ExecutionGroup.BATCH);
+        assertEquals(1, state.getModuleCount());
+        assertEquals(1, state.getConcurrencyLimit());
+        assertEquals(1, state.getActiveTasks());
+        assertEquals(3, state.getQueuedTasks());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get(), "Only one task of the group should run at a time");
+
+        deadline = System.currentTimeMillis() + 5000;
+        while (manager.getExecutionGroupState(ExecutionGroup.BATCH).getCompletedTasks() < 4
+                && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        state = manager.getExecutionGroupState(ExecutionGroup.BATCH);
+        assertEquals(4, state.getCompletedTasks());
+        assertEquals(0, state.getActiveTasks());
+        assertTrue(state.getBusyTimeNanos() > 0);
+        assertEquals(0, manager.getExecutionGroupState(ExecutionGroup.DEFAULT).getModuleCount());
+    }
+
+    @Test
+    void testUtilisationOverSlidingWindow() throws Exception {
+        ModuleManager manager = source.getModuleManager();
+        manager.setExecutionGroup(module, ExecutionGroup.BATCH);
+        manager.getResourceGovernor().setGroupConcurrency(ExecutionGroup.BATCH, 1);
+        manager.getResourceGovernor().setUtilisationWindow(Duration.ofMillis(500));
+        Thread.sleep(1000); // Idle : a lifetime average would stay low below.
+
+        CountDownLatch release = new CountDownLatch(1);
+        module.getExecutor().execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(700);
+        double busy = manager.getExecutionGroupState(ExecutionGroup.BATCH).getUtilisation();
+        assertTrue(busy > 0.8, "Saturated over the window : " + busy);
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (manager.getExecutionGroupState(ExecutionGroup.BATCH).getCompletedTasks() < 1
+                && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Thread.sleep(700);
+        double idle = manager.getExecutionGroupState(ExecutionGroup.BATCH).getUtilisation();
+        assertTrue(idle < 0.2, "Idle over the window : " + idle);
+    }
+}
@@ -6,12 +6,40 @@ import org.junit.jupiter.api.Test;
 import works.nuka.modularkit.events.ModuleStatus;
 import works.nuka.modularkit.ex.*;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class SourceTests {
 
     private static final String TEST_UUID = "09040865";
 
+    private static class BatchModule extends ModularModule {
+        BatchModule(String uuid, ModularModule... deps) throws ModUuidEx {
+            super("BatchModule", uuid, "Tests", "1.0", deps);
+        }
+
+        @Override
+        protected void start() {
+        }
+
+        @Override
+        protected void stop() {
+        }
+
+        @Override
+        protected void load() {
+        }
+
+        @Override
+        protected void unload() {
+        }
+    }
+
     @BeforeEach
     void setUp() {
         // Clear the static map before tests
@@ -96,4 +124,99 @@ public class SourceTests {
         source.registerModule(module);
         assertThrows(ModRegisterEx.class, () -> source.unregisterModule(module));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testUnregisterKeepsLoaderOfLazyModule() throws Exception {
+        File dir = Files.createTempDirectory("modularkit-lazy").toFile();
+        TestJars.moduleJar(dir, "both.jar", Map.of("lazy.sample.Eager", "19000001", "lazy.sample.Lazy", "19000002"),
+                "1.0", """
+                        [module]
+                        class = lazy.sample.Eager
+                        uuid = 19000001
+
+                        [module]
+                        class = lazy.sample.Lazy
+                        uuid = 19000002
+                        lazy = true
+                        """);
+
+        ModularSource source = new ModularSource(TEST_UUID, dir, "jar");
+        try {
+            assertTrue(source.getLoadErrors().isEmpty(), source.getLoadErrors().toString());
+            assertTrue(source.unregisterModule(source.getUnmodifiableModuleMap().get("19000001")));
+
+            source.getModuleManager().runModule("19000002", null);
+            assertEquals("lazy.sample.Lazy", source.getUnmodifiableModuleMap().get("19000002").getClass().getName());
+        } finally {
+            source.destroy(false);
+        }
+    }
+
+    @Test
+    void testLazyAndEagerModuleWithSameUuid() throws Exception {
+        for (String lazyJar : List.of("a.jar", "z.jar")) { // Both scan orders.
+            ModularSource.getSourceMap().clear();
+            File dir = Files.createTempDirectory("modularkit-lazy").toFile();
+            TestJars.moduleJar(dir, "m.jar", "same.sample.Eager", "19000003", "1.0");
+            TestJars.moduleJar(dir, lazyJar, "same.sample.Lazy", "19000003", "1.0", """
+                    [module]
+                    class = same.sample.Lazy
+                    uuid = 19000003
+                    lazy = true
+                    """);
+
+            ModularSource source = new ModularSource(TEST_UUID, dir, "jar");
+            try {
+                assertEquals(1, source.getLoadErrors().size(), lazyJar + " : " + source.getLoadErrors());
+                assertTrue(source.getLazyModules().containsKey("19000003")
+                        ^ source.getUnmodifiableModuleMap().containsKey("19000003"), lazyJar);
+
+                if (source.getLazyModules().containsKey("19000003"))
+                    assertThrows(ModRegisterEx.class, () -> source.registerModules(List.of(new BatchModule("19000003"))));
+            } finally {
+                source.destroy(false);
+            }
+        }
+    }
+
+    @Test
+    void testRegisterModules() throws Exception {
+        ModularSource source = new ModularSource(TEST_UUID);
+        ModularModule module = new ModuleTest();
+        ModularModule dependency = module.getModuleDependencies()[0];
+
+        assertEquals(2, source.registerModules(List.of(module, dependency)));
+        assertSame(module, source.getModuleManager().findModuleByUuiD(module.getUuid()));
+        assertSame(dependency, source.getModuleManager().findModuleByUuiD(dependency.getUuid()));
+        assertTrue(source.getModuleManager().getDepends(module).contains(dependency));
+    }
+
+    @Test
+    void testRegisterModulesAllOrNothing() throws Exception {
+        ModularSource source = new ModularSource(TEST_UUID);
+        ModularModule existing = new BatchModule("00000001");
+        source.registerModule(existing);
+
+        // Duplicate uuid with the source.
+        assertThrows(ModRegisterEx.class, () -> source.registerModules(
+                List.of(new BatchModule("00000002"), new BatchModule("00000001"))));
+        // Missing dependency.
+        assertThrows(ModRegisterEx.class, () -> source.registerModules(List.of(new ModuleTest())));
+
+        assertEquals(1, source.getModuleMap().size(), "A failed batch should not register anything");
+    }
+
+    @Test
+    void testRegisterLargeBatch() throws Exception {
+        ModularSource source = new ModularSource(TEST_UUID);
+        List<ModularModule> modules = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            ModularModule previous = modules.isEmpty() ? null : modules.get(modules.size() - 1);
+            String uuid = String.format("%08x", i + 1);
+            modules.add(previous == null ? new BatchModule(uuid) : new BatchModule(uuid, previous));
+        }
+
+        assertEquals(5000, source.registerModules(modules));
+        assertEquals(5000, source.getUnmodifiableModuleMap().size());
+    }
+}
@@ -0,0 +1,160 @@
+package works.nuka.modularkit;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Build real module jars for the tests : the module class only exists in the jar, not on the test classpath.
+ */
+public final class TestJars {
+
+    private TestJars() {
+    }
+
+    /**
+     * Compile a minimal module and pack it with its .modlr file.
+     *
+     * @param dir       - Where to write the jar.
+     * @param jarName   - File name of the jar.
+     * @param className - Fully qualified name of the module class.
+     * @param uuid      - UuID of the module.
+     * @param version   - Version of the module.
+     * @return - Returns the jar file.
+     */
+    public static File moduleJar(File dir, String jarName, String className, String uuid, String version)
+            throws IOException {
+        int dot = className.lastIndexOf('.');
+        return moduleJar(dir, jarName, className, uuid, version,
+                className.substring(dot + 1) + "=" + className + "\n");
+    }
+
+    /**
+     * Like moduleJar(File, String, String, String, String), with a custom .modlr file.
+     *
+     * @param modlr - Content of the .modlr file.
+     * @return - Returns the jar file.
+     */
+    public static File moduleJar(File dir, String jarName, String className, String uuid, String version,
+                                 String modlr) throws IOException {
+        return pack(dir, jarName, className, "", uuid, version, modlr);
+    }
+
+    /**
+     * Compile a minimal module annotated with @ModuleDescriptor through the annotation processor, and pack it
+     * with its generated factory but without .modlr file.
+     *
+     * @param descriptorVersion - Version declared by the @ModuleDescriptor.
+     * @param version           - Version of the module instance.
+     * @return - Returns the jar file.
+     */
+    public static File annotatedModuleJar(File dir, String jarName, String className, String uuid,
+                                          String descriptorVersion, String version) throws IOException {
+        String annotation = "@works.nuka.modularkit.processor.ModuleDescriptor(uuid = \"" + uuid
+                + "\", version = \"" + descriptorVersion + "\")\n";
+        return pack(dir, jarName, className, annotation, uuid, version, null);
+    }
+
+    /**
+     * Delete a file or a directory with its content.
+     *
+     * @param path - The file or directory, ignored if it does not exist.
+     */
+    public static void delete(Path path) throws IOException {
+        if (path == null || !Files.exists(path))
+            return;
+
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(file);
+        }
+    }
+
+    /**
+     * Like moduleJar(File, String, String, String, String, String), with several module classes in the jar.
+     *
+     * @param modules - The fully qualified name of each module class, with its UuID.
+     * @return - Returns the jar file.
+     */
+    public static File moduleJar(File dir, String jarName, Map<String, String> modules, String version,
+                                 String modlr) throws IOException {
+        return pack(dir, jarName, modules, "", version, modlr);
+    }
+
+    private static File pack(File dir, String jarName, String className, String annotation, String uuid,
+                             String version, String modlr) throws IOException {
+        return pack(dir, jarName, Map.of(className, uuid), annotation, version, modlr);
+    }
+
+    private static File pack(File dir, String jarName, Map<String, String> modules, String annotation,
+                             String version, String modlr) throws IOException {
+        Path work = Files.createTempDirectory("modularkit-src");
+        try {
+            List<String> args = new ArrayList<>(annotation.isEmpty() ? List.of("-proc:none")
+                    : List.of("-processor", "works.nuka.modularkit.processor.ModuleDescriptorProcessor"));
+            args.addAll(List.of("-cp", System.getProperty("java.class.path"), "-d", work.toString()));
+
+            for (Map.Entry<String, String> module : modules.entrySet()) {
+                String className = module.getKey();
+                int dot = className.lastIndexOf('.');
+                String pkg = dot > 0 ? className.substring(0, dot) : "";
+                String simpleName = className.substring(dot + 1);
+
+                String source = (pkg.isEmpty() ? "" : "package " + pkg + ";\n")
+                        + annotation
+                        + "public class " + simpleName + " extends works.nuka.modularkit.ModularModule {\n"
+                        + "    public " + simpleName + "() throws Exception {\n"
+                        + "        super(\"" + simpleName + "\", \"" + module.getValue() + "\", \"Tests\", \""
+                        + version + "\");\n"
+                        + "    }\n"
+                        + "    protected void start() { }\n"
+                        + "    protected void stop() { }\n"
+                        + "    protected void load() { }\n"
+                        + "    protected void unload() { }\n"
+                        + "}\n";
+
+                Path sourceFile = work.resolve(simpleName + ".java");
+                Files.writeString(sourceFile, source);
+                args.add(sourceFile.toString());
+            }
+
+            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            int result = compiler.run(null, null, null, args.toArray(new String[0]));
+            if (result != 0)
+                throw new IOException("Cannot compile " + modules.keySet());
+
+            File jar = new File(dir, jarName);
+            try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+                 Stream<Path> files = Files.walk(work)) {
+                if (modlr != null) {
+                    out.putNextEntry(new JarEntry(".modlr"));
+                    out.write(modlr.getBytes(StandardCharsets.UTF_8));
+                    out.closeEntry();
+                }
+
+                for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)
+                        .filter(f -> !f.toString().endsWith(".java"))::iterator) {
+                    out.putNextEntry(new JarEntry(work.relativize(file).toString().replace(File.separatorChar, '/')));
+                    out.write(Files.readAllBytes(file));
+                    out.closeEntry();
+                }
+            }
+
+            return jar;
+        } finally {
+            delete(work);
+        }
+    }
+}
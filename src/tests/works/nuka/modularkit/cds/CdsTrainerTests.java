@@ -0,0 +1,38 @@
+package works.nuka.modularkit.cds;
+
+import org.junit.jupiter.api.Test;
+import works.nuka.modularkit.ModuleClassLoader;
+import works.nuka.modularkit.TestJars;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CdsTrainerTests {
+
+    private static final String TEST_UUID = "3d5c6f10";
+
+    @Test
+    void testTrainingWritesClassListAndLayout() throws Exception {
+        File modules = Files.createTempDirectory("modularkit-modules").toFile();
+        File jar = TestJars.moduleJar(modules, "cds.jar", "cds.sample.CdsModule", "ab12cd34", "1.0");
+        File out = Files.createTempDirectory("modularkit-cds").toFile();
+
+        List<Class<?>> classes = new CdsTrainer(TEST_UUID, modules, "jar").train(out);
+
+        assertEquals(1, classes.size());
+        assertEquals("cds.sample.CdsModule", classes.get(0).getName());
+        assertFalse(ModuleClassLoader.isRecording(), "The recording should be disabled after the training");
+        assertTrue(ModuleClassLoader.getRecordedClasses().isEmpty(), "The recorded classes should be released");
+
+        List<String> classList = Files.readAllLines(new File(out, CdsTrainer.CLASSLIST_FILE).toPath());
+        assertTrue(classList.contains("works/nuka/modularkit/ModularModule id: 0"));
+        assertTrue(classList.contains("cds/sample/CdsModule id: 1 super: 0 source: " + jar.getAbsolutePath()));
+
+        assertTrue(CdsTrainer.verifyLayout(new File(out, CdsTrainer.LAYOUT_FILE)).isEmpty());
+        assertTrue(jar.setLastModified(jar.lastModified() - 10_000));
+        assertEquals(List.of(jar.getAbsolutePath()), CdsTrainer.verifyLayout(new File(out, CdsTrainer.LAYOUT_FILE)));
+    }
+}
@@ -0,0 +1,185 @@
+package works.nuka.modularkit.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import works.nuka.modularkit.ModularModule;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.events.ModuleStatus;
+import works.nuka.modularkit.ex.ModUuidEx;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterNodeTests {
+
+    private static final List<String> SINGLETONS = List.of("c0000001", "c0000002", "c0000003", "c0000004",
+            "c0000005", "c0000006");
+    private static final String EVERYWHERE = "c00000ee";
+
+    private final InMemoryNetwork network = new InMemoryNetwork();
+    private final List<ClusterNode> nodes = new ArrayList<>();
+    private final List<ModularSource> sources = new ArrayList<>();
+
+    private static class PlacedModule extends ModularModule {
+        PlacedModule(String uuid) throws ModUuidEx {
+            super("PlacedModule", uuid, "Tests", "1.0");
+        }
+
+        @Override
+        protected void start() {
+        }
+
+        @Override
+        protected void stop() {
+        }
+
+        @Override
+        protected void load() {
+        }
+
+        @Override
+        protected void unload() {
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (ClusterNode node : nodes)
+            node.close();
+        for (ModularSource source : sources)
+            source.destroy(false);
+    }
+
+    private ClusterNode startNode(String nodeId, String sourceUuid) throws Exception {
+        ModularSource source = new ModularSource(sourceUuid);
+        sources.add(source);
+        ClusterNode node = new ClusterNode(nodeId, source, network.newTransport())
+                .setTimings(Duration.ofMillis(20), Duration.ofMillis(200));
+
+        for (String uuid : SINGLETONS) {
+            source.registerModule(new PlacedModule(uuid));
+            node.setPlacement(uuid, Placement.SINGLETON);
+        }
+        source.registerModule(new PlacedModule(EVERYWHERE));
+        node.setPlacement(EVERYWHERE, Placement.EVERYWHERE);
+
+        node.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private boolean runsOn(ClusterNode node, String uuid) {
+        return sources.get(nodes.indexOf(node)).getUnmodifiableModuleMap().get(uuid).getModuleStatus()
+                == ModuleStatus.RUNNING;
+    }
+
+    // Every singleton runs exactly once, on the owner computed from the given nodes.
+    private boolean placedOn(List<ClusterNode> live) {
+        List<String> ids = live.stream().map(ClusterNode::getNodeId).toList();
+        for (String uuid : SINGLETONS) {
+            String owner = ClusterNode.selectOwner(uuid, ids);
+            for (ClusterNode node : live)
+                if (runsOn(node, uuid) != node.getNodeId().equals(owner))
+                    return false;
+        }
+        return live.stream().allMatch(node -> runsOn(node, EVERYWHERE));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testSingletonsAreSpreadAcrossNodes() throws Exception {
+        ClusterNode a = startNode("node-a", "c1a00001");
+        ClusterNode b = startNode("node-b", "c1b00001");
+        ClusterNode c = startNode("node-c", "c1c00001");
+
+        await(() -> placedOn(List.of(a, b, c)));
+        await(() -> b.getClusterView().size() == 3);
+        assertEquals(List.of("node-a", "node-b", "node-c"), a.getMembers());
+
+        // The placement is propagated by the heartbeats.
+        await(() -> SINGLETONS.stream().allMatch(uuid -> b.getClusterView().get(b.getOwner(uuid)).contains(uuid)));
+    }
+
+    @Test
+    void testModulesMoveWhenANodeLeaves() throws Exception {
+        ClusterNode a = startNode("node-a", "c1a00002");
+        ClusterNode b = startNode("node-b", "c1b00002");
+        ClusterNode c = startNode("node-c", "c1c00002");
+        await(() -> placedOn(List.of(a, b, c)));
+
+        c.close();
+        for (String uuid : SINGLETONS)
+            assertFalse(runsOn(c, uuid));
+        await(() -> placedOn(List.of(a, b)));
+    }
+
+    @Test
+    void testLeaseExpiryTakesOverSilentNodes() throws Exception {
+        ClusterNode a = startNode("node-a", "c1a00003");
+        ClusterNode b = startNode("node-b", "c1b00003");
+        await(() -> placedOn(List.of(a, b)));
+
+        network.isolate("node-b"); // No LEAVE message, only the lease expires.
+        await(() -> a.getMembers().equals(List.of("node-a")));
+        for (String uuid : SINGLETONS)
+            assertTrue(sources.get(0).getUnmodifiableModuleMap().get(uuid)
+                    .awaitStatus(ModuleStatus.RUNNING, 5, TimeUnit.SECONDS));
+
+        network.heal("node-b");
+        await(() -> placedOn(List.of(a, b)));
+    }
+
+    @Test
+    void testLateHeartbeatAfterLeaveIsDropped() throws Exception {
+        ClusterNode a = startNode("node-a", "c1a00004");
+        ClusterTransport ghost = network.newTransport();
+        ghost.start("ghost", message -> {
+        });
+
+        ghost.broadcast(new ClusterMessage(ClusterMessage.Type.HEARTBEAT, "ghost", 10, Set.of()));
+        await(() -> a.getMembers().contains("ghost"));
+        ghost.broadcast(new ClusterMessage(ClusterMessage.Type.LEAVE, "ghost", 12, Set.of()));
+        await(() -> !a.getMembers().contains("ghost"));
+
+        ghost.broadcast(new ClusterMessage(ClusterMessage.Type.HEARTBEAT, "ghost", 11, Set.of())); // Delayed.
+        Thread.sleep(100); // Less than the lease.
+        assertEquals(List.of("node-a"), a.getMembers());
+
+        ghost.broadcast(new ClusterMessage(ClusterMessage.Type.HEARTBEAT, "ghost", 13, Set.of())); // Joined again.
+        await(() -> a.getMembers().contains("ghost"));
+        ghost.close();
+    }
+
+    @Test
+    void testRendezvousOnlyMovesTheLeavingShare() throws Exception {
+        List<String> three = List.of("n1", "n2", "n3");
+        List<String> two = List.of("n1", "n2");
+
+        for (int i = 0; i < 200; i++) {
+            String uuid = String.format("%08x", i);
+            String before = ClusterNode.selectOwner(uuid, three);
+            if (!before.equals("n3"))
+                assertEquals(before, ClusterNode.selectOwner(uuid, two));
+        }
+
+        ClusterMessage message = new ClusterMessage(ClusterMessage.Type.HEARTBEAT, "n1", 42, Set.of("c0000001"));
+        ClusterMessage decoded = ClusterMessage.decode(message.encode());
+        assertEquals(ClusterMessage.Type.HEARTBEAT, decoded.getType());
+        assertEquals("n1", decoded.getNodeId());
+        assertEquals(42, decoded.getSequence());
+        assertEquals(Set.of("c0000001"), decoded.getRunningModules());
+    }
+}
@@ -0,0 +1,171 @@
+package works.nuka.modularkit.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import works.nuka.modularkit.ModularModule;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.TestJars;
+import works.nuka.modularkit.events.ModuleStatus;
+import works.nuka.modularkit.ex.ModConfigEx;
+import works.nuka.modularkit.resources.ExecutionGroup;
+import works.nuka.modularkit.resources.QuotaPolicy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigParserTests {
+
+    private ModularSource source;
+
+    @AfterEach
+    void tearDown() {
+        if (source != null)
+            source.destroy(false);
+    }
+
+    private static List<ModuleManifest> parse(String content) throws ModConfigEx {
+        return ConfigParser.parseManifest(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)),
+                "test.modlr");
+    }
+
+    private static void assertError(String content, int line, int column) {
+        ModConfigEx error = assertThrows(ModConfigEx.class, () -> parse(content));
+        assertEquals("test.modlr", error.getOrigin());
+        assertEquals(line, error.getLine(), error.getMessage());
+        assertEquals(column, error.getColumn(), error.getMessage());
+        assertTrue(error.getMessage().startsWith("test.modlr:" + line + ":" + column + ": "));
+    }
+
+    @Test
+    void testParseManifest() throws Exception {
+        List<ModuleManifest> manifests = parse("""
+                # Two modules
+                [module]
+                class = com.example.Hello   # The entry point
+                uuid = 81f9ab59
+                version = "1.2.0 #beta"
+                depends = 452457c5, 1a2b3c4d
+                priority = 10
+                quota.tasks = 4
+                quota.cpu = 50ms
+                quota.allocation = 64MB
+                quota.policy = stop
+                group = latency-critical
+
+                [module]
+                class = com.example.World
+                uuid = 452457c5
+                lazy = true
+                """);
+
+        assertEquals(2, manifests.size());
+        ModuleManifest hello = manifests.get(0);
+        assertEquals("com.example.Hello", hello.getClassName());
+        assertEquals("81f9ab59", hello.getUuid());
+        assertEquals("1.2.0 #beta", hello.getVersion());
+        assertEquals(List.of("452457c5", "1a2b3c4d"), hello.getDepends());
+        assertEquals(10, hello.getPriority());
+        assertFalse(hello.isLazy());
+        assertEquals(4, hello.getQuota().getMaxConcurrentTasks());
+        assertEquals(Duration.ofMillis(50).toNanos(), hello.getQuota().getMaxCpuTimeNanos());
+        assertEquals(64L * 1024 * 1024, hello.getQuota().getMaxAllocatedBytes());
+        assertEquals(Duration.ofSeconds(1), hello.getQuota().getPeriod());
+        assertEquals(QuotaPolicy.STOP, hello.getQuota().getPolicy());
+        assertEquals(ExecutionGroup.LATENCY_CRITICAL, hello.getGroup());
+        assertEquals("test.modlr:2", hello.getOrigin());
+
+        ModuleManifest world = manifests.get(1);
+        assertTrue(world.isLazy());
+        assertNull(world.getQuota());
+        assertNull(world.getVersion());
+        assertNull(world.getGroup());
+    }
+
+    @Test
+    void testLegacyManifest() throws Exception {
+        List<ModuleManifest> manifests = parse("# Legacy\nHello=com.example.Hello\nWorld : com.example.World \n");
+
+        assertEquals(2, manifests.size());
+        assertEquals("com.example.Hello", manifests.get(0).getClassName());
+        assertEquals("com.example.World", manifests.get(1).getClassName());
+        assertNull(manifests.get(0).getUuid());
+    }
+
+    @Test
+    void testErrorLocations() {
+        assertError("[module\nclass = a.B\n", 1, 8);
+        assertError("[module]\nclass = a.B\nuuid = 1234\n", 3, 8);
+        assertError("[module]\nclass = a.B\n  color = red\n", 3, 3);
+        assertError("[module]\nclass = a.B\ndepends = 12345678, 1234\n", 3, 21);
+        assertError("[module]\nclass = a.B\nlazy = yes\n", 3, 8);
+        assertError("[module]\nclass = a.B\nquota.cpu = fast\n", 3, 13);
+        assertError("[module]\nclass = a.B\ngroup = urgent\n", 3, 9);
+        assertError("[module]\nclass = \"a.B\n", 2, 13);
+        assertError("[module]\nclass a.B\n", 2, 7);
+        assertError("[module]\nclass = a.B\nclass = a.C\n", 3, 1);
+        assertError("\n\n[module]\nuuid = 12345678\n", 3, 1);
+        assertError("[module]\nclass = a.B\nlazy = true\n", 3, 8);
+    }
+
+    @Test
+    void testSourceConfigWithLazyModule() throws Exception {
+        File dir = Files.createTempDirectory("modularkit-config").toFile();
+        File modules = new File(dir, "modules");
+        assertTrue(modules.mkdir());
+
+        TestJars.moduleJar(modules, "a.jar", "config.sample.First", "18000001", "1.0", """
+                [module]
+                class = config.sample.First
+                uuid = 18000001
+                version = 1.0
+                priority = 5
+                quota.tasks = 2
+                """);
+        TestJars.moduleJar(modules, "b.jar", "config.sample.Second", "18000002", "1.0", """
+                [module]
+                class = config.sample.Second
+                uuid = 18000002
+                depends = 18000001
+                lazy = true
+                """);
+
+        List<ModuleManifest> read = ConfigParser.readManifests(new File(modules, "b.jar"));
+        assertEquals("config.sample.Second", read.get(0).getClassName());
+        assertEquals("b.jar!/.modlr:1", read.get(0).getOrigin());
+
+        File config = new File(dir, "source.conf");
+        Files.writeString(config.toPath(), """
+                [source]
+                uuid = 18000000
+                modules = modules
+                health-interval = 200ms
+                """);
+
+        source = ModularSource.fromConfig(config, null);
+        assertTrue(source.getLoadErrors().isEmpty(), source.getLoadErrors().toString());
+        assertEquals(Duration.ofMillis(200), source.getModuleManager().getHealthCheckInterval());
+        assertEquals(5, source.getManifest("18000001").getPriority());
+        assertEquals(2, source.getModuleManager().getQuotaState(
+                source.getUnmodifiableModuleMap().get("18000001")).getQuota().getMaxConcurrentTasks());
+
+        // The lazy module is declared, not instantiated.
+        assertTrue(source.getLazyModules().containsKey("18000002"));
+        assertFalse(source.getUnmodifiableModuleMap().containsKey("18000002"));
+        assertEquals(1, source.startModules());
+        assertNull(source.getModuleManager().findModuleByUuiD("18000002"), "A lookup should not instantiate it");
+        assertTrue(source.getLazyModules().containsKey("18000002"));
+
+        source.getModuleManager().runModule("18000002", null);
+        ModularModule second = source.getUnmodifiableModuleMap().get("18000002");
+        assertNotNull(second);
+        assertTrue(source.getLazyModules().isEmpty());
+        assertEquals("18000001", source.getModuleManager().getDepends(second).get(0).getUuid());
+        assertTrue(second.awaitStatus(ModuleStatus.RUNNING, 5, java.util.concurrent.TimeUnit.SECONDS));
+    }
+}
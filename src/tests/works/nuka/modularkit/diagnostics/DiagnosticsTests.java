@@ -0,0 +1,83 @@
+package works.nuka.modularkit.diagnostics;
+
+import org.junit.jupiter.api.Test;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.TestJars;
+import works.nuka.modularkit.ex.ModRegisterEx;
+import works.nuka.modularkit.ex.ModRunEx;
+import works.nuka.modularkit.ex.ModSourceEx;
+import works.nuka.modularkit.ex.ModUuidEx;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiagnosticsTests {
+
+    @Test
+    void testRingKeepsTheLastRecords() {
+        Diagnostics diagnostics = new Diagnostics("d1a9e0c3", 4);
+
+        for (int i = 0; i < 10; i++)
+            diagnostics.report(DiagnosticPhase.RUN, "mod" + i, new ModSourceEx("error " + i));
+
+        List<DiagnosticRecord> records = diagnostics.getRecords();
+        assertEquals(10, diagnostics.getReportedCount());
+        assertEquals(4, records.size());
+        assertEquals("mod6", records.get(0).getModuleUuid());
+        assertEquals("mod9", records.get(3).getModuleUuid());
+        assertEquals(ModSourceEx.class, records.get(3).getErrorType());
+        assertEquals("d1a9e0c3", records.get(3).getSourceUuid());
+    }
+
+    @Test
+    void testSinksRunOnTheDiagnosticsThread() {
+        Diagnostics diagnostics = new Diagnostics("d2b8f1d4");
+        List<String> threads = new CopyOnWriteArrayList<>();
+        diagnostics.addSink(record -> threads.add(Thread.currentThread().getName()));
+
+        DiagnosticRecord record = diagnostics.report(DiagnosticPhase.REGISTER, "5e6f7a8b",
+                new ModRegisterEx("Module already instantiated !"));
+
+        assertTrue(Diagnostics.flush(5, TimeUnit.SECONDS));
+        assertEquals(List.of("ModularKit-Diagnostics"), threads);
+        assertEquals(DiagnosticPhase.REGISTER, record.getPhase());
+        assertEquals("Module already instantiated !", record.getMessage());
+    }
+
+    @Test
+    void testLoadErrorsAreCollected() throws Exception {
+        File dir = Files.createTempDirectory("modularkit-diagnostics").toFile();
+        TestJars.moduleJar(dir, "valid.jar", "diag.sample.ValidModule", "3c4d5e6f", "1.0");
+        Files.writeString(new File(dir, "broken.jar").toPath(), "not a jar");
+
+        ModularSource source = new ModularSource("d3c7a2e5", dir, "jar");
+        try {
+            assertTrue(source.getUnmodifiableModuleMap().containsKey("3c4d5e6f"), "The valid module is loaded");
+
+            List<DiagnosticRecord> errors = source.getLoadErrors();
+            assertEquals(1, errors.size());
+            assertEquals(DiagnosticPhase.LOAD, errors.get(0).getPhase());
+            assertTrue(errors.get(0).getMessage().contains("broken.jar"));
+            assertTrue(source.getDiagnostics().getRecords().contains(errors.get(0)));
+        } finally {
+            source.destroy(false);
+        }
+    }
+
+    @Test
+    void testRunErrorsAreReturnedToTheCaller() throws Exception {
+        ModularSource source = new ModularSource("d4e6b3f6");
+        try {
+            ModRunEx ex = assertThrows(ModRunEx.class, () -> source.getModuleManager().runModule("bad", null));
+            assertInstanceOf(ModUuidEx.class, ex.getCause());
+            assertEquals(1, source.getDiagnostics().getReportedCount());
+        } finally {
+            source.destroy(false);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package works.nuka.modularkit.isolation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import works.nuka.modularkit.ModularModule;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.diagnostics.DiagnosticPhase;
+import works.nuka.modularkit.events.ModuleHealth;
+import works.nuka.modularkit.events.ModuleStatus;
+import works.nuka.modularkit.ex.ModRunEx;
+import works.nuka.modularkit.ex.ModUuidEx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IsolationTests {
+
+    private ChildJvmPool pool;
+    private ModularSource source;
+
+    // Instantiated again in the child JVM : public, with a no-arg constructor.
+    public static class PidModule extends ModularModule {
+        public PidModule() throws ModUuidEx {
+            super("PidModule", "15000001", "Tests", "1.0");
+        }
+
+        @Override
+        protected void start() {
+            try {
+                // Written then moved : the host never reads a partial file.
+                Path marker = marker();
+                Path part = Files.writeString(marker.resolveSibling(marker.getFileName() + ".part"),
+                        Long.toString(ProcessHandle.current().pid()));
+                Files.move(part, marker, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        protected void stop() {
+        }
+
+        @Override
+        protected void load() {
+        }
+
+        @Override
+        protected void unload() {
+        }
+    }
+
+    public static class CrashingModule extends ModularModule {
+        public CrashingModule() throws ModUuidEx {
+            super("CrashingModule", "15000002", "Tests", "1.0");
+        }
+
+        @Override
+        protected void start() {
+            Runtime.getRuntime().halt(3);
+        }
+
+        @Override
+        protected void stop() {
+        }
+
+        @Override
+        protected void load() {
+        }
+
+        @Override
+        protected void unload() {
+        }
+    }
+
+    public static class SlowLoadModule extends ModularModule {
+        static volatile boolean inHost; // Only set in the host JVM.
+
+        public SlowLoadModule() throws ModUuidEx, InterruptedException {
+            super("SlowLoadModule", "15000003", "Tests", "1.0");
+            if (!inHost)
+                Thread.sleep(10_000);
+        }
+
+        @Override
+        protected void start() {
+        }
+
+        @Override
+        protected void stop() {
+        }
+
+        @Override
+        protected void load() {
+        }
+
+        @Override
+        protected void unload() {
+        }
+    }
+
+    // The child knows the host by its parent pid.
+    private static Path marker() {
+        long hostPid = ProcessHandle.current().parent().map(ProcessHandle::pid).orElse(0L);
+        return Path.of(System.getProperty("java.io.tmpdir"), "modularkit-isolation-" + hostPid + ".pid");
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pool = new ChildJvmPool(1);
+        source = new ModularSource("15000000");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        source.destroy(false);
+        pool.close();
+        Files.deleteIfExists(Path.of(System.getProperty("java.io.tmpdir"),
+                "modularkit-isolation-" + ProcessHandle.current().pid() + ".pid"));
+    }
+
+    @Test
+    void testModuleRunsInChildJvm() throws Exception {
+        Path marker = Path.of(System.getProperty("java.io.tmpdir"),
+                "modularkit-isolation-" + ProcessHandle.current().pid() + ".pid");
+        Files.deleteIfExists(marker);
+
+        PidModule module = new PidModule();
+        source.registerModule(module);
+        source.getModuleManager().setIsolation(module, pool);
+        assertTrue(source.getModuleManager().runModule(module, null));
+
+        assertTrue(await(() -> Files.exists(marker) && source.getModuleManager().getChildJvm(module) != null));
+        long childPid = Long.parseLong(Files.readString(marker).trim());
+        assertNotEquals(ProcessHandle.current().pid(), childPid);
+        assertEquals(childPid, source.getModuleManager().getChildJvm(module).getPid());
+
+        ChildJvm child = source.getModuleManager().getChildJvm(module);
+        source.getModuleManager().stopModule(module, false, null);
+        assertEquals(ModuleStatus.STOPPED, module.getModuleStatus());
+        assertNull(source.getModuleManager().getChildJvm(module));
+        assertFalse(child.isAlive());
+    }
+
+    @Test
+    void testUpgradeKeepsIsolation() throws Exception {
+        Path marker = Path.of(System.getProperty("java.io.tmpdir"),
+                "modularkit-isolation-" + ProcessHandle.current().pid() + ".pid");
+        Files.deleteIfExists(marker);
+
+        PidModule v1 = new PidModule();
+        source.registerModule(v1);
+        source.getModuleManager().setIsolation(v1, pool);
+        assertTrue(source.getModuleManager().runModule(v1, null));
+        assertTrue(await(() -> Files.exists(marker) && source.getModuleManager().getChildJvm(v1) != null));
+        Files.delete(marker);
+
+        PidModule v2 = new PidModule();
+        source.upgradeModule(v2, Duration.ofSeconds(30));
+        assertSame(pool, source.getModuleManager().getIsolation(v2));
+        assertTrue(await(() -> Files.exists(marker)));
+        assertNotEquals(ProcessHandle.current().pid(), Long.parseLong(Files.readString(marker).trim()));
+        assertNotNull(source.getModuleManager().getChildJvm(v2));
+        assertNull(source.getModuleManager().getChildJvm(v1));
+    }
+
+    @Test
+    void testChildCrashLeavesHostAlive() throws Exception {
+        CrashingModule module = new CrashingModule();
+        source.registerModule(module);
+        source.getModuleManager().setIsolation(module, pool);
+        assertTrue(source.getModuleManager().runModule(module, null));
+
+        assertTrue(module.awaitStatus(ModuleStatus.STOPPED, 30, TimeUnit.SECONDS));
+        assertEquals(ModuleHealth.DOWN, module.getHealth());
+        assertTrue(source.getDiagnostics().getRecords().stream().anyMatch(record ->
+                record.getPhase() == DiagnosticPhase.RUN && "15000002".equals(record.getModuleUuid())
+                        && record.getMessage().contains("exit code 3")));
+
+        // The module can run again, in a fresh child.
+        assertTrue(source.getModuleManager().runModule(module, null));
+        assertTrue(module.awaitStatus(ModuleStatus.STOPPED, 30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRequestTimeoutKillsChild() throws Exception {
+        pool.setTimeouts(Duration.ofSeconds(30), Duration.ofMillis(500));
+        pool.acquire().shutdown(); // The warm child kept the previous timeouts.
+        ChildJvm child = pool.acquire();
+
+        SlowLoadModule.inHost = true;
+        SlowLoadModule module = new SlowLoadModule();
+        assertThrows(ModRunEx.class, () -> child.load(module, "15000000", Duration.ofSeconds(1), null));
+        assertTrue(await(() -> !child.isAlive()), "A child which missed a request must not answer the next one");
+    }
+
+    @Test
+    void testWarmPoolRefills() throws Exception {
+        assertTrue(await(() -> pool.getIdleCount() == 1));
+        assertEquals(1, pool.getSpawnCount());
+
+        ChildJvm first = pool.acquire();
+        assertTrue(first.isAlive());
+        assertTrue(await(() -> pool.getIdleCount() == 1));
+        assertEquals(2, pool.getSpawnCount());
+
+        ChildJvm second = pool.acquire();
+        assertNotEquals(first.getPid(), second.getPid());
+
+        pool.close();
+        assertFalse(first.isAlive());
+        assertFalse(second.isAlive());
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean())
+                return true;
+            Thread.sleep(20);
+        }
+        return condition.getAsBoolean();
+    }
+}
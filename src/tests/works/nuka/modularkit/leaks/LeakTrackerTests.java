@@ -0,0 +1,120 @@
+package works.nuka.modularkit.leaks;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import works.nuka.modularkit.ModularModule;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.TestJars;
+import works.nuka.modularkit.ex.ModUuidEx;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeakTrackerTests {
+
+    private final List<Path> cleanup = new ArrayList<>();
+
+    private static class PlainModule extends ModularModule {
+        private final byte[] buffer = new byte[64 * 1024];
+
+        PlainModule(String uuid) throws ModUuidEx {
+            super("PlainModule", uuid, "Tests", "1.0");
+        }
+
+        @Override
+        protected void start() {
+        }
+
+        @Override
+        protected void stop() {
+        }
+
+        @Override
+        protected void load() {
+        }
+
+        @Override
+        protected void unload() {
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (Path path : cleanup)
+            Files.deleteIfExists(path);
+    }
+
+    @Test
+    void testReleasedModuleIsCollected() throws Exception {
+        LeakTracker tracker = new LeakTracker();
+        tracker.watchModule(new PlainModule("16000001"), "16000000");
+
+        LeakReport report = tracker.report(Duration.ofSeconds(10));
+        assertFalse(report.hasLeaks(), report.toString());
+        assertEquals(1, report.getCollectedCount());
+        assertEquals(0, tracker.getWatchedCount());
+    }
+
+    @Test
+    void testLeakReportedWithRetainingPath() throws Exception {
+        LeakTracker tracker = new LeakTracker();
+        List<Object> cache = new ArrayList<>();
+        cache.add(new PlainModule("16000002"));
+        tracker.addRoot("cache", cache);
+        tracker.watchModule((ModularModule) cache.get(0), "16000000");
+
+        Path dump = Files.createTempDirectory("modularkit-leaks").resolve("leak.hprof");
+        cleanup.add(dump);
+        cleanup.add(dump.getParent());
+
+        LeakReport report = tracker.report(Duration.ofMillis(200), dump);
+        assertEquals(1, report.getLeaks("16000000").size(), report.toString());
+        Leak leak = report.getLeaks().get(0);
+        assertEquals(Leak.Kind.MODULE, leak.getKind());
+        assertEquals("16000002", leak.getName());
+        assertTrue(leak.getRetainedBytes() >= 64 * 1024);
+        assertEquals("cache", leak.getRetainingPath().get(0));
+        assertTrue(leak.getRetainingPath().get(1).contains("PlainModule"), leak.getRetainingPath().toString());
+        assertTrue(Files.size(dump) > 0);
+        assertEquals(dump, report.getHeapDump());
+
+        cache.clear();
+        assertFalse(tracker.report(Duration.ofSeconds(10)).hasLeaks());
+    }
+
+    @Test
+    void testUnregisteredJarModuleIsCollected() throws Exception {
+        File dir = Files.createTempDirectory("modularkit-leaks").toFile();
+        TestJars.moduleJar(dir, "leak.jar", "leaks.sample.JarModule", "16000003", "1.0");
+        ModularSource source = new ModularSource("16000010", dir, "jar");
+
+        ModularModule module = source.getUnmodifiableModuleMap().get("16000003");
+        assertNotNull(module);
+        assertTrue(source.unregisterModule(module));
+        module = null;
+
+        LeakReport report = LeakTracker.global().report(Duration.ofSeconds(10));
+        assertTrue(report.getLeaks("16000010").isEmpty(), report.toString());
+
+        source.destroy(false);
+        for (File file : dir.listFiles())
+            cleanup.add(file.toPath());
+        cleanup.add(dir.toPath());
+    }
+
+    @Test
+    void testEstimateRetainedBytes() throws Exception {
+        ModularSource source = new ModularSource("16000020");
+        source.registerModule(new PlainModule("16000004"));
+
+        long bytes = LeakTracker.estimateRetainedBytes(source).get("16000004");
+        assertTrue(bytes >= 64 * 1024 && bytes < 1024 * 1024, "estimate " + bytes);
+        source.destroy(false);
+    }
+}
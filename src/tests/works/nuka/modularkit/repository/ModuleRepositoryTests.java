@@ -0,0 +1,188 @@
+package works.nuka.modularkit.repository;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.TestJars;
+import works.nuka.modularkit.ex.ModSourceEx;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModuleRepositoryTests {
+
+    private File remote;
+    private File cacheDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        remote = Files.createTempDirectory("modularkit-remote").toFile();
+        cacheDir = Files.createTempDirectory("modularkit-cache").toFile();
+        TestJars.moduleJar(remote, "hello.jar", "repo.sample.HelloModule", "1a2b3c4d", "1.0");
+        TestJars.moduleJar(remote, "world.jar", "repo.sample.WorldModule", "5e6f7a8b", "1.0");
+    }
+
+    private static String sha256(byte[] content) throws IOException {
+        return ModuleCache.sha256(new ByteArrayInputStream(content));
+    }
+
+    @Test
+    void testPullAndReuseAcrossRestarts() throws Exception {
+        ModuleRepository repository = new ModuleRepository(new FileSystemFetcher(remote, "jar"),
+                new ModuleCache(cacheDir, 1024 * 1024));
+
+        ModularSource source = repository.createSource("0e1f2a3b", null);
+        try {
+            assertTrue(source.getUnmodifiableModuleMap().containsKey("1a2b3c4d"));
+            assertTrue(source.getUnmodifiableModuleMap().containsKey("5e6f7a8b"));
+            assertTrue(source.getLoadErrors().isEmpty());
+            assertEquals(2, repository.getDownloadCount());
+        } finally {
+            source.destroy(false);
+        }
+
+        // A new node start : same cache, the remote is gone but its module set is known.
+        List<ModuleArtifact> moduleSet = new FileSystemFetcher(remote, "jar").listArtifacts();
+        ModuleFetcher offline = new ModuleFetcher() {
+            @Override
+            public List<ModuleArtifact> listArtifacts() {
+                return moduleSet;
+            }
+
+            @Override
+            public InputStream open(ModuleArtifact artifact) throws IOException {
+                throw new IOException("offline");
+            }
+        };
+
+        ModuleRepository restarted = new ModuleRepository(offline, new ModuleCache(cacheDir, 1024 * 1024));
+        List<File> files = restarted.pull();
+        assertEquals(2, files.size());
+        assertEquals(0, restarted.getDownloadCount());
+        assertEquals(2, restarted.getCache().getHitCount());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEviction() throws Exception {
+        ModuleCache cache = new ModuleCache(cacheDir, 250);
+        byte[] a = new byte[100], b = new byte[100], c = new byte[100];
+        a[0] = 1;
+        b[0] = 2;
+        c[0] = 3;
+
+        cache.put(sha256(a), ".bin", new ByteArrayInputStream(a));
+        cache.put(sha256(b), ".bin", new ByteArrayInputStream(b));
+        assertNotNull(cache.get(sha256(a))); // b is now the least recently used.
+        cache.put(sha256(c), ".bin", new ByteArrayInputStream(c));
+
+        assertTrue(cache.contains(sha256(a)));
+        assertFalse(cache.contains(sha256(b)));
+        assertTrue(cache.contains(sha256(c)));
+        assertEquals(200, cache.getSize());
+        assertEquals(2, cacheDir.listFiles().length);
+    }
+
+    @Test
+    void testModuleSetLargerThanCache() throws Exception {
+        ModuleRepository repository = new ModuleRepository(new FileSystemFetcher(remote, "jar"),
+                new ModuleCache(cacheDir, 1));
+
+        ModularSource source = repository.createSource("0e1f2a3c", null);
+        try {
+            assertTrue(source.getLoadErrors().isEmpty(), "Pulled files were evicted : " + source.getLoadErrors());
+            assertEquals(2, source.getUnmodifiableModuleMap().size());
+            assertEquals(2, repository.getCache().getEntryCount());
+
+            // Another content does not evict the files of the live source.
+            byte[] other = new byte[]{7};
+            repository.getCache().put(sha256(other), ".bin", new ByteArrayInputStream(other));
+            assertEquals(3, repository.getCache().getEntryCount());
+        } finally {
+            source.destroy(false);
+        }
+
+        assertEquals(1, repository.getCache().getSize(), "Unpinned at destroy, the cache fits again");
+    }
+
+    @Test
+    void testContentMismatchIsRejected() throws Exception {
+        ModuleCache cache = new ModuleCache(cacheDir, 1024);
+        String wrong = sha256(new byte[]{1});
+
+        assertThrows(IOException.class, () -> cache.put(wrong, ".bin", new ByteArrayInputStream(new byte[]{2})));
+        assertFalse(cache.contains(wrong));
+        assertEquals(0, cacheDir.listFiles().length);
+    }
+
+    @Test
+    void testConcurrentDownloadsAreDeduplicated() throws Exception {
+        byte[] jar = Files.readAllBytes(new File(remote, "hello.jar").toPath());
+        String hash = sha256(jar);
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/modules/index", exchange -> {
+            byte[] index = (hash + " hello.jar\n").getBytes();
+            exchange.sendResponseHeaders(200, index.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(index);
+            }
+        });
+        server.createContext("/modules/hello.jar", exchange -> {
+            requests.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, jar.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(jar);
+            }
+        });
+        server.start();
+
+        try {
+            URI base = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/modules");
+            ModuleRepository repository = new ModuleRepository(new HttpFetcher(base),
+                    new ModuleCache(cacheDir, 1024 * 1024));
+            ModuleArtifact artifact = new HttpFetcher(base).listArtifacts().get(0);
+            assertEquals(new ModuleArtifact("hello.jar", hash), artifact);
+
+            List<CompletableFuture<File>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                futures.add(repository.fetchAsync(artifact));
+            release.countDown();
+
+            File file = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (CompletableFuture<File> future : futures)
+                assertEquals(file, future.get(10, TimeUnit.SECONDS));
+
+            assertEquals(1, requests.get());
+            assertEquals(1, repository.getDownloadCount());
+            assertEquals(hash + ".jar", file.getName());
+
+            ModSourceEx ex = assertThrows(ModSourceEx.class,
+                    () -> repository.fetch(new ModuleArtifact("missing.jar", sha256(new byte[]{9}))));
+            assertInstanceOf(IOException.class, ex.getCause());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package works.nuka.modularkit.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import works.nuka.modularkit.ModularModule;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.ModuleClassLoader;
+import works.nuka.modularkit.TestJars;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JarVerifierTests {
+
+    private static final byte[] CACHE_KEY = "0123456789abcdef0123456789abcdef".getBytes();
+    private File dir;
+    private File jar;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = Files.createTempDirectory("modularkit-verify").toFile();
+        jar = TestJars.moduleJar(dir, "verified.jar", "verify.sample.VerifiedModule", "9a8b7c6d", "1.0");
+    }
+
+    private static String sha256(File file) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file.toPath())));
+    }
+
+    private static void run(String... command) throws Exception {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        process.getInputStream().transferTo(java.io.OutputStream.nullOutputStream());
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+        assertEquals(0, process.exitValue(), "Command failed : " + String.join(" ", command));
+    }
+
+    @Test
+    void testDigestPolicy() throws Exception {
+        JarVerifier verifier = new JarVerifier(VerificationPolicy.DIGEST);
+        assertFalse(verifier.verify(jar).isTrusted());
+
+        verifier.trustDigest(sha256(jar));
+        VerificationResult result = verifier.verify(jar);
+        assertTrue(result.isTrusted());
+        assertEquals(sha256(jar), result.getSha256());
+    }
+
+    @Test
+    void testResultsAreCachedByContent() throws Exception {
+        JarVerifier verifier = new JarVerifier(VerificationPolicy.DIGEST).trustDigest(sha256(jar));
+
+        assertFalse(verifier.verify(jar).isCached());
+        assertTrue(verifier.verify(jar).isCached());
+        assertEquals(1, verifier.getVerificationCount());
+
+        File copy = new File(dir, "copy.jar");
+        Files.copy(jar.toPath(), copy.toPath());
+        assertTrue(verifier.verify(copy).isCached(), "Same content, same cached result");
+        assertEquals(1, verifier.getVerificationCount());
+    }
+
+    @Test
+    void testPersistentCache() throws Exception {
+        File cache = new File(dir, "verify.cache");
+        File other = TestJars.moduleJar(dir, "other.jar", "verify.sample.OtherModule", "1a2b3c4d", "1.0");
+        JarVerifier verifier = new JarVerifier(VerificationPolicy.DIGEST).trustDigest(sha256(jar))
+                .setCacheFile(cache, CACHE_KEY);
+        verifier.verify(jar);
+        verifier.verify(other);
+        assertFalse(cache.exists(), "Written once, by flush()");
+        verifier.flush();
+
+        JarVerifier restarted = new JarVerifier(VerificationPolicy.DIGEST).trustDigest(sha256(jar))
+                .setCacheFile(cache, CACHE_KEY);
+        assertTrue(restarted.verify(jar).isTrusted());
+        assertFalse(restarted.verify(other).isTrusted());
+        assertEquals(0, restarted.getVerificationCount());
+    }
+
+    @Test
+    void testSourceFlushesCache() throws Exception {
+        File cache = new File(dir, "verify.cache");
+        JarVerifier verifier = new JarVerifier(VerificationPolicy.DIGEST).trustDigest(sha256(jar))
+                .setCacheFile(cache, CACHE_KEY);
+        new ModularSource("5e6f7a8d", dir, "jar", verifier).destroy(false);
+
+        JarVerifier restarted = new JarVerifier(VerificationPolicy.DIGEST).trustDigest(sha256(jar))
+                .setCacheFile(cache, CACHE_KEY);
+        assertTrue(restarted.verify(jar).isCached());
+    }
+
+    @Test
+    void testForgedCacheIsIgnored() throws Exception {
+        File cache = new File(dir, "verify.cache");
+        JarVerifier verifier = new JarVerifier(VerificationPolicy.DIGEST).setCacheFile(cache, CACHE_KEY);
+        assertFalse(verifier.verify(jar).isTrusted());
+        verifier.flush();
+
+        // Flip the cached result without the key.
+        String content = Files.readString(cache.toPath());
+        assertTrue(content.contains("KO\\:"));
+        Files.writeString(cache.toPath(), content.replace("KO\\:", "OK\\:"));
+
+        JarVerifier restarted = new JarVerifier(VerificationPolicy.DIGEST).setCacheFile(cache, CACHE_KEY);
+        assertFalse(restarted.verify(jar).isTrusted());
+        assertEquals(1, restarted.getVerificationCount());
+
+        JarVerifier otherKey = new JarVerifier(VerificationPolicy.DIGEST).setCacheFile(cache, new byte[32]);
+        assertFalse(otherKey.verify(jar).isCached());
+    }
+
+    @Test
+    void testContentChangeWithSameSizeAndTime() throws Exception {
+        JarVerifier verifier = new JarVerifier(VerificationPolicy.DIGEST).trustDigest(sha256(jar));
+        assertTrue(verifier.verify(jar).isTrusted());
+
+        byte[] content = Files.readAllBytes(jar.toPath());
+        long lastModified = jar.lastModified();
+        content[content.length - 1] ^= 1; // Same size.
+        Files.write(jar.toPath(), content);
+        assertTrue(jar.setLastModified(lastModified));
+
+        assertFalse(verifier.verify(jar).isTrusted(), "The content is hashed on every verification");
+    }
+
+    @Test
+    void testUnsignedJarIsRejected() throws Exception {
+        VerificationResult result = new JarVerifier(VerificationPolicy.SIGNED).verify(jar);
+        assertFalse(result.isTrusted());
+        assertTrue(result.getReason().startsWith("Unsigned entry"));
+    }
+
+    @Test
+    void testSignedJar() throws Exception {
+        String bin = System.getProperty("java.home") + File.separator + "bin" + File.separator;
+        File keystore = new File(dir, "keystore.p12");
+        run(bin + "keytool", "-genkeypair", "-keystore", keystore.getPath(), "-storepass", "changeit",
+                "-alias", "modules", "-keyalg", "EC", "-dname", "CN=ModularKit Tests", "-validity", "2");
+        run(bin + "jarsigner", "-keystore", keystore.getPath(), "-storepass", "changeit", jar.getPath(), "modules");
+
+        assertTrue(new JarVerifier(VerificationPolicy.SIGNED).verify(jar).isTrusted());
+    }
+
+    @Test
+    void testSourceSkipsUntrustedFiles() throws Exception {
+        TestJars.moduleJar(dir, "trusted.jar", "verify.sample.TrustedModule", "1a2b3c4d", "1.0");
+        JarVerifier verifier = new JarVerifier(VerificationPolicy.DIGEST).trustDigest(sha256(new File(dir, "trusted.jar")));
+
+        ModularSource source = new ModularSource("5e6f7a8b", dir, "jar", verifier);
+        try {
+            assertNotNull(source.getUnmodifiableModuleMap().get("1a2b3c4d"));
+            assertNull(source.getUnmodifiableModuleMap().get("9a8b7c6d"), "The untrusted jar should be skipped");
+        } finally {
+            source.destroy(false);
+        }
+    }
+
+    @Test
+    void testSourceLoadsVerifiedSnapshot() throws Exception {
+        File trusted = TestJars.moduleJar(dir, "trusted.jar", "verify.sample.TrustedModule", "1a2b3c4d", "1.0");
+        JarVerifier verifier = new JarVerifier(VerificationPolicy.DIGEST).trustDigest(sha256(trusted));
+
+        ModularSource source = new ModularSource("5e6f7a8c", dir, "jar", verifier);
+        File snapshot;
+        try {
+            ModularModule module = source.getUnmodifiableModuleMap().get("1a2b3c4d");
+            ModuleClassLoader loader = (ModuleClassLoader) module.getClass().getClassLoader();
+            assertEquals(trusted, loader.getModuleFile());
+            snapshot = loader.getLoadedFile();
+            assertNotEquals(trusted, snapshot);
+            assertEquals(sha256(trusted), sha256(snapshot));
+
+            // Replaced after its verification : the loader keeps reading the verified bytes.
+            Files.copy(jar.toPath(), trusted.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            assertNotNull(loader.findResource("verify/sample/TrustedModule.class"));
+            assertNull(loader.findResource("verify/sample/VerifiedModule.class"));
+        } finally {
+            source.destroy(false);
+        }
+        assertFalse(snapshot.exists(), "The snapshot is deleted with its class loader");
+    }
+}
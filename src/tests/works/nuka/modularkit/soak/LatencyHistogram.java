@@ -0,0 +1,71 @@
+package works.nuka.modularkit.soak;
+
+/**
+ * A fixed size latency histogram for the long soak runs : the latencies are counted in log-linear buckets
+ * (8 buckets per power of two, about 6% of error on the percentiles) instead of being kept.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 8;
+
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+    synchronized void record(long nanos) {
+        nanos = Math.max(nanos, 1);
+        counts[bucket(nanos)]++;
+        count++;
+        total += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    synchronized long getCount() {
+        return count;
+    }
+
+    synchronized long getMeanNanos() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    synchronized long getMaxNanos() {
+        return max;
+    }
+
+    /**
+     * @param percentile - The percentile, between 0 and 100.
+     * @return - Returns the upper bound of the bucket of the percentile, 0 without latency.
+     */
+    synchronized long getPercentileNanos(double percentile) {
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    private static int bucket(long nanos) {
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent < 3)
+            return (int) nanos; // Below 8ns, one bucket per value.
+
+        int sub = (int) (nanos >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        int exponent = bucket / SUB_BUCKETS;
+        if (exponent < 3)
+            return bucket;
+
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+    }
+}
@@ -0,0 +1,373 @@
+package works.nuka.modularkit.soak;
+
+import works.nuka.modularkit.ModularModule;
+import works.nuka.modularkit.ModularSource;
+import works.nuka.modularkit.diagnostics.DiagnosticRecord;
+import works.nuka.modularkit.events.ModuleHealth;
+import works.nuka.modularkit.ex.ModRegisterEx;
+import works.nuka.modularkit.ex.ModRunEx;
+import works.nuka.modularkit.ex.ModSourceEx;
+import works.nuka.modularkit.ex.ModUuidEx;
+import works.nuka.modularkit.leaks.Leak;
+import works.nuka.modularkit.leaks.LeakTracker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SoakHarness - Run load -> start-all -> churn (stop / start / reload) -> destroy cycles over a directory of
+ * module jars (see SyntheticModules), until a cycle count or a duration is reached, and report the latencies,
+ * the throughput and the JVM state over time.
+ * <p>
+ * The long certification runs go through main(), eg :
+ * <pre>
+ * java -cp target/classes:target/test-classes works.nuka.modularkit.soak.SoakHarness modules=5000 duration=4h
+ * </pre>
+ */
+public final class SoakHarness {
+
+    /**
+     * The uuid of the soak sources.
+     */
+    public static final String SOURCE_UUID = "50a4ce00";
+
+    private static final int MAX_ERRORS = 20;
+
+    private final File moduleDirectory;
+    private final Map<String, File> jars;
+    private final Map<SoakOperation, LatencyHistogram> latencies = new EnumMap<>(SoakOperation.class);
+    private final List<SoakSample> samples = Collections.synchronizedList(new ArrayList<>());
+    private final Map<ModularModule, Long> pendingStarts = new ConcurrentHashMap<>();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicInteger cycle = new AtomicInteger();
+
+    private int cycles = Integer.MAX_VALUE;
+    private Duration duration;
+    private int churnRounds = 3;
+    private double churnFraction = 0.1;
+    private Duration sampleInterval = Duration.ofSeconds(10);
+    private Duration readyTimeout = Duration.ofSeconds(30);
+    private Duration leakTimeout = Duration.ofSeconds(10);
+    private long seed;
+    private PrintStream progress;
+    private long startedAt;
+
+    /**
+     * @param moduleDirectory - The directory of the module jars, loaded by each cycle.
+     * @param jars            - The jar of each module keyed by uuid, used by the reloads.
+     */
+    public SoakHarness(File moduleDirectory, Map<String, File> jars) {
+        this.moduleDirectory = moduleDirectory;
+        this.jars = Map.copyOf(jars);
+        for (SoakOperation operation : SoakOperation.values())
+            latencies.put(operation, new LatencyHistogram());
+    }
+
+    /**
+     * @param cycles - The maximum cycles, unlimited by default.
+     */
+    public SoakHarness setCycles(int cycles) {
+        this.cycles = cycles;
+        return this;
+    }
+
+    /**
+     * @param duration - The duration of the run, no new cycle starts after it. Unlimited by default.
+     */
+    public SoakHarness setDuration(Duration duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    /**
+     * @param rounds   - The churn rounds of a cycle (3 by default).
+     * @param fraction - The fraction of the modules stopped and started, or reloaded, by each round
+     *                 (0.1 by default).
+     */
+    public SoakHarness setChurn(int rounds, double fraction) {
+        this.churnRounds = rounds;
+        this.churnFraction = fraction;
+        return this;
+    }
+
+    /**
+     * @param interval - The interval of the JVM samples (10s by default), a sample is also taken after each cycle.
+     */
+    public SoakHarness setSampleInterval(Duration interval) {
+        this.sampleInterval = interval;
+        return this;
+    }
+
+    /**
+     * @param timeout - How long a module can take to become READY (30s by default).
+     */
+    public SoakHarness setReadyTimeout(Duration timeout) {
+        this.readyTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * @param timeout - How long the released modules can take to be collected after the run (10s by default).
+     */
+    public SoakHarness setLeakTimeout(Duration timeout) {
+        this.leakTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * @param seed - The seed of the churn choices.
+     */
+    public SoakHarness setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param progress - (Optional) Where to print the samples while running.
+     */
+    public SoakHarness setProgress(PrintStream progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    /**
+     * Run the cycles, a harness runs once.
+     *
+     * @return - Returns the SoakReport.
+     * @throws InterruptedException - If the run is interrupted.
+     */
+    public SoakReport run() throws InterruptedException {
+        startedAt = System.nanoTime();
+        long deadline = duration != null ? startedAt + duration.toNanos() : Long.MAX_VALUE;
+        Random random = new Random(seed);
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ModularKit-Soak-Sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sample, sampleInterval.toMillis(), sampleInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+
+        int completed = 0;
+        try {
+            while (completed < cycles && System.nanoTime() < deadline) {
+                cycle.set(completed + 1);
+                runCycle(random);
+                completed++;
+                sample();
+            }
+        } finally {
+            sampler.shutdownNow();
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+        List<Leak> leaks = LeakTracker.global().report(leakTimeout).getLeaks(SOURCE_UUID);
+        return new SoakReport(completed, elapsed, latencies, samples, errorCount.get(), errors, leaks);
+    }
+
+    private void runCycle(Random random) throws InterruptedException {
+        long start = System.nanoTime();
+        SoakSource source;
+        try {
+            source = new SoakSource();
+        } catch (ModUuidEx | ModSourceEx e) {
+            error("Cannot load the soak source : " + e.getMessage());
+            return;
+        }
+        record(SoakOperation.LOAD, start);
+
+        try {
+            List<ModularModule> modules = new ArrayList<>(source.getUnmodifiableModuleMap().values());
+            start = System.nanoTime();
+            for (ModularModule module : modules)
+                pendingStarts.put(module, start);
+            source.startModules();
+            awaitReady(modules);
+
+            for (int round = 0; round < churnRounds; round++)
+                churn(source, random);
+        } finally {
+            // The records overwritten in the ring of the diagnostics are only counted.
+            List<DiagnosticRecord> records = source.getDiagnostics().getRecords();
+            for (DiagnosticRecord record : records)
+                error(record.toString());
+            errorCount.addAndGet(source.getDiagnostics().getReportedCount() - records.size());
+
+            start = System.nanoTime();
+            source.destroy(false);
+            record(SoakOperation.DESTROY, start);
+            pendingStarts.clear();
+        }
+    }
+
+    private void churn(ModularSource source, Random random) throws InterruptedException {
+        List<String> uuids = new ArrayList<>(source.getUnmodifiableModuleMap().keySet());
+        Collections.sort(uuids); // The map order is not stable between runs.
+        Collections.shuffle(uuids, random);
+        int count = Math.max(1, (int) (uuids.size() * churnFraction));
+
+        for (String uuid : uuids.subList(0, Math.min(count, uuids.size()))) {
+            try {
+                if (random.nextBoolean())
+                    restart(source, source.getUnmodifiableModuleMap().get(uuid));
+                else {
+                    long start = System.nanoTime();
+                    source.upgradeModules(jars.get(uuid), null, readyTimeout);
+                    record(SoakOperation.RELOAD, start);
+                }
+            } catch (ModRunEx | ModRegisterEx e) {
+                error("Cannot churn the module " + uuid + " : " + e.getMessage());
+            }
+        }
+    }
+
+    private void restart(ModularSource source, ModularModule module) throws ModRunEx, ModRegisterEx,
+            InterruptedException {
+        long start = System.nanoTime();
+        source.getModuleManager().stopModule(module, false, null);
+        record(SoakOperation.STOP, start);
+
+        pendingStarts.put(module, System.nanoTime());
+        source.getModuleManager().runModule(module, null);
+        awaitReady(List.of(module));
+    }
+
+    private void awaitReady(List<ModularModule> modules) throws InterruptedException {
+        long deadline = System.nanoTime() + readyTimeout.toNanos();
+        for (ModularModule module : modules) {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            if (!module.awaitHealth(ModuleHealth.READY, remaining, TimeUnit.NANOSECONDS)
+                    && pendingStarts.remove(module) != null)
+                error("The module " + module.getUuid() + " is not ready : " + module.getHealth());
+        }
+    }
+
+    private void record(SoakOperation operation, long start) {
+        latencies.get(operation).record(System.nanoTime() - start);
+    }
+
+    private void error(String message) {
+        if (errorCount.incrementAndGet() <= MAX_ERRORS)
+            errors.add(message);
+    }
+
+    private void sample() {
+        long metaspace = -1;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getName().equals("Metaspace"))
+                metaspace = pool.getUsage().getUsed();
+        }
+
+        SoakSample sample = new SoakSample(Duration.ofNanos(System.nanoTime() - startedAt), cycle.get(),
+                ManagementFactory.getThreadMXBean().getThreadCount(),
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), metaspace,
+                ManagementFactory.getClassLoadingMXBean().getLoadedClassCount(),
+                LeakTracker.global().getWatchedCount());
+        samples.add(sample);
+        if (progress != null)
+            progress.println(sample);
+    }
+
+    /**
+     * Generate the synthetic modules and run the soak test, the options are key=value arguments :
+     * <ul>
+     *     <li>modules : the synthetic modules (1000),</li>
+     *     <li>depends : the maximum dependencies of a module (4),</li>
+     *     <li>payload : the bytes held by each module instance (1024),</li>
+     *     <li>cycles : the maximum cycles (unlimited), duration : the duration of the run (1h, eg : 30m, 8h),</li>
+     *     <li>churn-rounds (3) and churn-fraction (0.1) : see setChurn(),</li>
+     *     <li>sample-interval (30s), ready-timeout (30s), seed (0),</li>
+     *     <li>dir : where to generate the jars (a temporary directory).</li>
+     * </ul>
+     * The exit code is 1 if the run had errors or leaks.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0)
+                throw new IllegalArgumentException("Expected key=value : " + arg);
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+
+        File dir = options.containsKey("dir") ? new File(options.get("dir"))
+                : Files.createTempDirectory("modularkit-soak").toFile();
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Cannot create " + dir);
+
+        long seed = Long.parseLong(options.getOrDefault("seed", "0"));
+        int modules = Integer.parseInt(options.getOrDefault("modules", "1000"));
+        System.out.println("Generating " + modules + " synthetic modules in " + dir + "...");
+        Map<String, File> jars = SyntheticModules.generate(dir, modules,
+                Integer.parseInt(options.getOrDefault("depends", "4")),
+                Integer.parseInt(options.getOrDefault("payload", "1024")), seed);
+
+        SoakHarness harness = new SoakHarness(dir, jars)
+                .setDuration(parseDuration(options.getOrDefault("duration", "1h")))
+                .setChurn(Integer.parseInt(options.getOrDefault("churn-rounds", "3")),
+                        Double.parseDouble(options.getOrDefault("churn-fraction", "0.1")))
+                .setSampleInterval(parseDuration(options.getOrDefault("sample-interval", "30s")))
+                .setReadyTimeout(parseDuration(options.getOrDefault("ready-timeout", "30s")))
+                .setSeed(seed)
+                .setProgress(System.out);
+        if (options.containsKey("cycles"))
+            harness.setCycles(Integer.parseInt(options.get("cycles")));
+
+        SoakReport report = harness.run();
+        System.out.println(report.format());
+        System.exit(report.getErrorCount() > 0 || !report.getLeaks().isEmpty() ? 1 : 0);
+    }
+
+    private static Duration parseDuration(String value) {
+        int unit = 0;
+        while (unit < value.length() && Character.isDigit(value.charAt(unit)))
+            unit++;
+        long amount = Long.parseLong(value.substring(0, unit));
+        return switch (value.substring(unit)) {
+            case "ms" -> Duration.ofMillis(amount);
+            case "s" -> Duration.ofSeconds(amount);
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Expected a duration (eg : 500ms, 30s, 10m, 4h) : " + value);
+        };
+    }
+
+    /**
+     * A source timing the starts of its modules : from the start request to the READY health.
+     */
+    private final class SoakSource extends ModularSource {
+        private SoakSource() throws ModUuidEx, ModSourceEx {
+            super(SOURCE_UUID, moduleDirectory, "jar");
+        }
+
+        @Override
+        protected void onHealthChanged(ModularModule module, ModuleHealth oldHealth, ModuleHealth newHealth) {
+            super.onHealthChanged(module, oldHealth, newHealth);
+            if (newHealth == ModuleHealth.READY) {
+                Long start = pendingStarts.remove(module);
+                if (start != null)
+                    record(SoakOperation.START, start);
+            }
+        }
+    }
+}
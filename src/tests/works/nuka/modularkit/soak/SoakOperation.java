@@ -0,0 +1,27 @@
+package works.nuka.modularkit.soak;
+
+/**
+ * The operations timed by the SoakHarness.
+ */
+public enum SoakOperation {
+    /**
+     * Load a source : scan, instantiate and register every module file (one latency per cycle).
+     */
+    LOAD,
+    /**
+     * Start a module, until it is READY.
+     */
+    START,
+    /**
+     * Stop a running module.
+     */
+    STOP,
+    /**
+     * Upgrade a running module to a fresh instance of its jar, until the new version is READY.
+     */
+    RELOAD,
+    /**
+     * Destroy a source (one latency per cycle).
+     */
+    DESTROY
+}
@@ -0,0 +1,150 @@
+package works.nuka.modularkit.soak;
+
+import works.nuka.modularkit.leaks.Leak;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SoakReport - The result of a soak run : latency percentiles and throughput of each operation, the JVM
+ * samples over time, the errors and the modules still in the heap at the end of the run.
+ */
+public final class SoakReport {
+
+    private final int cycles;
+    private final Duration elapsed;
+    private final Map<SoakOperation, LatencyHistogram> latencies;
+    private final List<SoakSample> samples;
+    private final long errorCount;
+    private final List<String> errors;
+    private final List<Leak> leaks;
+
+    SoakReport(int cycles, Duration elapsed, Map<SoakOperation, LatencyHistogram> latencies,
+               List<SoakSample> samples, long errorCount, List<String> errors, List<Leak> leaks) {
+        this.cycles = cycles;
+        this.elapsed = elapsed;
+        this.latencies = new EnumMap<>(latencies);
+        this.samples = List.copyOf(samples);
+        this.errorCount = errorCount;
+        this.errors = List.copyOf(errors);
+        this.leaks = List.copyOf(leaks);
+    }
+
+    /**
+     * @return - Returns the completed load -> start-all -> churn -> destroy cycles.
+     */
+    public int getCycles() {
+        return cycles;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @param operation - A SoakOperation.
+     * @return - Returns how many times the operation completed.
+     */
+    public long getCount(SoakOperation operation) {
+        return latencies.get(operation).getCount();
+    }
+
+    /**
+     * @param operation  - A SoakOperation.
+     * @param percentile - The percentile, between 0 and 100 (eg : 99.9).
+     * @return - Returns the latency percentile of the operation, zero if it never completed.
+     */
+    public Duration getPercentile(SoakOperation operation, double percentile) {
+        return Duration.ofNanos(latencies.get(operation).getPercentileNanos(percentile));
+    }
+
+    public Duration getMax(SoakOperation operation) {
+        return Duration.ofNanos(latencies.get(operation).getMaxNanos());
+    }
+
+    /**
+     * @param operation - A SoakOperation.
+     * @return - Returns the completed operations per second of run.
+     */
+    public double getThroughput(SoakOperation operation) {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds > 0 ? getCount(operation) / seconds : 0;
+    }
+
+    /**
+     * @return - Returns the JVM samples, in time order.
+     */
+    public List<SoakSample> getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return - Returns how many errors were reported by the sources or raised by the operations.
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return - Returns the messages of the first errors.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return - Returns the modules and class loaders of the soak sources still in the heap after the run.
+     */
+    public List<Leak> getLeaks() {
+        return leaks;
+    }
+
+    /**
+     * @return - Returns the report as a text table.
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Soak run : %d cycles in %ds, %d errors, %d leaks%n", cycles, elapsed.toSeconds(),
+                errorCount, leaks.size()));
+        out.append(String.format("%-8s %10s %10s %10s %10s %10s %10s %10s%n", "op", "count", "ops/s",
+                "mean", "p50", "p99", "p99.9", "max"));
+        for (Map.Entry<SoakOperation, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            out.append(String.format("%-8s %10d %10.1f %10s %10s %10s %10s %10s%n", entry.getKey(),
+                    histogram.getCount(), getThroughput(entry.getKey()), formatNanos(histogram.getMeanNanos()),
+                    formatNanos(histogram.getPercentileNanos(50)), formatNanos(histogram.getPercentileNanos(99)),
+                    formatNanos(histogram.getPercentileNanos(99.9)), formatNanos(histogram.getMaxNanos())));
+        }
+
+        for (SoakSample sample : samples)
+            out.append(sample).append(System.lineSeparator());
+        for (String error : errors)
+            out.append("error : ").append(error).append(System.lineSeparator());
+        for (Leak leak : leaks)
+            out.append("leak : ").append(leak).append(System.lineSeparator());
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+
+    static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000_000L)
+            return String.format("%.2fs", nanos / 1e9);
+        if (nanos >= 1_000_000L)
+            return String.format("%.2fms", nanos / 1e6);
+        return String.format("%.1fus", nanos / 1e3);
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 0)
+            return "n/a";
+        if (bytes >= 1024L * 1024)
+            return String.format("%.1fMB", bytes / (1024.0 * 1024));
+        return String.format("%.1fKB", bytes / 1024.0);
+    }
+}
@@ -0,0 +1,78 @@
+package works.nuka.modularkit.soak;
+
+import java.time.Duration;
+
+/**
+ * SoakSample - The state of the JVM at one point of a soak run.
+ */
+public final class SoakSample {
+
+    private final Duration elapsed;
+    private final int cycle;
+    private final int threadCount;
+    private final long heapUsed;
+    private final long metaspaceUsed;
+    private final int loadedClassCount;
+    private final int watchedCount;
+
+    public SoakSample(Duration elapsed, int cycle, int threadCount, long heapUsed, long metaspaceUsed,
+                      int loadedClassCount, int watchedCount) {
+        this.elapsed = elapsed;
+        this.cycle = cycle;
+        this.threadCount = threadCount;
+        this.heapUsed = heapUsed;
+        this.metaspaceUsed = metaspaceUsed;
+        this.loadedClassCount = loadedClassCount;
+        this.watchedCount = watchedCount;
+    }
+
+    /**
+     * @return - Returns the time since the start of the run.
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return - Returns the running cycle, starting at 1.
+     */
+    public int getCycle() {
+        return cycle;
+    }
+
+    /**
+     * @return - Returns the live threads of the JVM.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public long getHeapUsed() {
+        return heapUsed;
+    }
+
+    /**
+     * @return - Returns the used metaspace, -1 if the JVM has no Metaspace memory pool.
+     */
+    public long getMetaspaceUsed() {
+        return metaspaceUsed;
+    }
+
+    public int getLoadedClassCount() {
+        return loadedClassCount;
+    }
+
+    /**
+     * @return - Returns the released modules and class loaders not collected yet (see LeakTracker).
+     */
+    public int getWatchedCount() {
+        return watchedCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%8ds  cycle=%-5d threads=%-5d heap=%-8s metaspace=%-8s classes=%-7d watched=%d",
+                elapsed.toSeconds(), cycle, threadCount, SoakReport.formatBytes(heapUsed),
+                SoakReport.formatBytes(metaspaceUsed), loadedClassCount, watchedCount);
+    }
+}
@@ -0,0 +1,46 @@
+package works.nuka.modularkit.soak;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A short soak run, the long runs go through SoakHarness.main().
+ */
+public class SoakTests {
+
+    @Test
+    void testSoakCycles() throws Exception {
+        File dir = Files.createTempDirectory("modularkit-soak").toFile();
+        Map<String, File> jars = SyntheticModules.generate(dir, 60, 3, 1024, 42);
+        assertEquals(60, jars.size());
+
+        SoakReport report = new SoakHarness(dir, jars)
+                .setCycles(2)
+                .setChurn(2, 0.2)
+                .setSampleInterval(Duration.ofMillis(200))
+                .setSeed(42)
+                .run();
+
+        assertEquals(2, report.getCycles());
+        assertEquals(0, report.getErrorCount(), report.getErrors().toString());
+        assertEquals(2, report.getCount(SoakOperation.LOAD));
+        assertEquals(2, report.getCount(SoakOperation.DESTROY));
+        // Every module started twice, plus the restarts of the churn.
+        assertEquals(120 + report.getCount(SoakOperation.STOP), report.getCount(SoakOperation.START));
+        assertEquals(2 * 2 * 12, report.getCount(SoakOperation.STOP) + report.getCount(SoakOperation.RELOAD));
+
+        Duration p50 = report.getPercentile(SoakOperation.START, 50);
+        Duration p99 = report.getPercentile(SoakOperation.START, 99);
+        assertTrue(p50.compareTo(p99) <= 0);
+        assertTrue(p99.compareTo(report.getMax(SoakOperation.START)) <= 0);
+        assertTrue(report.getSamples().size() >= 2);
+        assertTrue(report.getSamples().get(0).getThreadCount() > 0);
+        assertTrue(report.getLeaks().isEmpty(), report.getLeaks().toString());
+    }
+}
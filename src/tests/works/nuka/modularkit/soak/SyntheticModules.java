@@ -0,0 +1,119 @@
+package works.nuka.modularkit.soak;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Generate synthetic module jars for the soak tests : one module per jar, with a [module] .modlr file and a
+ * random dependency DAG (a module only depends on modules generated before it, so there is no cycle).
+ * <p>
+ * Every module class is compiled in a single compiler run, thousands of modules take a few seconds.
+ */
+public final class SyntheticModules {
+
+    /**
+     * The package of the generated module classes.
+     */
+    public static final String PACKAGE = "soak.synthetic";
+
+    private SyntheticModules() {
+    }
+
+    /**
+     * @param dir          - Where to write the jars.
+     * @param count        - How many modules to generate.
+     * @param maxDepends   - The maximum dependencies of a module.
+     * @param payloadBytes - The size of the array held by each module instance, to make the leaks visible.
+     * @param seed         - The seed of the dependency DAG.
+     * @return - Returns the jar of each module keyed by uuid, in the generation order.
+     */
+    public static Map<String, File> generate(File dir, int count, int maxDepends, int payloadBytes, long seed)
+            throws IOException {
+        Random random = new Random(seed);
+        Path work = Files.createTempDirectory("modularkit-synthetic");
+        List<String> uuids = new ArrayList<>(count);
+        List<String> modlrs = new ArrayList<>(count);
+        List<String> sources = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            String uuid = uuid(i);
+            String simpleName = "Synthetic" + i;
+
+            TreeSet<String> depends = new TreeSet<>();
+            int dependCount = i == 0 ? 0 : random.nextInt(Math.min(i, maxDepends) + 1);
+            while (depends.size() < dependCount)
+                depends.add(uuid(random.nextInt(i)));
+
+            StringBuilder modlr = new StringBuilder()
+                    .append("[module]\n")
+                    .append("class = ").append(PACKAGE).append('.').append(simpleName).append('\n')
+                    .append("uuid = ").append(uuid).append('\n')
+                    .append("version = 1.0\n")
+                    .append("priority = ").append(count - i).append('\n'); // The dependencies start first.
+            if (!depends.isEmpty())
+                modlr.append("depends = ").append(String.join(", ", depends)).append('\n');
+
+            String source = "package " + PACKAGE + ";\n"
+                    + "public class " + simpleName + " extends works.nuka.modularkit.ModularModule {\n"
+                    + "    private final byte[] payload = new byte[" + payloadBytes + "];\n"
+                    + "    public " + simpleName + "() throws Exception {\n"
+                    + "        super(\"" + simpleName + "\", \"" + uuid + "\", \"Soak\", \"1.0\");\n"
+                    + "    }\n"
+                    + "    protected void start() { payload[0]++; }\n"
+                    + "    protected void stop() { }\n"
+                    + "    protected void load() { }\n"
+                    + "    protected void unload() { }\n"
+                    + "}\n";
+
+            Path sourceFile = work.resolve(simpleName + ".java");
+            Files.writeString(sourceFile, source);
+            uuids.add(uuid);
+            modlrs.add(modlr.toString());
+            sources.add(sourceFile.toString());
+        }
+
+        List<String> arguments = new ArrayList<>(List.of("-proc:none", "-cp", System.getProperty("java.class.path"),
+                "-d", work.toString()));
+        arguments.addAll(sources);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0)
+            throw new IOException("Cannot compile the synthetic modules");
+
+        Map<String, File> jars = new LinkedHashMap<>();
+        Path classes = work.resolve(PACKAGE.replace('.', File.separatorChar));
+        for (int i = 0; i < count; i++) {
+            String classFile = "Synthetic" + i + ".class";
+            File jar = new File(dir, "synthetic-" + uuids.get(i) + ".jar");
+            try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+                out.putNextEntry(new JarEntry(".modlr"));
+                out.write(modlrs.get(i).getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+
+                out.putNextEntry(new JarEntry(PACKAGE.replace('.', '/') + "/" + classFile));
+                out.write(Files.readAllBytes(classes.resolve(classFile)));
+                out.closeEntry();
+            }
+            jars.put(uuids.get(i), jar);
+        }
+
+        return jars;
+    }
+
+    private static String uuid(int index) {
+        return String.format("5a%06x", index);
+    }
+}
@@ -0,0 +1,69 @@
+"""Compare the startup time of a ModularKit host with and without a CDS archive."""
+import argparse
+import statistics
+import subprocess
+import sys
+import time
+
+
+def parse_args() -> argparse.Namespace:
+    """Read the benchmark options, the host command comes after '--'."""
+    parser = argparse.ArgumentParser(description=__doc__)
+    parser.add_argument("--archive", required=True, help="CDS archive (.jsa) to benchmark")
+    parser.add_argument("--runs", type=int, default=10, help="measured launches per mode")
+    parser.add_argument("--warmup", type=int, default=2, help="unmeasured launches per mode")
+    parser.add_argument("command", nargs=argparse.REMAINDER,
+                        help="host command, eg: -- java -cp host.jar com.example.Main")
+    args = parser.parse_args()
+
+    if args.command and args.command[0] == "--":
+        args.command = args.command[1:]
+
+    if not args.command or "java" not in args.command[0]:
+        parser.error("the host command must start with the java executable")
+
+    return args
+
+
+def with_archive(command: list, archive: str) -> list:
+    """Insert the SharedArchiveFile option right after the java executable."""
+    return [command[0], f"-XX:SharedArchiveFile={archive}"] + command[1:]
+
+
+def measure(command: list, runs: int, warmup: int) -> list:
+    """Launch the command and return the wall time of each measured run (ms)."""
+    timings: list = []
+
+    for i in range(warmup + runs):
+        start: float = time.perf_counter()
+        result = subprocess.run(command, stdout=subprocess.DEVNULL, stderr=subprocess.PIPE)
+        elapsed: float = (time.perf_counter() - start) * 1000
+
+        if result.returncode != 0:
+            sys.exit(f"command failed ({result.returncode}): {result.stderr.decode(errors='replace')}")
+
+        if i >= warmup:
+            timings.append(elapsed)
+
+    return timings
+
+
+def report(name: str, timings: list) -> None:
+    """Print the statistics of one mode."""
+    print(f"{name:>14}: median {statistics.median(timings):8.1f} ms | min {min(timings):8.1f} ms"
+          f" | mean {statistics.mean(timings):8.1f} ms")
+
+
+def main() -> None:
+    args = parse_args()
+
+    baseline: list = measure(args.command, args.runs, args.warmup)
+    archived: list = measure(with_archive(args.command, args.archive), args.runs, args.warmup)
+
+    report("without CDS", baseline)
+    report("with CDS", archived)
+    print(f"{'speedup':>14}: {statistics.median(baseline) / statistics.median(archived):.2f}x (median)")
+
+
+if __name__ == '__main__':
+    main()